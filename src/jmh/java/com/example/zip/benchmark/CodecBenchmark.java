@@ -0,0 +1,80 @@
+package com.example.zip.benchmark;
+
+import com.example.zip.jdk_zip.utils.ZipUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 小文件编解码基准：大量小条目时的单次操作分配量
+ * <p>
+ * 配合 BenchmarkMain 默认开启的 GC profiler，gc.alloc.rate.norm 除以 entries 即每个条目的堆分配字节数，
+ * 用来确认 Deflater / Inflater 和缓冲区在热路径上被复用而不是每个条目重新创建。
+ *
+ * @author vincent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodecBenchmark {
+
+    @Param({"100", "1000"})
+    public int entries;
+
+    private Path sourceDir;
+    private byte[] archive;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        sourceDir = Files.createTempDirectory("zip-jmh-codec");
+        for (int i = 0; i < entries; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int line = 0; line < 20; line++) {
+                content.append("entry ").append(i).append(" line ").append(line).append('\n');
+            }
+            Files.write(sourceDir.resolve("file-" + i + ".txt"), content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipUtils.packDir(sourceDir.toString(), out);
+        archive = out.toByteArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        FileUtils.deleteDirectory(sourceDir.toFile());
+    }
+
+    @Benchmark
+    public void pack() throws IOException {
+        ZipUtils.packDir(sourceDir.toString(), NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+
+    @Benchmark
+    public void unpack(Blackhole blackhole) throws IOException {
+        ZipUtils.unpack(new ByteArrayInputStream(archive), (entry, content) -> {
+            int n;
+            while ((n = content.read(buffer)) != -1) {
+                blackhole.consume(n);
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.zip.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * 基准测试使用的合成数据集
+ *
+ * @author vincent
+ */
+public enum Corpus {
+    /**
+     * 大量小文本文件
+     */
+    TINY_FILES(5000, 1024, true),
+    /**
+     * 少量大文本文件
+     */
+    HUGE_FILES(2, 64L * 1024 * 1024, true),
+    /**
+     * 不可压缩的随机数据
+     */
+    INCOMPRESSIBLE(8, 8L * 1024 * 1024, false);
+
+    private final int files;
+    private final long fileSize;
+    private final boolean text;
+
+    Corpus(int files, long fileSize, boolean text) {
+        this.files = files;
+        this.fileSize = fileSize;
+        this.text = text;
+    }
+
+    /**
+     * @return 数据集的总字节数
+     */
+    public long totalBytes() {
+        return files * fileSize;
+    }
+
+    /**
+     * 在目录中生成数据集（固定随机种子，每次生成的内容相同）
+     *
+     * @param dir 目标目录
+     * @return 目标目录
+     * @throws IOException IO异常
+     */
+    public Path create(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(name().hashCode());
+        byte[] buffer = new byte[64 * 1024];
+        for (int i = 0; i < files; i++) {
+            try (OutputStream out = Files.newOutputStream(dir.resolve(String.format("file-%05d.%s", i, text ? "log" : "bin")))) {
+                long remaining = fileSize;
+                while (remaining > 0) {
+                    int n = (int) Math.min(buffer.length, remaining);
+                    fill(random, buffer, n);
+                    out.write(buffer, 0, n);
+                    remaining -= n;
+                }
+            }
+        }
+        return dir;
+    }
+
+    private void fill(Random random, byte[] buffer, int length) {
+        if (!text) {
+            random.nextBytes(buffer);
+            return;
+        }
+        //模拟日志：固定格式 + 随机数字，压缩率与真实的文本日志接近
+        int pos = 0;
+        while (pos < length) {
+            byte[] line = String.format("2026-01-01 12:%02d:%02d INFO [worker-%d] request %d served in %d ms%n",
+                    random.nextInt(60), random.nextInt(60), random.nextInt(16), random.nextInt(100000), random.nextInt(500))
+                    .getBytes(StandardCharsets.US_ASCII);
+            int n = Math.min(line.length, length - pos);
+            System.arraycopy(line, 0, buffer, pos, n);
+            pos += n;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.zip.benchmark;
+
+import com.example.zip.jdk_zip.utils.ZipUtils;
+import com.example.zip.zip4j.utils.CompressionPolicy;
+import com.example.zip.zip4j.utils.ZipClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 参与比较的压缩实现
+ *
+ * @author vincent
+ */
+public enum Engine {
+    /**
+     * {@link ZipUtils} 单线程
+     */
+    JDK {
+        @Override
+        Path pack(Path sourceDir) throws IOException {
+            ZipUtils.packDir(sourceDir.toString());
+            return zipPath(sourceDir);
+        }
+
+        @Override
+        void unpack(Path zipPath) throws IOException {
+            ZipUtils.unpackFile(zipPath.toString());
+        }
+    },
+    /**
+     * {@link ZipUtils} 多线程
+     */
+    JDK_PARALLEL {
+        @Override
+        Path pack(Path sourceDir) throws IOException {
+            ZipUtils.packDir(sourceDir.toString(), PARALLELISM);
+            return zipPath(sourceDir);
+        }
+
+        @Override
+        void unpack(Path zipPath) throws IOException {
+            ZipUtils.unpackFile(zipPath.toString(), PARALLELISM);
+        }
+    },
+    /**
+     * {@link ZipClient} 不加密
+     */
+    ZIP4J {
+        @Override
+        Path pack(Path sourceDir) throws IOException {
+            try (ZipClient client = new ZipClient()) {
+                return zip4jPack(client, sourceDir);
+            }
+        }
+
+        @Override
+        void unpack(Path zipPath) throws IOException {
+            try (ZipClient client = new ZipClient()) {
+                client.unpack(zipPath.toString(), zipPath.getParent().toString());
+            }
+        }
+    },
+    /**
+     * {@link ZipClient} AES-256 加密（与旧版本一样使用 ULTRA 级别）
+     */
+    ZIP4J_AES {
+        @Override
+        Path pack(Path sourceDir) throws IOException {
+            try (ZipClient client = new ZipClient(PASSWORD, CompressionPolicy.ultra())) {
+                return zip4jPack(client, sourceDir);
+            }
+        }
+
+        @Override
+        void unpack(Path zipPath) throws IOException {
+            try (ZipClient client = new ZipClient(PASSWORD)) {
+                client.unpack(zipPath.toString(), zipPath.getParent().toString());
+            }
+        }
+    };
+
+    static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final String PASSWORD = "benchmark";
+
+    /**
+     * 压缩目录中的全部文件
+     *
+     * @param sourceDir 源目录
+     * @return 生成的 zip 文件路径
+     * @throws IOException IO异常
+     */
+    abstract Path pack(Path sourceDir) throws IOException;
+
+    /**
+     * 把 zip 文件解压到所在目录
+     *
+     * @param zipPath zip 文件路径
+     * @throws IOException IO异常
+     */
+    abstract void unpack(Path zipPath) throws IOException;
+
+    static Path zipPath(Path sourceDir) {
+        return sourceDir.resolveSibling(sourceDir.getFileName() + ".zip");
+    }
+
+    private static Path zip4jPack(ZipClient client, Path sourceDir) throws IOException {
+        List<String> files;
+        try (Stream<Path> paths = Files.list(sourceDir)) {
+            files = paths.sorted().map(Path::toString).collect(Collectors.toList());
+        }
+        client.pack(files, sourceDir.toString());
+        return zipPath(sourceDir);
+    }
+}
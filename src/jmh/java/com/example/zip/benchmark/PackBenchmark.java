@@ -0,0 +1,65 @@
+package com.example.zip.benchmark;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压缩基准：各实现压缩同一个数据集的吞吐量和耗时分布
+ *
+ * @author vincent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PackBenchmark {
+
+    @Param
+    public Corpus corpus;
+
+    @Param
+    public Engine engine;
+
+    private Path workDir;
+    private Path sourceDir;
+
+    @Setup(Level.Trial)
+    public void createCorpus() throws IOException {
+        workDir = Files.createTempDirectory("zip-jmh-pack");
+        sourceDir = corpus.create(workDir.resolve(corpus.name().toLowerCase()));
+    }
+
+    /**
+     * zip4j 会向已存在的 zip 文件追加条目，每次压缩前删除上一次的结果
+     */
+    @Setup(Level.Invocation)
+    public void deleteOutput() throws IOException {
+        Files.deleteIfExists(Engine.zipPath(sourceDir));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        FileUtils.deleteDirectory(workDir.toFile());
+    }
+
+    @Benchmark
+    public Path pack(ThroughputCounters counters) throws IOException {
+        Path zipPath = engine.pack(sourceDir);
+        counters.inputBytes += corpus.totalBytes();
+        counters.outputBytes += Files.size(zipPath);
+        return zipPath;
+    }
+}
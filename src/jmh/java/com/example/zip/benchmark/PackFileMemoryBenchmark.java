@@ -0,0 +1,87 @@
+package com.example.zip.benchmark;
+
+import com.example.zip.jdk_zip.utils.ZipUtils;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大文件压缩的内存上限基准：在固定的 64 MB 堆中压缩远大于堆的文件
+ * <p>
+ * 压缩过程中把整个文件读入内存时子进程以 OutOfMemoryError 失败；
+ * 配合 BenchmarkMain 默认开启的 GC profiler，gc.alloc.rate.norm 是单次压缩的堆分配字节数，应与文件大小无关。
+ *
+ * @author vincent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class PackFileMemoryBenchmark {
+
+    @Param({"268435456", "2147483648"})
+    public long size;
+
+    private Path workDir;
+    private Path source;
+    private Path outDir;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        workDir = Files.createTempDirectory("zip-jmh-memory");
+        source = workDir.resolve("large.log");
+        outDir = Files.createDirectories(workDir.resolve("out"));
+        //生成类似日志的可压缩内容
+        byte[] chunk = new byte[1024 * 1024];
+        byte[] line = "2021-01-01 00:00:00.000 INFO  [main] c.e.zip.ZipApplication : request handled in 12 ms\n"
+                .getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = line[i % line.length];
+        }
+        try (OutputStream out = Files.newOutputStream(source)) {
+            long remaining = size;
+            while (remaining > 0) {
+                int n = (int) Math.min(chunk.length, remaining);
+                out.write(chunk, 0, n);
+                remaining -= n;
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteOutput() throws IOException {
+        FileUtils.cleanDirectory(outDir.toFile());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        FileUtils.deleteDirectory(workDir.toFile());
+    }
+
+    @Benchmark
+    public void packFile(ThroughputCounters counters) throws IOException {
+        ZipUtils.packFile(source.toString(), outDir.toString());
+        counters.inputBytes += size;
+        counters.outputBytes += FileUtils.sizeOfDirectory(outDir.toFile());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.zip.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 字节计数器，与每次操作的耗时一起即可换算出吞吐量（MB/s）和压缩率
+ *
+ * @author vincent
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class ThroughputCounters {
+    /**
+     * 读取的字节数（压缩时为原始数据，解压缩时为 zip 文件）
+     */
+    public long inputBytes;
+    /**
+     * 写出的字节数（压缩时为 zip 文件，解压缩时为原始数据）
+     */
+    public long outputBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        inputBytes = 0;
+        outputBytes = 0;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.zip.benchmark;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解压缩基准：各实现解压由自己生成的 zip 文件的吞吐量和耗时分布
+ *
+ * @author vincent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UnpackBenchmark {
+
+    @Param
+    public Corpus corpus;
+
+    @Param
+    public Engine engine;
+
+    private Path workDir;
+    private Path zipPath;
+
+    @Setup(Level.Trial)
+    public void createArchive() throws IOException {
+        workDir = Files.createTempDirectory("zip-jmh-unpack");
+        Path sourceDir = corpus.create(workDir.resolve(corpus.name().toLowerCase()));
+        Path packed = engine.pack(sourceDir);
+        //解压到单独的目录，每次解压覆盖上一次的结果
+        Path unpackDir = Files.createDirectories(workDir.resolve("unpack"));
+        zipPath = Files.move(packed, unpackDir.resolve(packed.getFileName()));
+        FileUtils.deleteDirectory(sourceDir.toFile());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteArchive() throws IOException {
+        FileUtils.deleteDirectory(workDir.toFile());
+    }
+
+    @Benchmark
+    public void unpack(ThroughputCounters counters) throws IOException {
+        engine.unpack(zipPath);
+        counters.inputBytes += Files.size(zipPath);
+        counters.outputBytes += corpus.totalBytes();
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.zip;
 
+import com.example.zip.jdk_zip.utils.AsyncZipService;
+import com.example.zip.jdk_zip.utils.ZipMetrics;
+import com.example.zip.job.ArchiveJobService;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class ZipApplication {
@@ -10,4 +16,29 @@ public class ZipApplication {
         SpringApplication.run(ZipApplication.class, args);
     }
 
+    /**
+     * 异步压缩服务，请求线程提交任务后立即返回，不再为每个压缩请求占用一个平台线程
+     */
+    @Bean(destroyMethod = "close")
+    public AsyncZipService asyncZipService() {
+        return AsyncZipService.create();
+    }
+
+    /**
+     * 压缩任务服务：有界队列、交互式 / 批量优先级、小任务合批，队列满时拒绝新任务（指标由 Spring Boot 自动注册）
+     */
+    @Bean(destroyMethod = "close")
+    public ArchiveJobService archiveJobService(@Value("${zip.jobs.workers:0}") int workers,
+                                               @Value("${zip.jobs.queue-capacity:1000}") int queueCapacity) {
+        return new ArchiveJobService(workers > 0 ? workers : Runtime.getRuntime().availableProcessors(), queueCapacity);
+    }
+
+    /**
+     * 把压缩 / 解压缩指标注册到 Spring Boot 的 MeterRegistry（没有这个 bean 时不记录任何指标）
+     */
+    @Bean
+    public MeterBinder zipMetrics() {
+        return ZipMetrics::bind;
+    }
+
 }
@@ -0,0 +1,302 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程流水线加密压缩（WinZip AES-256）
+ * <p>
+ * 每个条目经过 读取 → 压缩 → 加密（AES-CTR + HMAC）三个阶段，三个阶段分别在各自的线程池中运行，
+ * 阶段之间通过有界队列传递数据块，数据块从 {@link CodecPool} 借用并在条目内循环复用；多个条目同时在流水线中处理。
+ * 加密后的数据缓冲在 {@link CompressedPayload} 中，由调用线程按提交顺序写入 zip 文件。
+ * 同时在途的条目数不超过每个线程池的线程数，因此各阶段的阻塞等待不会互相死锁。
+ *
+ * @author vincent
+ */
+final class AesPipelinePacker {
+    private static final int QUEUE_DEPTH = 4;
+
+    private final int parallelism;
+    private final WinZipAes aes;
+    private final LevelSelector levels;
+
+    AesPipelinePacker(int parallelism, char[] password, LevelSelector levels) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.aes = new WinZipAes(password);
+        this.levels = levels;
+    }
+
+    /**
+     * 加密压缩文件并按给定顺序写入 zip 文件（条目名称为文件名）
+     *
+     * @param files  需要压缩的文件
+     * @param writer zip 文件写入器
+     * @throws IOException IO异常
+     */
+    void pack(List<Path> files, ZipArchiveWriter writer) throws IOException {
+        ExecutorService readers = newPool("zip-read-%d");
+        ExecutorService deflaters = newPool("zip-deflate-%d");
+        ExecutorService encryptors = newPool("zip-encrypt-%d");
+        Deque<Pipeline> window = new ArrayDeque<>();
+        try {
+            for (Path file : files) {
+                if (window.size() >= parallelism) {
+                    writeEntry(window, writer);
+                }
+                Pipeline pipeline = new Pipeline(file, levels.level(file));
+                window.add(pipeline);
+                pipeline.start(readers, deflaters, encryptors);
+            }
+            while (!window.isEmpty()) {
+                writeEntry(window, writer);
+            }
+        } finally {
+            for (Pipeline pipeline : window) {
+                pipeline.fail(new IOException("packing aborted"));
+            }
+            readers.shutdownNow();
+            deflaters.shutdownNow();
+            encryptors.shutdownNow();
+            //等待所有阶段退出后再删除未写入的数据，避免与仍在写入的阶段竞争
+            if (awaitTermination(readers) && awaitTermination(deflaters) && awaitTermination(encryptors)) {
+                for (Pipeline pipeline : window) {
+                    pipeline.releaseChunks();
+                    pipeline.payload.close();
+                }
+            }
+        }
+    }
+
+    private ExecutorService newPool(String nameFormat) {
+        return Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+    }
+
+    private static void writeEntry(Deque<Pipeline> window, ZipArchiveWriter writer) throws IOException {
+        //失败的条目留在窗口中，等所有阶段退出后再清理
+        ParallelPacker.await(window.peek().result);
+        Pipeline pipeline = window.poll();
+        //三个阶段都已结束，数据块可以归还
+        pipeline.releaseChunks();
+        try (CompressedPayload payload = pipeline.payload) {
+            writer.putEntry(pipeline.entry);
+            payload.writeTo(writer);
+            writer.closeEntry();
+        }
+    }
+
+    private static boolean awaitTermination(ExecutorService pool) {
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                pool.shutdownNow();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 数据块，length 为 -1 表示数据结束
+     */
+    private static final class Chunk {
+        final byte[] data;
+        final BlockingQueue<Chunk> owner;
+        int length;
+
+        Chunk(byte[] data, BlockingQueue<Chunk> owner) {
+            this.data = data;
+            this.owner = owner;
+        }
+
+        void release() {
+            owner.offer(this);
+        }
+    }
+
+    /**
+     * 单个条目的三段流水线
+     */
+    private final class Pipeline {
+        final Path file;
+        final int level;
+        final ZipEntryRecord entry;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        private final BlockingQueue<Chunk> freeInput = new ArrayBlockingQueue<>(QUEUE_DEPTH + 2);
+        private final BlockingQueue<Chunk> freeOutput = new ArrayBlockingQueue<>(QUEUE_DEPTH + 2);
+        private final BlockingQueue<Chunk> read = new ArrayBlockingQueue<>(QUEUE_DEPTH + 2);
+        private final BlockingQueue<Chunk> deflated = new ArrayBlockingQueue<>(2 * QUEUE_DEPTH + 4);
+        private final byte[][] buffers = new byte[2 * QUEUE_DEPTH][];
+        private final Future<?>[] stages = new Future<?>[3];
+        final CompressedPayload payload = new CompressedPayload(ParallelPacker.DEFAULT_SPILL_THRESHOLD);
+
+        Pipeline(Path file, int level) throws IOException {
+            this.file = file;
+            this.level = level;
+            int method = level == Deflater.NO_COMPRESSION ? ZipFormat.METHOD_STORED : ZipFormat.METHOD_DEFLATED;
+            //AE-2 不保存 CRC，数据完整性由 HMAC 认证码保证
+            this.entry = new ZipEntryRecord(file.getFileName().toString())
+                    .method(WinZipAes.METHOD_AES)
+                    .lastModified(Files.getLastModifiedTime(file).toMillis());
+            this.entry.flags |= ZipFormat.FLAG_ENCRYPTED;
+            this.entry.versionNeeded = WinZipAes.VERSION_NEEDED;
+            this.entry.extra = WinZipAes.extraField(method);
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = CodecPool.SHARED.buffer();
+            }
+            for (int i = 0; i < QUEUE_DEPTH; i++) {
+                freeInput.add(new Chunk(buffers[2 * i], freeInput));
+                freeOutput.add(new Chunk(buffers[2 * i + 1], freeOutput));
+            }
+        }
+
+        void start(ExecutorService readers, ExecutorService deflaters, ExecutorService encryptors) {
+            synchronized (stages) {
+                stages[0] = readers.submit(() -> run(this::readStage));
+                stages[1] = deflaters.submit(() -> run(this::deflateStage));
+                stages[2] = encryptors.submit(() -> run(this::encryptStage));
+            }
+        }
+
+        private void readStage() throws Exception {
+            long size = 0;
+            try (InputStream in = Files.newInputStream(file)) {
+                while (true) {
+                    Chunk chunk = freeInput.take();
+                    chunk.length = readFully(in, chunk.data);
+                    if (chunk.length <= 0) {
+                        //先记录原始大小再放入结束标记，队列保证其他阶段可见
+                        entry.size = size;
+                        chunk.length = -1;
+                        read.put(chunk);
+                        break;
+                    }
+                    size += chunk.length;
+                    read.put(chunk);
+                }
+            }
+        }
+
+        private void deflateStage() throws Exception {
+            if (level == Deflater.NO_COMPRESSION) {
+                //STORED：数据块原样交给加密阶段
+                Chunk chunk;
+                do {
+                    chunk = read.take();
+                    deflated.put(chunk);
+                } while (chunk.length != -1);
+                return;
+            }
+            Deflater deflater = CodecPool.SHARED.deflater(level);
+            try {
+                Chunk chunk;
+                while ((chunk = read.take()).length != -1) {
+                    deflater.setInput(chunk.data, 0, chunk.length);
+                    while (!deflater.needsInput()) {
+                        emit(deflater);
+                    }
+                    chunk.release();
+                }
+                deflater.finish();
+                while (!deflater.finished()) {
+                    emit(deflater);
+                }
+                deflated.put(chunk);
+            } finally {
+                CodecPool.SHARED.release(deflater, level);
+            }
+        }
+
+        private void emit(Deflater deflater) throws InterruptedException {
+            Chunk out = freeOutput.take();
+            out.length = deflater.deflate(out.data);
+            if (out.length > 0) {
+                deflated.put(out);
+            } else {
+                out.release();
+            }
+        }
+
+        private void encryptStage() throws Exception {
+            //每个条目使用独立的盐值派生密钥，保证不同条目的 CTR 密钥流互不重复
+            WinZipAes.EntryEncryptor encryptor = aes.newEntry();
+            byte[] header = encryptor.header();
+            payload.write(header, 0, header.length);
+            Chunk chunk;
+            while ((chunk = deflated.take()).length != -1) {
+                encryptor.encrypt(chunk.data, 0, chunk.length);
+                payload.write(chunk.data, 0, chunk.length);
+                chunk.release();
+            }
+            byte[] mac = encryptor.finish();
+            payload.write(mac, 0, mac.length);
+            entry.sizes(0, payload.length(), entry.size);
+            result.complete(null);
+        }
+
+        private Void run(Stage stage) {
+            try {
+                stage.run();
+            } catch (Exception e) {
+                fail(e instanceof GeneralSecurityException ? new IOException(e) : e);
+            }
+            return null;
+        }
+
+        /**
+         * 归还数据块，只能在三个阶段都结束后调用
+         */
+        void releaseChunks() {
+            for (byte[] buffer : buffers) {
+                CodecPool.SHARED.release(buffer);
+            }
+        }
+
+        void fail(Exception e) {
+            if (result.completeExceptionally(e)) {
+                synchronized (stages) {
+                    for (Future<?> stage : stages) {
+                        if (stage != null) {
+                            stage.cancel(true);
+                        }
+                    }
+                }
+            }
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        int n;
+        while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += n;
+        }
+        return length;
+    }
+}
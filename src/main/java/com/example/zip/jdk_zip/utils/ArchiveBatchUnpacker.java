@@ -0,0 +1,255 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量并发解压缩多个 zip 文件
+ * <p>
+ * 解压（CPU 密集）和写盘（IO 密集）分别在两个大小独立的线程池中执行：解压线程把数据解压到固定数量的缓冲区中，
+ * 再交给写盘线程按顺序写入目标文件。缓冲区用完时解压线程阻塞等待，因此内存占用有上限。
+ * 每个压缩文件单独记录成功或失败，一个压缩文件损坏不会中断整个批次。
+ *
+ * @author vincent
+ */
+final class ArchiveBatchUnpacker {
+    private final int inflateThreads;
+    private final int writeThreads;
+    private final int maxBufferedChunks;
+
+    ArchiveBatchUnpacker(int inflateThreads, int writeThreads) {
+        this(inflateThreads, writeThreads, Math.max(inflateThreads, writeThreads) * 4);
+    }
+
+    ArchiveBatchUnpacker(int inflateThreads, int writeThreads, int maxBufferedChunks) {
+        if (inflateThreads < 1 || writeThreads < 1) {
+            throw new IllegalArgumentException("thread counts must be positive: " + inflateThreads + ", " + writeThreads);
+        }
+        if (maxBufferedChunks < inflateThreads) {
+            throw new IllegalArgumentException("maxBufferedChunks must be at least inflateThreads: " + maxBufferedChunks);
+        }
+        this.inflateThreads = inflateThreads;
+        this.writeThreads = writeThreads;
+        this.maxBufferedChunks = maxBufferedChunks;
+    }
+
+    /**
+     * 并发解压缩多个 zip 文件到同一个目录
+     *
+     * @param zipPaths 压缩文件路径
+     * @param destDir  解压缩的目标目录
+     * @return 批量解压缩的结果
+     * @throws IOException 等待结果时被中断
+     */
+    BatchUnpackResult unpack(List<Path> zipPaths, Path destDir) throws IOException {
+        long start = System.nanoTime();
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(maxBufferedChunks);
+        for (int i = 0; i < maxBufferedChunks; i++) {
+            buffers.add(new byte[ZipUtils.BUFFER_SIZE]);
+        }
+        ExecutorService inflatePool = Executors.newFixedThreadPool(inflateThreads,
+                new ThreadFactoryBuilder().setNameFormat("zip-inflate-%d").setDaemon(true).build());
+        ExecutorService writePool = Executors.newFixedThreadPool(writeThreads,
+                new ThreadFactoryBuilder().setNameFormat("zip-write-%d").setDaemon(true).build());
+        ConcurrentMap<Path, CompletableFuture<Void>> lastWrites = new ConcurrentHashMap<>();
+        //多个压缩文件共用同一个目录缓存
+        ExtractionWriter output = new ExtractionWriter(destDir, Durability.NONE);
+        AtomicInteger entries = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        try {
+            Map<Path, Future<?>> tasks = new LinkedHashMap<>();
+            for (Path zipPath : zipPaths) {
+                tasks.put(zipPath, inflatePool.submit(() -> {
+                    unpackArchive(zipPath, output, buffers, writePool, lastWrites, entries, bytes);
+                    return null;
+                }));
+            }
+            List<Path> succeeded = new ArrayList<>();
+            Map<Path, Exception> failed = new LinkedHashMap<>();
+            for (Map.Entry<Path, Future<?>> task : tasks.entrySet()) {
+                try {
+                    task.getValue().get();
+                    succeeded.add(task.getKey());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failed.put(task.getKey(), cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+            return new BatchUnpackResult(succeeded, failed, new UnpackStats(entries.get(), bytes.get(), System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while unpacking");
+        } finally {
+            inflatePool.shutdownNow();
+            writePool.shutdownNow();
+        }
+    }
+
+    private static void unpackArchive(Path zipPath, ExtractionWriter output, BlockingQueue<byte[]> buffers, ExecutorService writePool,
+                                      ConcurrentMap<Path, CompletableFuture<Void>> lastWrites,
+                                      AtomicInteger entries, AtomicLong bytes) throws IOException, InterruptedException {
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        int archiveEntries = 0;
+        long archiveBytes = 0;
+        //使用中央目录索引而不是 ZipFile，可以解压 Zstandard 等其他压缩方式的条目
+        try (ZipIndex index = ZipIndex.open(zipPath)) {
+            for (Iterator<ZipIndex.Entry> it = index.entries(); it.hasNext(); ) {
+                ZipIndex.Entry entry = it.next();
+                Path target = output.resolve(entry.getName());
+                if (entry.isDirectory()) {
+                    output.createDirectory(target);
+                    continue;
+                }
+                ChunkWriter writer = new ChunkWriter(output, target, entry.getSize());
+                //多个压缩文件包含同一个目标文件时，先等前一个写完再开始解压（等待期间不占用缓冲区，不会死锁）
+                CompletableFuture<Void> chain = new CompletableFuture<>();
+                chain.whenComplete((v, e) -> lastWrites.remove(target, chain));
+                CompletableFuture<Void> previous = lastWrites.put(target, chain);
+                if (previous != null) {
+                    previous.handle((v, e) -> null).join();
+                }
+                CompletableFuture<Void> tail = CompletableFuture.runAsync(writer::open, writePool);
+                try (InputStream in = entry.open()) {
+                    while (true) {
+                        byte[] buffer = buffers.take();
+                        int n = readFully(in, buffer);
+                        if (n <= 0) {
+                            buffers.add(buffer);
+                            break;
+                        }
+                        archiveBytes += n;
+                        tail = tail.handleAsync((v, e) -> {
+                            try {
+                                if (e == null) {
+                                    writer.write(buffer, n);
+                                }
+                            } finally {
+                                buffers.add(buffer);
+                            }
+                            if (e != null) {
+                                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                            }
+                            return null;
+                        }, writePool);
+                    }
+                } finally {
+                    tail = tail.handleAsync((v, e) -> {
+                        writer.close();
+                        if (e != null) {
+                            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                        }
+                        return null;
+                    }, writePool);
+                    tail.whenComplete((v, e) -> {
+                        if (e == null) {
+                            chain.complete(null);
+                        } else {
+                            chain.completeExceptionally(e);
+                        }
+                    });
+                    writes.add(chain);
+                }
+                archiveEntries++;
+            }
+        } catch (Throwable e) {
+            //等待本压缩文件的全部写入结束，保证缓冲区都已归还；写入失败只作为附加异常，不覆盖中断解压的原因
+            try {
+                awaitWrites(writes);
+            } catch (IOException | RuntimeException writeFailure) {
+                e.addSuppressed(writeFailure);
+            }
+            throw e;
+        }
+        awaitWrites(writes);
+        entries.addAndGet(archiveEntries);
+        bytes.addAndGet(archiveBytes);
+    }
+
+    private static void awaitWrites(List<CompletableFuture<Void>> writes) throws IOException {
+        try {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] b) throws IOException {
+        int n = 0;
+        while (n < b.length) {
+            int count = in.read(b, n, b.length - n);
+            if (count < 0) {
+                break;
+            }
+            n += count;
+        }
+        return n;
+    }
+
+    /**
+     * 单个目标文件的写入端，只在写盘线程中按顺序访问
+     */
+    private static final class ChunkWriter {
+        private final ExtractionWriter output;
+        private final Path target;
+        private final long size;
+        private ExtractionWriter.Output out;
+
+        ChunkWriter(ExtractionWriter output, Path target, long size) {
+            this.output = output;
+            this.target = target;
+            this.size = size;
+        }
+
+        void open() {
+            try {
+                out = output.open(target, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void write(byte[] buffer, int length) {
+            try {
+                out.write(buffer, 0, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程安全的压缩文件句柄缓存
+ * <p>
+ * 以 路径 + 文件标识（inode） + 最后修改时间（纳秒精度） + 文件大小 作为键缓存已打开（已解析中央目录）的句柄，
+ * 文件被替换或修改后自动重新打开。原地改写且大小不变、修改时间落在文件系统时间精度之内时无法识别，
+ * 这种情况下改写方应调用 {@link #invalidate(Path)}。
+ * <p>
+ * 超过容量时按 LRU 淘汰，空闲超过 idleTimeout 的句柄由后台线程关闭（被删除的压缩文件不会一直占用文件描述符和磁盘空间）；
+ * 句柄使用引用计数，被淘汰的句柄在最后一个使用者释放后才真正关闭。缓存由创建者持有，不再使用时必须 {@link #close()}。
+ *
+ * @param <T> 句柄类型
+ * @author vincent
+ */
+public final class ArchiveHandleCache<T> implements Closeable {
+    /**
+     * 打开压缩文件
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(Path path) throws IOException;
+    }
+
+    /**
+     * 关闭压缩文件
+     */
+    @FunctionalInterface
+    public interface Closer<T> {
+        void close(T handle) throws IOException;
+    }
+
+    /**
+     * 所有缓存共用的空闲清理线程
+     */
+    private static final ScheduledExecutorService CLEANER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("zip-handle-cleaner").setDaemon(true).build());
+
+    private final int maxHandles;
+    private final long idleTimeoutNanos;
+    private final ScheduledFuture<?> cleanup;
+    private final Loader<T> loader;
+    private final Closer<T> closer;
+    private final LinkedHashMap<Key, Slot<T>> slots = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, Key> currentKeys = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private boolean closed;
+
+    /**
+     * @param maxHandles 缓存的句柄数上限
+     * @param loader     打开压缩文件
+     * @param closer     关闭压缩文件
+     */
+    public ArchiveHandleCache(int maxHandles, Loader<T> loader, Closer<T> closer) {
+        this(maxHandles, 0, TimeUnit.MILLISECONDS, loader, closer);
+    }
+
+    /**
+     * @param maxHandles  缓存的句柄数上限
+     * @param idleTimeout 句柄空闲（没有使用者）超过该时间后关闭，0 表示不按空闲时间淘汰
+     * @param unit        idleTimeout 的单位
+     * @param loader      打开压缩文件
+     * @param closer      关闭压缩文件
+     */
+    public ArchiveHandleCache(int maxHandles, long idleTimeout, TimeUnit unit, Loader<T> loader, Closer<T> closer) {
+        if (maxHandles < 1) {
+            throw new IllegalArgumentException("maxHandles must be positive: " + maxHandles);
+        }
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("idleTimeout must not be negative: " + idleTimeout);
+        }
+        this.maxHandles = maxHandles;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.loader = Objects.requireNonNull(loader);
+        this.closer = Objects.requireNonNull(closer);
+        if (idleTimeoutNanos > 0) {
+            long period = Math.max(TimeUnit.MILLISECONDS.toNanos(100), idleTimeoutNanos / 2);
+            this.cleanup = CLEANER.scheduleWithFixedDelay(this::cleanUpQuietly, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            this.cleanup = null;
+        }
+    }
+
+    /**
+     * 获取压缩文件的句柄，使用完毕后必须调用 {@link Handle#close()} 释放
+     *
+     * @param path 压缩文件路径
+     * @return 句柄
+     * @throws IOException 打开压缩文件失败
+     */
+    public Handle<T> acquire(Path path) throws IOException {
+        Path normalized = path.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(normalized, BasicFileAttributes.class);
+        Key key = new Key(normalized, attrs.fileKey(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), attrs.size());
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("handle cache is closed");
+            }
+            Slot<T> slot = slots.get(key);
+            if (slot != null) {
+                slot.refCount++;
+                hits.incrementAndGet();
+                return new Handle<>(this, slot);
+            }
+        }
+
+        //在锁外打开文件，避免阻塞其他压缩文件的访问
+        misses.incrementAndGet();
+        T handle = loader.load(normalized);
+        List<Slot<T>> toClose = new ArrayList<>();
+        Handle<T> result;
+        synchronized (this) {
+            Slot<T> slot = slots.get(key);
+            if (closed) {
+                //打开期间缓存被关闭
+                slot = null;
+                toClose.add(new Slot<>(key, handle));
+            } else if (slot != null) {
+                //其他线程已经打开了同一个文件
+                toClose.add(new Slot<>(key, handle));
+            } else {
+                slot = new Slot<>(key, handle);
+                Key previous = currentKeys.put(normalized, key);
+                if (previous != null) {
+                    //文件已被修改，旧句柄不再可用
+                    evict(previous, toClose);
+                }
+                slots.put(key, slot);
+                evictOverflow(toClose);
+            }
+            if (slot != null) {
+                slot.refCount++;
+                result = new Handle<>(this, slot);
+            } else {
+                result = null;
+            }
+        }
+        closeAll(toClose);
+        if (result == null) {
+            throw new IllegalStateException("handle cache is closed");
+        }
+        return result;
+    }
+
+    /**
+     * @return 命中次数
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return 未命中（重新打开压缩文件）次数
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return 淘汰次数
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return 当前缓存的句柄数
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * 淘汰压缩文件的句柄（文件被原地改写或删除前调用），正在使用的句柄在释放后关闭
+     *
+     * @param path 压缩文件路径
+     * @throws IOException 关闭句柄失败
+     */
+    public void invalidate(Path path) throws IOException {
+        Path normalized = path.toAbsolutePath().normalize();
+        List<Slot<T>> toClose = new ArrayList<>();
+        synchronized (this) {
+            Key key = currentKeys.get(normalized);
+            if (key != null) {
+                evict(key, toClose);
+            }
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * 清空缓存，正在使用的句柄在释放后关闭
+     */
+    public void invalidateAll() throws IOException {
+        List<Slot<T>> toClose = new ArrayList<>();
+        synchronized (this) {
+            for (Key key : new ArrayList<>(slots.keySet())) {
+                evict(key, toClose);
+            }
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * 关闭空闲超时的句柄（后台线程定期调用）
+     *
+     * @throws IOException 关闭句柄失败
+     */
+    public void cleanUp() throws IOException {
+        if (idleTimeoutNanos == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<Slot<T>> toClose = new ArrayList<>();
+        synchronized (this) {
+            for (Slot<T> slot : new ArrayList<>(slots.values())) {
+                if (slot.refCount == 0 && now - slot.lastUsedNanos >= idleTimeoutNanos) {
+                    evict(slot.key, toClose);
+                }
+            }
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * 关闭缓存：关闭全部空闲的句柄，正在使用的句柄在释放后关闭，之后不能再获取句柄
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        if (cleanup != null) {
+            cleanup.cancel(false);
+        }
+        invalidateAll();
+    }
+
+    private void cleanUpQuietly() {
+        try {
+            cleanUp();
+        } catch (IOException | RuntimeException e) {
+            //下次清理时重试，不能让异常终止定时任务
+        }
+    }
+
+    private void release(Slot<T> slot) throws IOException {
+        boolean close;
+        synchronized (this) {
+            slot.refCount--;
+            slot.lastUsedNanos = System.nanoTime();
+            close = slot.evicted && slot.refCount == 0 && !slot.closed;
+            if (close) {
+                slot.closed = true;
+            }
+        }
+        if (close) {
+            closer.close(slot.handle);
+        }
+    }
+
+    private void evictOverflow(List<Slot<T>> toClose) {
+        Iterator<Slot<T>> iterator = slots.values().iterator();
+        while (slots.size() > maxHandles && iterator.hasNext()) {
+            Slot<T> eldest = iterator.next();
+            iterator.remove();
+            retire(eldest, toClose);
+        }
+    }
+
+    private void evict(Key key, List<Slot<T>> toClose) {
+        Slot<T> slot = slots.remove(key);
+        if (slot != null) {
+            retire(slot, toClose);
+        }
+    }
+
+    private void retire(Slot<T> slot, List<Slot<T>> toClose) {
+        currentKeys.remove(slot.key.path, slot.key);
+        evictions.incrementAndGet();
+        slot.evicted = true;
+        if (slot.refCount == 0) {
+            slot.closed = true;
+            toClose.add(slot);
+        }
+    }
+
+    private void closeAll(List<Slot<T>> toClose) throws IOException {
+        IOException failure = null;
+        for (Slot<T> slot : toClose) {
+            try {
+                closer.close(slot.handle);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 缓存中句柄的引用，关闭即释放
+     */
+    public static final class Handle<T> implements Closeable {
+        private final ArchiveHandleCache<T> cache;
+        private final Slot<T> slot;
+        private boolean released;
+
+        private Handle(ArchiveHandleCache<T> cache, Slot<T> slot) {
+            this.cache = cache;
+            this.slot = slot;
+        }
+
+        public T get() {
+            if (released) {
+                throw new IllegalStateException("handle already released");
+            }
+            return slot.handle;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!released) {
+                released = true;
+                cache.release(slot);
+            }
+        }
+    }
+
+    private static final class Slot<T> {
+        final Key key;
+        final T handle;
+        int refCount;
+        long lastUsedNanos = System.nanoTime();
+        boolean evicted;
+        boolean closed;
+
+        Slot(Key key, T handle) {
+            this.key = key;
+            this.handle = handle;
+        }
+    }
+
+    private static final class Key {
+        final Path path;
+        /**
+         * 文件系统的文件标识（如 inode），平台不支持时为 null
+         */
+        final Object fileKey;
+        final long lastModified;
+        final long size;
+
+        Key(Path path, Object fileKey, long lastModified, long size) {
+            this.path = path;
+            this.fileKey = fileKey;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return lastModified == key.lastModified && size == key.size && path.equals(key.path)
+                    && Objects.equals(fileKey, key.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, fileKey, lastModified, size);
+        }
+    }
+}
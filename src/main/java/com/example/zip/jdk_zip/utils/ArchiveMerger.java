@@ -0,0 +1,80 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 不重新压缩地合并 zip 文件
+ * <p>
+ * 条目的压缩数据从源文件原样拷贝到目标文件（{@link java.nio.channels.FileChannel#transferTo}），
+ * 只重新生成文件头和中央目录，加密条目同样保持加密状态。
+ *
+ * @author vincent
+ */
+final class ArchiveMerger {
+
+    private ArchiveMerger() {
+    }
+
+    /**
+     * 合并多个 zip 文件，同名条目只保留第一个
+     * <p>
+     * 先写入同目录下的临时文件再替换目标文件，因此目标文件也可以是源文件之一（追加）。
+     *
+     * @param sources 源压缩文件
+     * @param target  目标压缩文件
+     * @throws IOException IO异常
+     */
+    static void merge(List<Path> sources, Path target) throws IOException {
+        Path targetDir = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(targetDir, target.getFileName().toString(), ".tmp");
+        try {
+            Set<String> names = new HashSet<>();
+            try (ZipArchiveWriter writer = new ZipArchiveWriter(temp)) {
+                for (Path source : sources) {
+                    try (ZipIndex index = ZipIndex.open(source)) {
+                        for (Iterator<ZipIndex.Entry> it = index.entries(); it.hasNext(); ) {
+                            ZipIndex.Entry entry = it.next();
+                            if (names.add(entry.getName())) {
+                                copyRaw(index, entry, writer);
+                            }
+                        }
+                    }
+                }
+                writer.finish();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 把条目的元数据和压缩数据原样拷贝到另一个 zip 文件中
+     *
+     * @param index  源压缩文件索引
+     * @param entry  源条目
+     * @param writer 目标 zip 文件写入器
+     * @throws IOException IO异常
+     */
+    static void copyRaw(ZipIndex index, ZipIndex.Entry entry, ZipArchiveWriter writer) throws IOException {
+        ZipEntryRecord record = new ZipEntryRecord(entry.getName(), entry.getNameBytes())
+                .method(entry.getMethod())
+                .sizes(entry.getCrc(), entry.getCompressedSize(), entry.getSize());
+        record.versionMadeBy = entry.getVersionMadeBy();
+        record.versionNeeded = entry.getVersionNeeded();
+        record.flags = entry.getFlags();
+        record.dosTime = entry.getDosTime();
+        record.extra = entry.getExtra();
+        record.externalAttributes = entry.getExternalAttributes();
+        writer.putEntry(record);
+        writer.transferFrom(index.channel(), entry.getDataOffset(), entry.getCompressedSize());
+        writer.closeEntry();
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.IOUtils;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * 并行校验压缩文件的完整性，不写出任何文件
+ * <p>
+ * 每个条目解压到丢弃的缓冲区中，校验 CRC32 和大小是否与中央目录一致，并核对本地文件头（签名、名称、压缩方式、CRC32 和大小）
+ * 以及数据描述符。提供口令时校验 WinZip AES 条目的口令和 HMAC 认证码（AE-1 还校验 CRC32）。
+ * <p>
+ * 大压缩文件的条目按压缩数据量分成多个任务，与其他压缩文件的任务一起在 parallelism 个线程中执行；
+ * 同时打开的压缩文件数有上限。可以限制每秒读取的压缩数据字节数，避免占满生产环境的磁盘带宽。
+ *
+ * @author vincent
+ */
+final class ArchiveVerifier {
+    /**
+     * 一个任务包含的压缩数据量
+     */
+    private static final long TASK_BYTES = 8L << 20;
+    private static final int TASK_ENTRIES = 1024;
+    private static final int AES_EXTRA_LENGTH = 7;
+
+    private final int parallelism;
+    private final RateLimiter limiter;
+    private final WinZipAes aes;
+
+    /**
+     * @param parallelism       同时校验的任务数
+     * @param maxBytesPerSecond 每秒最多读取的压缩数据字节数，0 表示不限制
+     * @param password          加密条目的口令，为 null 时跳过加密条目
+     */
+    ArchiveVerifier(int parallelism, long maxBytesPerSecond, char[] password) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxBytesPerSecond < 0) {
+            throw new IllegalArgumentException("maxBytesPerSecond must not be negative: " + maxBytesPerSecond);
+        }
+        this.parallelism = parallelism;
+        this.limiter = maxBytesPerSecond == 0 ? null : RateLimiter.create(maxBytesPerSecond);
+        this.aes = password == null ? null : new WinZipAes(password);
+    }
+
+    /**
+     * 校验多个压缩文件，发现的问题记录在报告中，不会中断其他条目和压缩文件的校验
+     *
+     * @param zipPaths 压缩文件路径
+     * @return 校验报告
+     * @throws IOException 等待结果时被中断
+     */
+    VerifyReport verify(List<Path> zipPaths) throws IOException {
+        long start = System.nanoTime();
+        Queue<VerifyReport.Problem> problems = new ConcurrentLinkedQueue<>();
+        Counters counters = new Counters();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat("zip-verify-%d").setDaemon(true).build());
+        Semaphore openArchives = new Semaphore(parallelism * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (Path zipPath : zipPaths) {
+                openArchives.acquire();
+                ZipIndex index;
+                try {
+                    index = ZipIndex.open(zipPath);
+                } catch (IOException e) {
+                    problems.add(new VerifyReport.Problem(zipPath, null, message(e)));
+                    openArchives.release();
+                    continue;
+                }
+                List<List<ZipIndex.Entry>> tasks = split(index);
+                if (tasks.isEmpty()) {
+                    closeQuietly(index);
+                    openArchives.release();
+                    continue;
+                }
+                AtomicInteger remaining = new AtomicInteger(tasks.size());
+                for (List<ZipIndex.Entry> task : tasks) {
+                    futures.add(pool.submit(() -> {
+                        byte[] buffer = CodecPool.SHARED.buffer();
+                        try {
+                            for (ZipIndex.Entry entry : task) {
+                                verify(index, entry, buffer, counters, problems);
+                            }
+                        } finally {
+                            CodecPool.SHARED.release(buffer);
+                            if (remaining.decrementAndGet() == 0) {
+                                closeQuietly(index);
+                                openArchives.release();
+                            }
+                        }
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                ParallelPacker.await(future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while verifying");
+        } finally {
+            pool.shutdownNow();
+        }
+        return new VerifyReport(zipPaths.size(), counters.entries.get(), counters.skipped.get(),
+                counters.compressedBytes.get(), counters.bytes.get(), System.nanoTime() - start, new ArrayList<>(problems));
+    }
+
+    /**
+     * 按压缩数据量把条目分成多个任务
+     */
+    private static List<List<ZipIndex.Entry>> split(ZipIndex index) {
+        List<List<ZipIndex.Entry>> tasks = new ArrayList<>();
+        List<ZipIndex.Entry> task = new ArrayList<>();
+        long taskBytes = 0;
+        for (Iterator<ZipIndex.Entry> it = index.entries(); it.hasNext(); ) {
+            ZipIndex.Entry entry = it.next();
+            task.add(entry);
+            taskBytes += entry.getCompressedSize();
+            if (taskBytes >= TASK_BYTES || task.size() >= TASK_ENTRIES) {
+                tasks.add(task);
+                task = new ArrayList<>();
+                taskBytes = 0;
+            }
+        }
+        if (!task.isEmpty()) {
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private void verify(ZipIndex index, ZipIndex.Entry entry, byte[] buffer, Counters counters,
+                        Queue<VerifyReport.Problem> problems) {
+        try {
+            boolean aesEntry = entry.isEncrypted() && entry.getMethod() == WinZipAes.METHOD_AES;
+            if (entry.isEncrypted() && (aes == null || !aesEntry)) {
+                counters.skipped.incrementAndGet();
+                return;
+            }
+            counters.entries.incrementAndGet();
+            checkLocalHeader(index, entry);
+            InputStream raw = throttle(Channels.newInputStream(entry.openRawChannel()));
+            long[] crcAndSize = aesEntry ? readAes(entry, raw, buffer) : read(entry.getMethod(), entry.getName(), raw, buffer);
+            counters.compressedBytes.addAndGet(entry.getCompressedSize());
+            counters.bytes.addAndGet(crcAndSize[1]);
+            if (crcAndSize[1] != entry.getSize()) {
+                throw new ZipException("size mismatch: central directory " + entry.getSize() + ", actual " + crcAndSize[1]);
+            }
+            //AE-2 的 CRC32 为 0，由认证码代替
+            if (crcAndSize[0] != entry.getCrc() && !(aesEntry && entry.getCrc() == 0)) {
+                throw new ZipException(String.format("CRC32 mismatch: central directory %08x, actual %08x",
+                        entry.getCrc(), crcAndSize[0]));
+            }
+            if ((entry.getFlags() & ZipFormat.FLAG_DATA_DESCRIPTOR) != 0) {
+                checkDataDescriptor(index, entry);
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            problems.add(new VerifyReport.Problem(index.getPath(), entry.getName(), message(e)));
+        }
+    }
+
+    /**
+     * 解压到丢弃的缓冲区
+     *
+     * @return CRC32 和解压后的大小
+     */
+    private static long[] read(int method, String name, InputStream raw, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = ZipCodecs.decompress(method, name, raw)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        return new long[]{crc.getValue(), size};
+    }
+
+    /**
+     * 校验口令和认证码后解压 WinZip AES 条目
+     */
+    private long[] readAes(ZipIndex.Entry entry, InputStream raw, byte[] buffer) throws IOException, GeneralSecurityException {
+        byte[] extra = aesExtra(entry);
+        int strength = extra[4] & 0xff;
+        int actualMethod = (extra[5] & 0xff) | (extra[6] & 0xff) << 8;
+        int saltLength = WinZipAes.saltLength(strength);
+        long cipherLength = entry.getCompressedSize() - saltLength - WinZipAes.VERIFIER_LENGTH - WinZipAes.MAC_LENGTH;
+        if (cipherLength < 0) {
+            throw new ZipException("compressed size too small for AES entry: " + entry.getCompressedSize());
+        }
+        try (InputStream in = raw) {
+            byte[] salt = IOUtils.readFully(in, saltLength);
+            byte[] verifier = IOUtils.readFully(in, WinZipAes.VERIFIER_LENGTH);
+            WinZipAes.EntryDecryptor decryptor = aes.decryptor(strength, salt, verifier);
+            DecryptingInputStream plain = new DecryptingInputStream(in, decryptor, cipherLength);
+            long[] crcAndSize = read(actualMethod, entry.getName(), plain, buffer);
+            //解压结束后可能还有未读取的密文（例如压缩数据之后的填充），也要计入认证码
+            plain.drain(buffer);
+            if (!decryptor.verify(IOUtils.readFully(in, WinZipAes.MAC_LENGTH))) {
+                throw new ZipException("AES authentication code mismatch");
+            }
+            return crcAndSize;
+        }
+    }
+
+    /**
+     * @return AES 扩展字段的数据部分（厂商版本、'AE'、密钥强度、实际压缩方式）
+     */
+    private static byte[] aesExtra(ZipIndex.Entry entry) throws ZipException {
+        byte[] extra = entry.getExtra();
+        ByteBuffer buffer = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN);
+        int pos = 0;
+        while (pos + 4 <= extra.length) {
+            int id = buffer.getShort(pos) & 0xffff;
+            int length = buffer.getShort(pos + 2) & 0xffff;
+            if (id == WinZipAes.EXTRA_ID && length >= AES_EXTRA_LENGTH && pos + 4 + length <= extra.length) {
+                return Arrays.copyOfRange(extra, pos + 4, pos + 4 + AES_EXTRA_LENGTH);
+            }
+            pos += 4 + length;
+        }
+        throw new ZipException("missing AES extra field");
+    }
+
+    /**
+     * 核对本地文件头与中央目录是否一致
+     */
+    private static void checkLocalHeader(ZipIndex index, ZipIndex.Entry entry) throws IOException {
+        ByteBuffer header = read(index.channel(), entry.getLocalHeaderOffset(), ZipFormat.LOCAL_HEADER_LENGTH);
+        if (header.getInt(0) != ZipFormat.LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("invalid local header signature at " + entry.getLocalHeaderOffset());
+        }
+        int method = header.getShort(8) & 0xffff;
+        if (method != entry.getMethod()) {
+            throw new ZipException("local header method " + method + " differs from central directory " + entry.getMethod());
+        }
+        int nameLength = header.getShort(26) & 0xffff;
+        ByteBuffer name = read(index.channel(), entry.getLocalHeaderOffset() + ZipFormat.LOCAL_HEADER_LENGTH, nameLength);
+        if (!name.equals(ByteBuffer.wrap(entry.getNameBytes()))) {
+            throw new ZipException("local header name differs from central directory");
+        }
+        if ((header.getShort(6) & ZipFormat.FLAG_DATA_DESCRIPTOR) != 0) {
+            return;
+        }
+        long crc = header.getInt(14) & 0xffffffffL;
+        long compressedSize = header.getInt(18) & 0xffffffffL;
+        long size = header.getInt(22) & 0xffffffffL;
+        if (crc != entry.getCrc()) {
+            throw new ZipException(String.format("local header CRC32 %08x differs from central directory %08x", crc, entry.getCrc()));
+        }
+        //大小超过 32 位时写在 ZIP64 扩展字段中，这里只比较 32 位的值
+        if (compressedSize != ZipFormat.ZIP64_MAGIC && compressedSize != entry.getCompressedSize()
+                || size != ZipFormat.ZIP64_MAGIC && size != entry.getSize()) {
+            throw new ZipException("local header sizes " + compressedSize + "/" + size + " differ from central directory "
+                    + entry.getCompressedSize() + "/" + entry.getSize());
+        }
+    }
+
+    /**
+     * 核对数据描述符与中央目录是否一致
+     */
+    private static void checkDataDescriptor(ZipIndex index, ZipIndex.Entry entry) throws IOException {
+        long position = entry.getDataOffset() + entry.getCompressedSize();
+        ByteBuffer descriptor = read(index.channel(), position, ZipFormat.ZIP64_DATA_DESCRIPTOR_LENGTH);
+        int pos = descriptor.getInt(0) == ZipFormat.DATA_DESCRIPTOR_SIGNATURE ? 4 : 0;
+        long crc = descriptor.getInt(pos) & 0xffffffffL;
+        boolean zip64 = entry.getCompressedSize() >= ZipFormat.ZIP64_MAGIC || entry.getSize() >= ZipFormat.ZIP64_MAGIC;
+        long compressedSize = zip64 ? descriptor.getLong(pos + 4) : descriptor.getInt(pos + 4) & 0xffffffffL;
+        long size = zip64 ? descriptor.getLong(pos + 12) : descriptor.getInt(pos + 8) & 0xffffffffL;
+        if (crc != entry.getCrc() || compressedSize != entry.getCompressedSize() || size != entry.getSize()) {
+            throw new ZipException(String.format("data descriptor %08x %d/%d differs from central directory %08x %d/%d",
+                    crc, compressedSize, size, entry.getCrc(), entry.getCompressedSize(), entry.getSize()));
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("unexpected end of archive at " + (position + buffer.position()));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private InputStream throttle(InputStream in) {
+        if (limiter == null) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    limiter.acquire(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    private static String message(Exception e) {
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    private static void closeQuietly(ZipIndex index) {
+        try {
+            index.close();
+        } catch (IOException e) {
+            //只读打开，关闭失败不影响结果
+        }
+    }
+
+    private static final class Counters {
+        final AtomicLong entries = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong compressedBytes = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+    }
+
+    /**
+     * 读取固定长度的密文并解密，不关闭底层的输入流（其后还有认证码）
+     */
+    private static final class DecryptingInputStream extends InputStream {
+        private final InputStream in;
+        private final WinZipAes.EntryDecryptor decryptor;
+        private long remaining;
+
+        DecryptingInputStream(InputStream in, WinZipAes.EntryDecryptor decryptor, long length) {
+            this.in = in;
+            this.decryptor = decryptor;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("unexpected end of AES entry");
+            }
+            remaining -= n;
+            try {
+                decryptor.decrypt(b, off, n);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+            return n;
+        }
+
+        void drain(byte[] buffer) throws IOException {
+            while (read(buffer, 0, buffer.length) != -1) {
+                //丢弃
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
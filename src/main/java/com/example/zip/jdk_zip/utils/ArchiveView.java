@@ -0,0 +1,442 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压缩文件的只读视图：列出目录、查看条目属性、按偏移读取条目内容，不解压到磁盘
+ * <p>
+ * 打开时只读取中央目录（{@link ZipIndex}），由条目名称推导出目录树（包括没有单独目录条目的上级目录）；
+ * 条目内容在读取时才解压。STORED 条目按偏移直接读取压缩文件；压缩的条目按 {@value #CHUNK_SIZE} 字节分块解压，
+ * 解压后的块保存在有大小上限的 LRU 缓存中，顺序读取时复用同一个解压流（不从头重新解压），
+ * 在大条目中间随机读取时，已经解压过的块直接从缓存读取。
+ * <p>
+ * 路径使用 '/' 分隔，开头和结尾的 '/' 被忽略，"" 表示根目录。不支持加密的条目。线程安全。
+ *
+ * @author vincent
+ */
+public final class ArchiveView implements Closeable {
+    /**
+     * 解压缓存的块大小
+     */
+    public static final int CHUNK_SIZE = 256 * 1024;
+    /**
+     * 保留的解压流个数上限（每个解压流占用一个 Inflater）
+     */
+    private static final int MAX_CURSORS = 16;
+
+    private final ZipIndex index;
+    /**
+     * 目录 → 直接子项的名称
+     */
+    private final Map<String, SortedSet<String>> directories = new HashMap<>();
+    /**
+     * 解压后的块，键为 条目名称 + '\0' + 块序号；不缓存时为 null
+     */
+    private final Cache<String, byte[]> chunks;
+    /**
+     * 条目名称 → 停在块边界上的解压流，顺序读取下一个块时继续使用
+     */
+    private final ConcurrentMap<String, Cursor> cursors = new ConcurrentHashMap<>();
+    private final AtomicLong chunkHits = new AtomicLong();
+    private final AtomicLong chunkMisses = new AtomicLong();
+
+    private ArchiveView(ZipIndex index, long chunkCacheBytes) {
+        this.index = index;
+        this.chunks = chunkCacheBytes == 0 ? null : CacheBuilder.newBuilder()
+                .maximumWeight(chunkCacheBytes)
+                .<String, byte[]>weigher((key, chunk) -> chunk.length)
+                .build();
+        directories.put("", new TreeSet<>());
+        for (Iterator<ZipIndex.Entry> it = index.entries(); it.hasNext(); ) {
+            String name = normalize(it.next().getName());
+            if (name.isEmpty()) {
+                continue;
+            }
+            //把每一级上级目录加入目录树
+            int slash;
+            String child = name;
+            while ((slash = child.lastIndexOf('/')) >= 0) {
+                String parent = child.substring(0, slash);
+                directories.computeIfAbsent(parent, k -> new TreeSet<>()).add(child.substring(slash + 1));
+                child = parent;
+            }
+            directories.get("").add(child);
+        }
+        for (Iterator<ZipIndex.Entry> it = index.entries(); it.hasNext(); ) {
+            ZipIndex.Entry entry = it.next();
+            if (entry.isDirectory()) {
+                directories.computeIfAbsent(normalize(entry.getName()), k -> new TreeSet<>());
+            }
+        }
+    }
+
+    /**
+     * 打开压缩文件的视图，不缓存解压后的块
+     *
+     * @param zipPath 压缩文件路径
+     * @return 视图
+     * @throws IOException IO异常
+     */
+    public static ArchiveView open(Path zipPath) throws IOException {
+        return open(zipPath, 0);
+    }
+
+    /**
+     * 打开压缩文件的视图
+     *
+     * @param zipPath         压缩文件路径
+     * @param chunkCacheBytes 解压后的块的缓存大小上限，0 表示不缓存
+     * @return 视图
+     * @throws IOException IO异常
+     */
+    public static ArchiveView open(Path zipPath, long chunkCacheBytes) throws IOException {
+        Objects.requireNonNull(zipPath, "zipPath");
+        if (chunkCacheBytes < 0) {
+            throw new IllegalArgumentException("chunkCacheBytes must not be negative: " + chunkCacheBytes);
+        }
+        ZipIndex index = ZipIndex.open(zipPath);
+        try {
+            return new ArchiveView(index, chunkCacheBytes);
+        } catch (RuntimeException e) {
+            index.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return 压缩文件路径
+     */
+    public Path getPath() {
+        return index.getPath();
+    }
+
+    /**
+     * 列出目录的直接子项
+     *
+     * @param dir 目录路径
+     * @return 子项名称（不含上级目录），按名称排序
+     * @throws NoSuchFileException   目录不存在
+     * @throws NotDirectoryException 路径是文件
+     */
+    public List<String> list(String dir) throws IOException {
+        String path = normalize(dir);
+        SortedSet<String> children = directories.get(path);
+        if (children == null) {
+            if (index.contains(path)) {
+                throw new NotDirectoryException(pathString(path));
+            }
+            throw new NoSuchFileException(pathString(path));
+        }
+        return Collections.unmodifiableList(new ArrayList<>(children));
+    }
+
+    /**
+     * @param path 文件或目录路径
+     * @return 是否存在
+     */
+    public boolean exists(String path) {
+        String normalized = normalize(path);
+        return directories.containsKey(normalized) || index.contains(normalized);
+    }
+
+    /**
+     * 查看文件或目录的属性
+     *
+     * @param path 文件或目录路径
+     * @return 属性
+     * @throws NoSuchFileException 路径不存在
+     */
+    public Stat stat(String path) throws IOException {
+        String normalized = normalize(path);
+        ZipIndex.Entry entry = index.getEntry(normalized);
+        if (entry != null) {
+            return new Stat(normalized, false, entry.getSize(), entry.getCompressedSize(),
+                    ZipFormat.dosToJavaTime(entry.getDosTime()), entry.getMethod(), entry.getCrc());
+        }
+        if (directories.containsKey(normalized)) {
+            //目录没有单独的条目时修改时间为 0
+            ZipIndex.Entry dirEntry = normalized.isEmpty() ? null : index.getEntry(normalized + '/');
+            return new Stat(normalized, true, 0, 0,
+                    dirEntry == null ? 0 : ZipFormat.dosToJavaTime(dirEntry.getDosTime()), ZipFormat.METHOD_STORED, 0);
+        }
+        throw new NoSuchFileException(pathString(normalized));
+    }
+
+    /**
+     * 从头读取文件的全部内容（边读边解压，不经过块缓存）
+     *
+     * @param path 文件路径
+     * @return 解压后的数据流
+     * @throws IOException 文件不存在、是目录、已加密或压缩方式不支持
+     */
+    public InputStream open(String path) throws IOException {
+        return file(normalize(path)).open();
+    }
+
+    /**
+     * 从文件的指定偏移处读取内容
+     * <p>
+     * 与 {@link java.nio.channels.FileChannel#read(ByteBuffer, long)} 一样，一次读取的字节数可能少于 len
+     * （压缩的条目最多读到当前块的结尾）。
+     *
+     * @param path     文件路径
+     * @param position 解压后的偏移
+     * @param b        缓冲区
+     * @param off      缓冲区中的起始位置
+     * @param len      最多读取的字节数
+     * @return 读取的字节数，position 不小于文件大小时返回 -1
+     * @throws IOException 文件不存在、是目录、已加密或压缩方式不支持
+     */
+    public int read(String path, long position, byte[] b, int off, int len) throws IOException {
+        Objects.requireNonNull(b, "b");
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + b.length);
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("position must not be negative: " + position);
+        }
+        String name = normalize(path);
+        ZipIndex.Entry entry = file(name);
+        if (position >= entry.getSize()) {
+            return -1;
+        }
+        int n = (int) Math.min(len, entry.getSize() - position);
+        if (n == 0) {
+            return 0;
+        }
+        if (entry.getMethod() == ZipFormat.METHOD_STORED && !entry.isEncrypted()) {
+            ByteBuffer dst = ByteBuffer.wrap(b, off, n);
+            long dataOffset = entry.getDataOffset() + position;
+            while (dst.hasRemaining()) {
+                if (index.channel().read(dst, dataOffset + dst.position() - off) < 0) {
+                    break;
+                }
+            }
+            return dst.position() - off;
+        }
+        long chunkIndex = position / CHUNK_SIZE;
+        int chunkOffset = (int) (position % CHUNK_SIZE);
+        byte[] chunk = chunk(entry, name, chunkIndex);
+        n = Math.min(n, chunk.length - chunkOffset);
+        System.arraycopy(chunk, chunkOffset, b, off, n);
+        return n;
+    }
+
+    /**
+     * @return 从缓存中读到解压后的块的次数
+     */
+    public long getChunkHits() {
+        return chunkHits.get();
+    }
+
+    /**
+     * @return 需要解压的块的次数
+     */
+    public long getChunkMisses() {
+        return chunkMisses.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Iterator<Cursor> it = cursors.values().iterator(); it.hasNext(); ) {
+            it.next().in.close();
+            it.remove();
+        }
+        if (chunks != null) {
+            chunks.invalidateAll();
+        }
+        index.close();
+    }
+
+    /**
+     * 读取压缩条目中解压后的一个块：优先从缓存读取，否则从停在该块之前的解压流继续解压（没有时从头解压），
+     * 途经的块都放入缓存
+     */
+    private byte[] chunk(ZipIndex.Entry entry, String name, long chunkIndex) throws IOException {
+        if (chunks != null) {
+            byte[] cached = chunks.getIfPresent(chunkKey(name, chunkIndex));
+            if (cached != null) {
+                chunkHits.incrementAndGet();
+                return cached;
+            }
+        }
+        chunkMisses.incrementAndGet();
+        long start = chunkIndex * CHUNK_SIZE;
+        Cursor cursor = cursors.remove(name);
+        if (cursor != null && cursor.position > start) {
+            cursor.in.close();
+            cursor = null;
+        }
+        if (cursor == null) {
+            cursor = new Cursor(entry.open());
+        }
+        try {
+            if (chunks == null) {
+                IOUtils.skipFully(cursor.in, start - cursor.position);
+                cursor.position = start;
+            }
+            byte[] chunk;
+            do {
+                long current = cursor.position / CHUNK_SIZE;
+                chunk = IOUtils.readFully(cursor.in, (int) Math.min(CHUNK_SIZE, entry.getSize() - cursor.position));
+                cursor.position += chunk.length;
+                if (chunks != null) {
+                    chunks.put(chunkKey(name, current), chunk);
+                }
+            } while (cursor.position <= start);
+            release(name, cursor, entry.getSize());
+            return chunk;
+        } catch (IOException | RuntimeException e) {
+            cursor.in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 条目还没有读完时保留解压流（超出上限或已有其他线程的解压流时关闭）
+     */
+    private void release(String name, Cursor cursor, long size) throws IOException {
+        if (cursor.position < size && cursors.size() < MAX_CURSORS && cursors.putIfAbsent(name, cursor) == null) {
+            return;
+        }
+        cursor.in.close();
+    }
+
+    private ZipIndex.Entry file(String name) throws IOException {
+        ZipIndex.Entry entry = index.getEntry(name);
+        if (entry == null) {
+            if (directories.containsKey(name)) {
+                throw new FileSystemException(pathString(name), null, "is a directory");
+            }
+            throw new NoSuchFileException(pathString(name));
+        }
+        return entry;
+    }
+
+    private String pathString(String name) {
+        return index.getPath() + "!/" + name;
+    }
+
+    private static String chunkKey(String name, long chunkIndex) {
+        return name + '\0' + chunkIndex;
+    }
+
+    private static String normalize(String path) {
+        Objects.requireNonNull(path, "path");
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    /**
+     * 停在块边界上的解压流
+     */
+    private static final class Cursor {
+        final InputStream in;
+        /**
+         * 下一个字节在条目中的偏移
+         */
+        long position;
+
+        Cursor(InputStream in) {
+            this.in = in;
+        }
+    }
+
+    /**
+     * 文件或目录的属性
+     */
+    public static final class Stat {
+        private final String path;
+        private final boolean directory;
+        private final long size;
+        private final long compressedSize;
+        private final long lastModifiedTime;
+        private final int method;
+        private final long crc;
+
+        Stat(String path, boolean directory, long size, long compressedSize, long lastModifiedTime, int method, long crc) {
+            this.path = path;
+            this.directory = directory;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.lastModifiedTime = lastModifiedTime;
+            this.method = method;
+            this.crc = crc;
+        }
+
+        /**
+         * @return 路径（开头和结尾没有 '/'）
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * @return 解压后的大小，目录为 0
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * @return 最后修改时间（毫秒时间戳，精度 2 秒）
+         */
+        public long getLastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        /**
+         * @return 压缩方式（参见 {@link ZipCodec#method()}），目录为 STORED（0）
+         */
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        @Override
+        public String toString() {
+            return (directory ? "dir " : "file ") + path + " (" + size + " bytes)";
+        }
+    }
+}
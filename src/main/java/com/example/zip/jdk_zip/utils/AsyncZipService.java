@@ -0,0 +1,247 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步压缩 / 解压缩服务
+ * <p>
+ * 每个请求返回 {@link CompletableFuture}，在构造时给定的执行器中运行，调用线程不会被阻塞。
+ * 通过 {@link #create()} 创建时，JDK 21 及以上使用虚拟线程（每个任务一个虚拟线程，上千个并发任务也不占用平台线程），
+ * 更早的 JDK 使用有界线程池和有界队列，队列满时返回的 future 以 {@link RejectedExecutionException} 失败。
+ * <p>
+ * 取消：调用返回的 future 的 {@link CompletableFuture#cancel(boolean)}，任务在处理下一个数据块（解压缩）
+ * 或下一个文件（压缩）前检查到取消后停止。取消不中断执行线程，因为中断会关闭缓存中共用的中央目录索引的文件通道。
+ * 压缩的目标文件先写入同目录的临时文件，取消或失败时不会留下不完整的压缩文件；解压出的单个条目取消时会被删除，
+ * 解压整个压缩文件时已经写出的条目会保留。
+ *
+ * @author vincent
+ */
+public final class AsyncZipService implements Closeable {
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * @param executor 执行任务的执行器（由调用方负责关闭）
+     */
+    public AsyncZipService(Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.ownedExecutor = null;
+    }
+
+    private AsyncZipService(ExecutorService ownedExecutor) {
+        this.executor = ownedExecutor;
+        this.ownedExecutor = ownedExecutor;
+    }
+
+    /**
+     * @return 使用虚拟线程（JDK 21+）或默认大小的有界线程池（可用处理器数 * 2）的服务，关闭服务时关闭执行器
+     */
+    public static AsyncZipService create() {
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        if (virtualThreads != null) {
+            return new AsyncZipService(virtualThreads);
+        }
+        return create(Runtime.getRuntime().availableProcessors() * 2, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param threads       线程数
+     * @param queueCapacity 等待执行的任务数上限
+     * @return 使用有界线程池的服务，关闭服务时关闭线程池
+     */
+    public static AsyncZipService create(int threads, int queueCapacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("zip-async-%d").setDaemon(true).build());
+        pool.allowCoreThreadTimeOut(true);
+        return new AsyncZipService(pool);
+    }
+
+    /**
+     * 压缩整个文件目录，生成与目录同名的 zip 文件（与 {@link ZipUtils#packDir(String)} 相同）
+     *
+     * @param dirPath  需要压缩的文件目录路径
+     * @param listener 进度回调（每个文件压缩完成后调用）
+     * @return 生成的压缩文件路径
+     */
+    public CompletableFuture<Path> packDir(String dirPath, ProgressListener listener) {
+        return packDir(dirPath, ZipCodecs.DEFLATE, listener);
+    }
+
+    /**
+     * 使用指定的压缩方式压缩整个文件目录（与 {@link ZipUtils#packDir(String, ZipCodec)} 相同）
+     *
+     * @param dirPath  需要压缩的文件目录路径
+     * @param codec    可压缩文件使用的压缩方式
+     * @param listener 进度回调（每个文件压缩完成后调用）
+     * @return 生成的压缩文件路径
+     */
+    public CompletableFuture<Path> packDir(String dirPath, ZipCodec codec, ProgressListener listener) {
+        Objects.requireNonNull(dirPath, "dirPath");
+        Objects.requireNonNull(codec, "codec");
+        Objects.requireNonNull(listener, "listener");
+        return submit("packDir", listener, (progress, metrics) ->
+                ZipUtils.packDir(ZipUtils.requireDirectory(dirPath), codec, progress, metrics));
+    }
+
+    public CompletableFuture<Path> packDir(String dirPath) {
+        return packDir(dirPath, ProgressListener.NONE);
+    }
+
+    /**
+     * 解压缩 zip 文件到所在目录（与 {@link ZipUtils#unpackFile(String)} 相同）
+     *
+     * @param filePath 需要解压缩的文件路径
+     * @param listener 进度回调（每解压一个数据块调用一次）
+     * @return 统计信息
+     */
+    public CompletableFuture<UnpackStats> unpackFile(String filePath, ProgressListener listener) {
+        return unpackFile(filePath, Durability.NONE, listener);
+    }
+
+    /**
+     * 解压缩 zip 文件到所在目录，按指定方式持久化解压出的文件（与 {@link ZipUtils#unpackFile(String, int, Durability)} 相同）
+     * <p>
+     * 开始写出之前先校验全部条目的路径，任何一个条目指向目录之外时不写出任何文件。
+     *
+     * @param filePath   需要解压缩的文件路径
+     * @param durability 持久化方式
+     * @param listener   进度回调（每解压一个数据块调用一次）
+     * @return 统计信息
+     */
+    public CompletableFuture<UnpackStats> unpackFile(String filePath, Durability durability, ProgressListener listener) {
+        Objects.requireNonNull(filePath, "filePath");
+        Objects.requireNonNull(durability, "durability");
+        Objects.requireNonNull(listener, "listener");
+        return submit("unpackFile", listener, (progress, metrics) -> {
+            Path sourceFilePath = ZipUtils.requireFile(filePath);
+            //任务已经在执行器的线程中运行，不再另开线程
+            UnpackStats stats = new ParallelUnpacker(1).unpack(sourceFilePath, sourceFilePath.toAbsolutePath().getParent(),
+                    durability, progress);
+            metrics.add(stats, Files.size(sourceFilePath));
+            return stats;
+        });
+    }
+
+    public CompletableFuture<UnpackStats> unpackFile(String filePath) {
+        return unpackFile(filePath, ProgressListener.NONE);
+    }
+
+    /**
+     * 解压缩 zip 文件中的单个条目（与 {@link ZipUtils#openEntry(String, String)} 相同）
+     *
+     * @param filePath    压缩文件路径
+     * @param entryName   条目名称
+     * @param desFilePath 解压到的文件路径（已存在时覆盖）
+     * @param listener    进度回调（每解压一个数据块调用一次）
+     * @return 解压出的文件路径
+     */
+    public CompletableFuture<Path> extract(String filePath, String entryName, String desFilePath, ProgressListener listener) {
+        Objects.requireNonNull(filePath, "filePath");
+        Objects.requireNonNull(entryName, "entryName");
+        Objects.requireNonNull(desFilePath, "desFilePath");
+        Objects.requireNonNull(listener, "listener");
+        return submit("extract", listener, (progress, metrics) -> {
+            Path sourceFilePath = ZipUtils.requireFile(filePath);
+            Path target = Paths.get(desFilePath).toAbsolutePath().normalize();
+            try (ZipIndex index = ZipIndex.open(sourceFilePath)) {
+                ZipIndex.Entry entry = index.getEntry(entryName);
+                if (entry == null) {
+                    throw new NoSuchFileException(filePath + "!/" + entryName);
+                }
+                progress.start(entry.getSize());
+                ExtractionWriter output = new ExtractionWriter(target.getParent(), Durability.NONE, progress);
+                byte[] buffer = CodecPool.SHARED.buffer();
+                boolean completed = false;
+                try (InputStream in = index.openEntry(entryName);
+                     ExtractionWriter.Output out = output.open(target, entry.getSize())) {
+                    out.copy(in, buffer);
+                    completed = true;
+                } finally {
+                    CodecPool.SHARED.release(buffer);
+                    if (!completed) {
+                        Files.deleteIfExists(target);
+                    }
+                }
+                metrics.add(1, entry.getCompressedSize(), entry.getSize());
+            }
+            return target;
+        });
+    }
+
+    public CompletableFuture<Path> extract(String filePath, String entryName, String desFilePath) {
+        return extract(filePath, entryName, desFilePath, ProgressListener.NONE);
+    }
+
+    /**
+     * 关闭由 {@link #create()} 创建的执行器，已提交的任务继续执行
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(String operation, ProgressListener listener, Task<T> task) {
+        CompletableFuture<T> job = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (job.isDone()) {
+                    //执行前已被取消
+                    return;
+                }
+                try {
+                    JobProgress progress = new JobProgress(job::isDone, listener);
+                    job.complete(ZipMetrics.record(ZipMetrics.ENGINE_JDK, "async." + operation, metrics -> task.call(progress, metrics)));
+                } catch (Throwable e) {
+                    job.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            job.completeExceptionally(e);
+        }
+        return job;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，保持 Java 8 编译
+     *
+     * @return 当前 JDK 不支持虚拟线程时返回 null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            //JDK 19/20 未开启预览特性时以 InvocationTargetException 包装 UnsupportedOperationException
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task<T> {
+        T call(JobProgress progress, ZipMetrics.Operation metrics) throws IOException;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量解压缩的结果，单个压缩文件失败不影响其他压缩文件
+ *
+ * @author vincent
+ */
+public final class BatchUnpackResult {
+    private final List<Path> succeeded;
+    private final Map<Path, Exception> failed;
+    private final UnpackStats stats;
+
+    BatchUnpackResult(List<Path> succeeded, Map<Path, Exception> failed, UnpackStats stats) {
+        this.succeeded = Collections.unmodifiableList(succeeded);
+        this.failed = Collections.unmodifiableMap(failed);
+        this.stats = stats;
+    }
+
+    /**
+     * @return 成功解压的压缩文件
+     */
+    public List<Path> getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return 解压失败的压缩文件及失败原因
+     */
+    public Map<Path, Exception> getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return 成功解压部分的统计信息（耗时为整个批次的耗时）
+     */
+    public UnpackStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchUnpackResult{succeeded=" + succeeded.size() + ", failed=" + failed.keySet() + ", stats=" + stats + '}';
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * 通过 {@link PayloadCache} 复用压缩数据的单线程条目写入器
+ * <p>
+ * 先读取一遍文件，同时计算 SHA-256 和 CRC32：缓存命中时以已知的大小和 CRC32 写入条目，
+ * 再通过 {@link FileChannel#transferTo} 直接拷贝缓存的压缩数据；未命中时把文件压缩到缓存目录的临时文件中，
+ * 拷贝到 zip 文件后加入缓存。不压缩（STORED）的文件不经过缓存。
+ * <p>
+ * 给出级别选择器的标识时，缓存键为内容加选择器标识，在选择级别之前查找缓存：命中时不再运行选择器（采样选择器需要多次试压缩），
+ * 选择的级别作为缓存数据的第一个字节保存；选择不压缩时只缓存这一个字节。
+ *
+ * @author vincent
+ */
+final class CachedEntryPacker implements Closeable {
+    private final PayloadCache cache;
+    private final LevelSelector levels;
+    private final String selectorKey;
+    private final PackListener listener;
+    private final byte[] input = CodecPool.SHARED.buffer();
+    private final byte[] output = CodecPool.SHARED.buffer();
+
+    CachedEntryPacker(PayloadCache cache, LevelSelector levels) {
+        this(cache, levels, null, PackListener.NONE);
+    }
+
+    /**
+     * @param cache      压缩数据缓存
+     * @param levels     级别选择器
+     * @param selectorId 级别选择器的标识（标识相同的选择器对相同的内容总是选择相同的级别），为 null 时按选择的级别查找缓存
+     * @param listener   每写完一个条目的回调
+     */
+    CachedEntryPacker(PayloadCache cache, LevelSelector levels, String selectorId, PackListener listener) {
+        this.cache = Objects.requireNonNull(cache, "cache");
+        this.levels = Objects.requireNonNull(levels, "levels");
+        this.selectorKey = selectorId == null ? null
+                : Hashing.sha256().hashString(selectorId, StandardCharsets.UTF_8).toString().substring(0, 16);
+        this.listener = Objects.requireNonNull(listener, "listener");
+    }
+
+    /**
+     * 把文件写入为 zip 文件中的一个条目
+     *
+     * @param file   源文件
+     * @param name   条目名称
+     * @param writer zip 文件写入器
+     * @throws IOException IO异常
+     */
+    void pack(Path file, String name, ZipArchiveWriter writer) throws IOException {
+        long start = System.nanoTime();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        ZipEntryRecord entry = new ZipEntryRecord(name).lastModified(attributes.lastModifiedTime().toMillis());
+        long size = attributes.size();
+        int level;
+        if (selectorKey == null) {
+            level = levels.level(file);
+            if (level == Deflater.NO_COMPRESSION) {
+                store(file, entry.sizes(EntryPacker.crc(file, input), size, size), writer);
+            } else {
+                CRC32 crc = new CRC32();
+                String sha256 = digest(file, crc);
+                packDeflated(file, entry, crc.getValue(), size, key(sha256, level), level, 0, writer);
+            }
+        } else {
+            CRC32 crc = new CRC32();
+            String key = digest(file, crc) + "-p" + selectorKey;
+            level = packSelected(file, entry.sizes(crc.getValue(), 0, size), key, writer);
+        }
+        listener.onEntry(file, level, size, entry.compressedSize, System.nanoTime() - start);
+    }
+
+    /**
+     * 按内容和选择器标识查找缓存，未命中时才选择级别
+     *
+     * @return 使用的压缩级别
+     */
+    private int packSelected(Path file, ZipEntryRecord entry, String key, ZipArchiveWriter writer) throws IOException {
+        try (FileChannel cached = cache.open(key, entry.size)) {
+            if (cached != null) {
+                int level = readLevel(cached);
+                if (level == Deflater.NO_COMPRESSION) {
+                    store(file, entry.sizes(entry.crc, entry.size, entry.size), writer);
+                } else {
+                    entry.method(ZipFormat.METHOD_DEFLATED).sizes(entry.crc, cached.size() - 1, entry.size);
+                    write(entry, cached, 1, writer);
+                }
+                return level;
+            }
+        }
+        int level = levels.level(file);
+        if (level != Deflater.NO_COMPRESSION) {
+            packDeflated(file, entry, entry.crc, entry.size, key, level, 1, writer);
+            return level;
+        }
+        store(file, entry.sizes(entry.crc, entry.size, entry.size), writer);
+        Path temp = cache.newTempFile();
+        try {
+            Files.write(temp, new byte[]{(byte) level});
+            cache.put(key, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return level;
+    }
+
+    /**
+     * 压缩到缓存目录的临时文件，写入条目后加入缓存
+     *
+     * @param header 压缩数据之前的级别字节数（0 或 1）
+     */
+    private void packDeflated(Path file, ZipEntryRecord entry, long crc, long size, String key, int level, int header,
+                              ZipArchiveWriter writer) throws IOException {
+        entry.method(ZipFormat.METHOD_DEFLATED);
+        if (header == 0) {
+            try (FileChannel cached = cache.open(key, size)) {
+                if (cached != null) {
+                    write(entry.sizes(crc, cached.size(), size), cached, 0, writer);
+                    return;
+                }
+            }
+        }
+
+        Path temp = cache.newTempFile();
+        try {
+            long deflatedCrc = deflate(file, level, temp, header);
+            if (deflatedCrc != crc) {
+                throw new ZipException("file changed while packing: " + file);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ)) {
+                write(entry.sizes(crc, channel.size() - header, size), channel, header, writer);
+            }
+            cache.put(key, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param sha256 文件内容的 SHA-256（十六进制）
+     * @param level  压缩级别
+     * @return 缓存键：内容、压缩方式和级别都相同时压缩数据才相同
+     */
+    static String key(String sha256, int level) {
+        int effectiveLevel = level == Deflater.DEFAULT_COMPRESSION ? 6 : level;
+        return sha256 + '-' + ZipFormat.METHOD_DEFLATED + '-' + effectiveLevel;
+    }
+
+    /**
+     * 读取一遍文件，计算 CRC32 和 SHA-256
+     *
+     * @return 文件内容的 SHA-256（十六进制）
+     */
+    private String digest(Path file, CRC32 crc) throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(input)) != -1) {
+                crc.update(input, 0, n);
+                hasher.putBytes(input, 0, n);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * 把文件压缩（raw DEFLATE）到目标文件
+     *
+     * @param header 大于 0 时先写入一个字节的压缩级别
+     * @return 压缩时读到的内容的 CRC32
+     */
+    private long deflate(Path file, int level, Path target, int header) throws IOException {
+        Deflater deflater = CodecPool.SHARED.deflater(level);
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream out = Files.newOutputStream(target)) {
+            if (header > 0) {
+                out.write(level);
+            }
+            int n;
+            while ((n = in.read(input)) != -1) {
+                crc.update(input, 0, n);
+                deflater.setInput(input, 0, n);
+                while (!deflater.needsInput()) {
+                    out.write(output, 0, deflater.deflate(output));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(output, 0, deflater.deflate(output));
+            }
+        } finally {
+            CodecPool.SHARED.release(deflater, level);
+        }
+        return crc.getValue();
+    }
+
+    private static void store(Path file, ZipEntryRecord entry, ZipArchiveWriter writer) throws IOException {
+        entry.method(ZipFormat.METHOD_STORED);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            write(entry, channel, 0, writer);
+        }
+    }
+
+    private static int readLevel(FileChannel cached) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        if (cached.read(buffer, 0) != 1) {
+            throw new ZipException("empty cached payload");
+        }
+        return buffer.get(0);
+    }
+
+    private static void write(ZipEntryRecord entry, FileChannel data, long offset, ZipArchiveWriter writer) throws IOException {
+        writer.putEntry(entry);
+        writer.transferFrom(data, offset, data.size() - offset);
+        writer.closeEntry();
+    }
+
+    @Override
+    public void close() {
+        CodecPool.SHARED.release(input);
+        CodecPool.SHARED.release(output);
+    }
+}
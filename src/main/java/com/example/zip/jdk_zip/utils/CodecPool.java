@@ -0,0 +1,201 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflater / Inflater 和缓冲区的有界对象池
+ * <p>
+ * Deflater 和 Inflater 持有 zlib 的本地内存，不调用 end() 时要等到 GC 清理才会释放，高负载下会造成本地内存尖峰。
+ * 所有压缩和解压缩路径都从这里借用，用完后 reset 并归还；池满时直接 end() 释放，池空时新建，因此借用从不阻塞。
+ * 空闲的 Deflater 按级别分别缓存，但所有级别共用一个上限（maxIdle），空闲的本地内存不会随使用过的级别数成倍增加。
+ * 缓冲区固定为 {@link ZipUtils#BUFFER_SIZE} 大小，直接缓冲区用于通道读写，避免 JDK 在堆缓冲区和本地内存之间额外拷贝。
+ * <p>
+ * 注意：nowrap 固定为 true（zip 条目使用原始 DEFLATE 数据），归还后的对象不能再使用。
+ *
+ * @author vincent
+ */
+final class CodecPool {
+    /**
+     * 全局共享的池
+     */
+    static final CodecPool SHARED = new CodecPool(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()));
+
+    private final int maxIdle;
+    /**
+     * 按压缩级别（-1 ~ 9）分别缓存，借出时不需要 setLevel：对已有输入的 Deflater 修改参数时，
+     * 下一次 deflate 只执行参数切换而不按调用方给出的 flush 方式输出，容易被调用方误判为输出结束
+     */
+    private final List<Pool<Deflater>> deflaters;
+    /**
+     * 所有级别共用的空闲 Deflater 计数
+     */
+    private final AtomicInteger idleDeflaters = new AtomicInteger();
+    private final Pool<Inflater> inflaters;
+    private final Pool<byte[]> buffers;
+    private final Pool<ByteBuffer> directBuffers;
+
+    CodecPool(int maxIdle) {
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("maxIdle must be positive: " + maxIdle);
+        }
+        this.maxIdle = maxIdle;
+        //所有级别共用一个空闲计数
+        List<Pool<Deflater>> levels = new ArrayList<>(Deflater.BEST_COMPRESSION + 2);
+        for (int level = Deflater.DEFAULT_COMPRESSION; level <= Deflater.BEST_COMPRESSION; level++) {
+            levels.add(new Pool<>(idleDeflaters));
+        }
+        this.deflaters = Collections.unmodifiableList(levels);
+        this.inflaters = new Pool<>(new AtomicInteger());
+        this.buffers = new Pool<>(new AtomicInteger());
+        this.directBuffers = new Pool<>(new AtomicInteger());
+    }
+
+    /**
+     * @param level 压缩级别
+     * @return 已重置、使用给定级别的 Deflater（nowrap）
+     */
+    Deflater deflater(int level) {
+        Deflater deflater = deflaters(level).poll();
+        return deflater == null ? new Deflater(level, true) : deflater;
+    }
+
+    /**
+     * @param deflater 借用的 Deflater
+     * @param level    借用时的压缩级别（调用方修改过级别时应按修改后的级别归还）
+     */
+    void release(Deflater deflater, int level) {
+        deflater.reset();
+        if (!deflaters(level).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @return 已重置的 Inflater（nowrap）
+     */
+    Inflater inflater() {
+        Inflater inflater = inflaters.poll();
+        return inflater == null ? new Inflater(true) : inflater;
+    }
+
+    void release(Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return {@link ZipUtils#BUFFER_SIZE} 大小的缓冲区（内容未清零）
+     */
+    byte[] buffer() {
+        byte[] buffer = buffers.poll();
+        return buffer == null ? new byte[ZipUtils.BUFFER_SIZE] : buffer;
+    }
+
+    void release(byte[] buffer) {
+        if (buffer.length == ZipUtils.BUFFER_SIZE) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * @return {@link ZipUtils#BUFFER_SIZE} 大小、已清空、小端字节序的直接缓冲区
+     */
+    ByteBuffer directBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(ZipUtils.BUFFER_SIZE);
+        }
+        buffer.clear();
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == ZipUtils.BUFFER_SIZE) {
+            directBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * @return 新建的对象数（Deflater、Inflater 和缓冲区），稳定状态下不再增长
+     */
+    long getCreated() {
+        long created = 0;
+        for (Pool<Deflater> pool : deflaters) {
+            created += pool.created.get();
+        }
+        return created + inflaters.created.get() + buffers.created.get() + directBuffers.created.get();
+    }
+
+    /**
+     * @return 空闲的 Deflater 数（所有级别）
+     */
+    int getIdleDeflaters() {
+        return idleDeflaters.get();
+    }
+
+    int getIdleInflaters() {
+        return inflaters.size.get();
+    }
+
+    int getIdleBuffers() {
+        return buffers.size.get();
+    }
+
+    int getIdleDirectBuffers() {
+        return directBuffers.size.get();
+    }
+
+    private Pool<Deflater> deflaters(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("invalid compression level: " + level);
+        }
+        return deflaters.get(level + 1);
+    }
+
+    /**
+     * 无锁的有界空闲队列，poll 未命中时计入新建次数
+     */
+    private final class Pool<T> {
+        private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+        /**
+         * 空闲对象数，多个队列可以共用一个计数（共用 maxIdle 上限）
+         */
+        private final AtomicInteger size;
+        private final AtomicLong created = new AtomicLong();
+
+        Pool(AtomicInteger size) {
+            this.size = size;
+        }
+
+        T poll() {
+            T item = idle.poll();
+            if (item == null) {
+                created.incrementAndGet();
+            } else {
+                size.decrementAndGet();
+            }
+            return item;
+        }
+
+        boolean offer(T item) {
+            if (size.incrementAndGet() > maxIdle) {
+                size.decrementAndGet();
+                return false;
+            }
+            idle.offer(item);
+            return true;
+        }
+    }
+}
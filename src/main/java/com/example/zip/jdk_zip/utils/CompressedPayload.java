@@ -0,0 +1,111 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 条目压缩后的数据缓冲区
+ * <p>
+ * 数据先写入从 {@link CodecPool} 借用的固定大小数据块，超过阈值后整体溢出到临时文件，
+ * 保证并行压缩时每个条目占用的堆内存有上限，且缓冲区增长时不需要扩容拷贝。
+ *
+ * @author vincent
+ */
+final class CompressedPayload implements Closeable {
+    private final long spillThreshold;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int count;
+    private Path spillFile;
+    private FileChannel spillChannel;
+    private long length;
+
+    CompressedPayload(long spillThreshold) {
+        this.spillThreshold = spillThreshold;
+    }
+
+    void write(byte[] b, int off, int len) throws IOException {
+        if (spillChannel == null && count + len > spillThreshold) {
+            spill();
+        }
+        if (spillChannel != null) {
+            ByteBuffer src = ByteBuffer.wrap(b, off, len);
+            while (src.hasRemaining()) {
+                spillChannel.write(src);
+            }
+        } else {
+            int remaining = len;
+            while (remaining > 0) {
+                int chunkOffset = count % ZipUtils.BUFFER_SIZE;
+                if (chunkOffset == 0 && count / ZipUtils.BUFFER_SIZE == chunks.size()) {
+                    chunks.add(CodecPool.SHARED.buffer());
+                }
+                int n = Math.min(remaining, ZipUtils.BUFFER_SIZE - chunkOffset);
+                System.arraycopy(b, off, chunks.get(count / ZipUtils.BUFFER_SIZE), chunkOffset, n);
+                off += n;
+                remaining -= n;
+                count += n;
+            }
+        }
+        length += len;
+    }
+
+    long length() {
+        return length;
+    }
+
+    /**
+     * 把缓冲的压缩数据写入到 zip 文件的当前条目中
+     *
+     * @param writer zip 文件写入器
+     * @throws IOException IO异常
+     */
+    void writeTo(ZipArchiveWriter writer) throws IOException {
+        if (spillChannel != null) {
+            writer.transferFrom(spillChannel, 0, length);
+        } else {
+            for (int i = 0, remaining = count; remaining > 0; i++) {
+                int n = Math.min(remaining, ZipUtils.BUFFER_SIZE);
+                writer.write(chunks.get(i), 0, n);
+                remaining -= n;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        releaseChunks();
+        if (spillChannel != null) {
+            spillChannel.close();
+            Files.deleteIfExists(spillFile);
+            spillChannel = null;
+        }
+    }
+
+    private void spill() throws IOException {
+        spillFile = Files.createTempFile("zip-payload", ".tmp");
+        spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        for (int i = 0, remaining = count; remaining > 0; i++) {
+            ByteBuffer src = ByteBuffer.wrap(chunks.get(i), 0, Math.min(remaining, ZipUtils.BUFFER_SIZE));
+            remaining -= src.remaining();
+            while (src.hasRemaining()) {
+                spillChannel.write(src);
+            }
+        }
+        releaseChunks();
+    }
+
+    private void releaseChunks() {
+        for (byte[] chunk : chunks) {
+            CodecPool.SHARED.release(chunk);
+        }
+        chunks.clear();
+        count = 0;
+    }
+}
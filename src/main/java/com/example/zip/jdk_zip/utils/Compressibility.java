@@ -0,0 +1,114 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * 判断文件内容是否值得压缩
+ * <p>
+ * 先按扩展名识别常见的已压缩格式，其余文件对开头的一小段数据做一次快速压缩试探，压缩率不足时视为不可压缩，
+ * 这类文件直接以 STORED 方式写入，省去无效的 DEFLATE 运算。
+ *
+ * @author vincent
+ */
+public final class Compressibility {
+    /**
+     * 已压缩格式的扩展名
+     */
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "mp3", "mp4", "m4a", "mkv", "avi", "mov", "webm", "ogg",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "lz4", "snappy", "br",
+            "jar", "war", "apk", "docx", "xlsx", "pptx", "parquet", "orc"));
+    static final int SAMPLE_SIZE = 8 * 1024;
+    /**
+     * 试探压缩后的大小超过原大小的该比例时视为不可压缩
+     */
+    private static final double MIN_SAVING_RATIO = 0.95;
+
+    private Compressibility() {
+    }
+
+    /**
+     * @param file 文件路径
+     * @return 文件内容是否不可压缩（应以 STORED 方式写入）
+     * @throws IOException IO异常
+     */
+    public static boolean isIncompressible(Path file) throws IOException {
+        if (hasCompressedExtension(file)) {
+            return true;
+        }
+        //每个条目都会调用，样本缓冲区从池中借用，不为每个文件分配
+        byte[] sample = CodecPool.SHARED.buffer();
+        try {
+            int length;
+            try (InputStream in = Files.newInputStream(file)) {
+                length = readFully(in, sample, SAMPLE_SIZE);
+            }
+            return isIncompressible(sample, length);
+        } finally {
+            CodecPool.SHARED.release(sample);
+        }
+    }
+
+    /**
+     * @param file 文件路径
+     * @return 扩展名是否为常见的已压缩格式
+     */
+    public static boolean hasCompressedExtension(Path file) {
+        Path fileName = file.getFileName();
+        return fileName != null
+                && COMPRESSED_EXTENSIONS.contains(FilenameUtils.getExtension(fileName.toString()).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param sample 文件开头的数据
+     * @param length 数据长度
+     * @return 试探压缩的结果是否不可压缩
+     */
+    static boolean isIncompressible(byte[] sample, int length) {
+        if (length < 64) {
+            //太小的文件没有试探的意义，压缩与否差别不大
+            return false;
+        }
+        Deflater deflater = CodecPool.SHARED.deflater(Deflater.BEST_SPEED);
+        byte[] out = CodecPool.SHARED.buffer();
+        try {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            //只需要知道压缩结果是否超过阈值，输出超过原长度时提前结束
+            int limit = Math.min(out.length, length + 64);
+            int compressed = 0;
+            while (!deflater.finished() && compressed < limit) {
+                compressed += deflater.deflate(out, compressed, limit - compressed);
+            }
+            return compressed > length * MIN_SAVING_RATIO;
+        } finally {
+            CodecPool.SHARED.release(deflater, Deflater.BEST_SPEED);
+            CodecPool.SHARED.release(out);
+        }
+    }
+
+    /**
+     * 读取最多 length 个字节到 b 的开头
+     */
+    static int readFully(InputStream in, byte[] b, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            int count = in.read(b, n, length - n);
+            if (count < 0) {
+                break;
+            }
+            n += count;
+        }
+        return n;
+    }
+}
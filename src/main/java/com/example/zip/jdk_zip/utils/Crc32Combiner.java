@@ -0,0 +1,80 @@
+package com.example.zip.jdk_zip.utils;
+
+/**
+ * 合并分段计算的 CRC32（移植自 zlib 的 crc32_combine）
+ * <p>
+ * 已知 crc1 = CRC32(A)、crc2 = CRC32(B) 以及 B 的长度，不需要重新读取数据即可得到 CRC32(A + B)。
+ *
+ * @author vincent
+ */
+final class Crc32Combiner {
+    private static final int GF2_DIM = 32;
+    private static final long POLYNOMIAL = 0xedb88320L;
+
+    private Crc32Combiner() {
+    }
+
+    /**
+     * 合并两段数据的 CRC32
+     *
+     * @param crc1 第一段数据的 CRC32
+     * @param crc2 第二段数据的 CRC32
+     * @param len2 第二段数据的长度
+     * @return 两段数据拼接后的 CRC32
+     */
+    static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[GF2_DIM];
+        long[] odd = new long[GF2_DIM];
+
+        //odd 为移位一个 0 比特的运算矩阵
+        odd[0] = POLYNOMIAL;
+        long row = 1;
+        for (int n = 1; n < GF2_DIM; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        //even 为移位两个 0 比特，odd 为移位四个 0 比特
+        square(even, odd);
+        square(odd, even);
+
+        //每次循环把运算矩阵平方，按 len2 的二进制位把 len2 个 0 字节作用到 crc1 上
+        do {
+            square(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+        return (crc1 ^ crc2) & 0xffffffffL;
+    }
+
+    private static long times(long[] mat, long vec) {
+        long sum = 0;
+        int i = 0;
+        while (vec != 0) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+            vec >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] mat) {
+        for (int n = 0; n < GF2_DIM; n++) {
+            square[n] = times(mat, mat[n]);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多线程预读的目录遍历
+ * <p>
+ * 子目录的列举（包括读取每个子项的属性）在线程池中提前进行，调用线程只负责按顺序把文件交给 visitor，
+ * 因此在网络文件系统等 stat 很慢的目录树上，列举和 visitor 的处理（例如压缩）同时进行，第一个文件不需要等遍历结束。
+ * 每个子项的属性只读取一次并随文件一起交给 visitor，后续处理不需要再次 stat。
+ * <p>
+ * 有序模式下文件按完整路径的字典序（与 {@code Files.walk(dir).sorted()} 相同）交给 visitor，结果与并行度无关；
+ * 无序模式下先列举完成的目录先处理。预读的目录数有上限，调用线程需要的目录尚未开始列举时直接在调用线程中列举，
+ * 因此内存占用不会随目录树增长，也不会因为预读而死锁。
+ * <p>
+ * 与 {@link Files#walkFileTree} 一样不跟随指向目录的符号链接；指向文件的符号链接按目标文件的属性处理。
+ * <p>
+ * 预读在共享的列举线程池（{@link #SHARED_POOL}）或调用方给出的 Executor 中执行，每次遍历不再创建线程池。
+ *
+ * @author vincent
+ */
+final class DirectoryScanner {
+    /**
+     * 默认的列举线程数（列举主要是等待文件系统，线程数可以多于处理器数）
+     */
+    static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * 所有遍历共用的列举线程池（守护线程，空闲 60 秒后退出）
+     */
+    static final ExecutorService SHARED_POOL = sharedPool(Math.max(DEFAULT_PARALLELISM, 2 * Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * 按完整路径排序：同一目录下比较名称时，目录名视为以 '/' 结尾
+     */
+    private static final Comparator<Node> PATH_ORDER = Comparator.comparing(Node::sortKey);
+
+    private final boolean ordered;
+    private final int maxPrefetch;
+    private final Executor executor;
+
+    /**
+     * @param parallelism 预读的并行度（每次遍历最多预读 parallelism * 4 个目录），在 {@link #SHARED_POOL} 中列举
+     * @param ordered     是否按路径顺序交给 visitor
+     */
+    DirectoryScanner(int parallelism, boolean ordered) {
+        this(parallelism, ordered, SHARED_POOL);
+    }
+
+    /**
+     * @param parallelism 预读的并行度（每次遍历最多预读 parallelism * 4 个目录）
+     * @param ordered     是否按路径顺序交给 visitor
+     * @param executor    执行预读的线程池（由调用方管理）
+     */
+    DirectoryScanner(int parallelism, boolean ordered, Executor executor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.ordered = ordered;
+        this.maxPrefetch = parallelism * 4;
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    /**
+     * 遍历目录下的所有文件（不包括目录本身），visitor 在调用线程中执行
+     *
+     * @param root    根目录
+     * @param visitor 文件处理
+     * @throws IOException IO异常（列举失败或 visitor 抛出的异常）
+     */
+    void scan(Path root, FileVisitor visitor) throws IOException {
+        Deque<Node> pending = new ArrayDeque<>();
+        Deque<Listing> unsubmitted = new ArrayDeque<>();
+        int prefetched = 0;
+        try {
+            pending.add(new Node(root, null, new Listing(root)));
+            while (!pending.isEmpty()) {
+                Node node = ordered ? pending.pollFirst() : pollReady(pending);
+                if (node.listing == null) {
+                    visitor.visit(node.path, node.attributes);
+                    continue;
+                }
+                Listing listing = node.listing;
+                if (listing.submitted) {
+                    prefetched--;
+                }
+                //尚未开始列举时直接在调用线程中列举
+                listing.run();
+                List<Node> children = ParallelPacker.await(listing.result);
+                if (ordered) {
+                    for (int i = children.size() - 1; i >= 0; i--) {
+                        Node child = children.get(i);
+                        pending.addFirst(child);
+                        if (child.listing != null) {
+                            unsubmitted.addFirst(child.listing);
+                        }
+                    }
+                } else {
+                    for (Node child : children) {
+                        if (child.listing == null) {
+                            visitor.visit(child.path, child.attributes);
+                        } else {
+                            pending.addLast(child);
+                            unsubmitted.addLast(child.listing);
+                        }
+                    }
+                }
+                //优先预读接下来最先需要的目录
+                while (prefetched < maxPrefetch && !unsubmitted.isEmpty()) {
+                    Listing next = unsubmitted.pollFirst();
+                    if (!next.claimed.get()) {
+                        next.submitted = true;
+                        prefetched++;
+                        executor.execute(next);
+                    }
+                }
+            }
+        } finally {
+            //结束（或出错）后还在排队的预读不再执行
+            for (Listing listing : unsubmitted) {
+                listing.claimed.set(true);
+            }
+            for (Node node : pending) {
+                if (node.listing != null) {
+                    node.listing.claimed.set(true);
+                }
+            }
+        }
+    }
+
+    private static ExecutorService sharedPool(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("zip-scan-%d").setDaemon(true).build());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * 无序模式下优先取已经列举完成的目录
+     */
+    private Node pollReady(Deque<Node> pending) {
+        Iterator<Node> it = pending.iterator();
+        for (int i = 0; i < maxPrefetch && it.hasNext(); i++) {
+            Node node = it.next();
+            if (node.listing.result.isDone()) {
+                it.remove();
+                return node;
+            }
+        }
+        return pending.pollFirst();
+    }
+
+    private List<Node> list(Path dir) throws IOException {
+        List<Node> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isDirectory()) {
+                    children.add(new Node(child, attributes, new Listing(child)));
+                    continue;
+                }
+                if (attributes.isSymbolicLink()) {
+                    if (Files.isDirectory(child)) {
+                        continue;
+                    }
+                    if (Files.exists(child)) {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                    }
+                }
+                children.add(new Node(child, attributes, null));
+            }
+        }
+        if (ordered) {
+            children.sort(PATH_ORDER);
+        }
+        return children;
+    }
+
+    /**
+     * 处理遍历到的文件
+     */
+    @FunctionalInterface
+    interface FileVisitor {
+        /**
+         * @param file       文件路径
+         * @param attributes 列举时读取的属性
+         * @throws IOException IO异常
+         */
+        void visit(Path file, BasicFileAttributes attributes) throws IOException;
+    }
+
+    /**
+     * 遍历中的文件或目录，目录带有其列举任务
+     */
+    private static final class Node {
+        final Path path;
+        final BasicFileAttributes attributes;
+        final Listing listing;
+
+        Node(Path path, BasicFileAttributes attributes, Listing listing) {
+            this.path = path;
+            this.attributes = attributes;
+            this.listing = listing;
+        }
+
+        String sortKey() {
+            String name = path.getFileName().toString();
+            return listing == null ? name : name + '/';
+        }
+    }
+
+    /**
+     * 单个目录的列举，由预读线程或调用线程中先开始的一方执行
+     */
+    private final class Listing implements Runnable {
+        final Path dir;
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final CompletableFuture<List<Node>> result = new CompletableFuture<>();
+        /**
+         * 只在调用线程中读写
+         */
+        boolean submitted;
+
+        Listing(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                result.complete(list(dir));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.zip.jdk_zip.utils;
+
+/**
+ * 解压缩写出文件时的持久化方式
+ *
+ * @author vincent
+ */
+public enum Durability {
+    /**
+     * 不调用 fsync，由操作系统决定何时写入磁盘（最快，掉电时可能丢失刚解压的文件）
+     */
+    NONE,
+    /**
+     * 每个文件写完后立即 fsync，全部完成后再 fsync 创建过的目录
+     */
+    PER_FILE,
+    /**
+     * 全部文件写完后统一 fsync 文件和创建过的目录，fsync 不再夹在每个条目的写入之间
+     */
+    BATCHED
+}
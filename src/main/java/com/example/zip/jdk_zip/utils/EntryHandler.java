@@ -0,0 +1,23 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * 流式解压缩时处理单个条目
+ *
+ * @author vincent
+ */
+@FunctionalInterface
+public interface EntryHandler {
+
+    /**
+     * 处理条目的内容，content 只在本方法执行期间有效，未读完的部分会被跳过，关闭 content 不会关闭底层的输入流
+     *
+     * @param entry   条目
+     * @param content 解压后的条目内容
+     * @throws IOException IO异常
+     */
+    void handle(ZipEntry entry, InputStream content) throws IOException;
+}
@@ -0,0 +1,194 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 在当前线程中把单个文件写入 zip 文件
+ * <p>
+ * 可压缩的文件以 DEFLATE 方式流式写入（大小和 CRC 写入数据描述符），不可压缩的文件以 STORED 方式写入：
+ * 先计算 CRC32，再通过 {@link FileChannel#transferTo} 直接拷贝文件内容。一个实例复用同一个 Deflater 和缓冲区
+ * （从 {@link CodecPool} 借用，关闭时归还），只能在一个线程中使用。
+ * <p>
+ * 指定其他 {@link ZipCodec} 时，可压缩的文件改用该压缩方式流式写入，不可压缩的文件仍以 STORED 方式写入。
+ *
+ * @author vincent
+ */
+final class EntryPacker implements Closeable {
+    private final Deflater deflater;
+    private final int level;
+    private final boolean streaming;
+    private final ZipCodec codec;
+    /**
+     * Deflater 当前使用的级别，归还到池中时按该级别归还
+     */
+    private int deflaterLevel;
+    private final byte[] input = CodecPool.SHARED.buffer();
+    private final byte[] output = CodecPool.SHARED.buffer();
+
+    EntryPacker() {
+        this(Deflater.DEFAULT_COMPRESSION, false);
+    }
+
+    /**
+     * @param level     压缩级别
+     * @param streaming 流式输出：不可压缩的文件也不预先计算 CRC32，而是以 0 级 DEFLATE（只包含存储块）边读边写，
+     *                  每个条目都能立即开始输出，代价是每 64 KB 多几个字节的块头
+     */
+    EntryPacker(int level, boolean streaming) {
+        this(level, streaming, ZipCodecs.DEFLATE);
+    }
+
+    /**
+     * @param level     DEFLATE 的压缩级别
+     * @param streaming 流式输出，参见 {@link #EntryPacker(int, boolean)}
+     * @param codec     可压缩文件使用的压缩方式
+     */
+    EntryPacker(int level, boolean streaming, ZipCodec codec) {
+        this.deflater = CodecPool.SHARED.deflater(level);
+        this.level = level;
+        this.deflaterLevel = level;
+        this.streaming = streaming;
+        this.codec = Objects.requireNonNull(codec, "codec");
+    }
+
+    /**
+     * 把文件写入为 zip 文件中的一个条目
+     *
+     * @param file   源文件
+     * @param name   条目名称
+     * @param writer zip 文件写入器
+     * @throws IOException IO异常
+     */
+    void pack(Path file, String name, ZipArchiveWriter writer) throws IOException {
+        pack(file, Files.readAttributes(file, BasicFileAttributes.class), name, writer);
+    }
+
+    /**
+     * 把文件写入为 zip 文件中的一个条目，使用已经读取的文件属性（不再 stat）
+     *
+     * @param file       源文件
+     * @param attributes 文件属性
+     * @param name       条目名称
+     * @param writer     zip 文件写入器
+     * @throws IOException IO异常
+     */
+    void pack(Path file, BasicFileAttributes attributes, String name, ZipArchiveWriter writer) throws IOException {
+        ZipEntryRecord entry = new ZipEntryRecord(name).lastModified(attributes.lastModifiedTime().toMillis());
+        boolean incompressible = Compressibility.isIncompressible(file);
+        if (incompressible && !streaming) {
+            entry.method(ZipFormat.METHOD_STORED);
+            long size = attributes.size();
+            entry.sizes(crc(file, input), size, size);
+            writer.putEntry(entry);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                writer.transferFrom(channel, 0, size);
+            }
+            writer.closeEntry();
+        } else if (codec.method() != ZipFormat.METHOD_DEFLATED && !incompressible) {
+            entry.method(codec.method());
+            entry.versionNeeded = codec.versionNeeded();
+            entry.flags |= ZipFormat.FLAG_DATA_DESCRIPTOR;
+            writer.putEntry(entry);
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = codec.compress(new EntryOutputStream(writer))) {
+                int n;
+                while ((n = in.read(input)) != -1) {
+                    crc.update(input, 0, n);
+                    size += n;
+                    out.write(input, 0, n);
+                }
+            }
+            entry.sizes(crc.getValue(), 0, size);
+            writer.closeEntry();
+        } else {
+            entry.method(ZipFormat.METHOD_DEFLATED);
+            entry.flags |= ZipFormat.FLAG_DATA_DESCRIPTOR;
+            writer.putEntry(entry);
+            CRC32 crc = new CRC32();
+            long size = 0;
+            deflater.reset();
+            int entryLevel = incompressible ? Deflater.NO_COMPRESSION : level;
+            if (entryLevel != deflaterLevel) {
+                deflater.setLevel(entryLevel);
+                deflaterLevel = entryLevel;
+            }
+            try (InputStream in = Files.newInputStream(file)) {
+                int n;
+                while ((n = in.read(input)) != -1) {
+                    crc.update(input, 0, n);
+                    size += n;
+                    deflater.setInput(input, 0, n);
+                    while (!deflater.needsInput()) {
+                        writer.write(output, 0, deflater.deflate(output));
+                    }
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                writer.write(output, 0, deflater.deflate(output));
+            }
+            entry.sizes(crc.getValue(), 0, size);
+            writer.closeEntry();
+        }
+    }
+
+    /**
+     * 计算文件的 CRC32
+     *
+     * @param file   文件路径
+     * @param buffer 复用的缓冲区
+     * @return CRC32
+     * @throws IOException IO异常
+     */
+    static long crc(Path file, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 把压缩流的输出写入当前条目，关闭时不做任何事（由 {@link ZipArchiveWriter#closeEntry()} 结束条目）
+     */
+    private static final class EntryOutputStream extends OutputStream {
+        private final ZipArchiveWriter writer;
+
+        EntryOutputStream(ZipArchiveWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writer.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void close() {
+        CodecPool.SHARED.release(deflater, deflaterLevel);
+        CodecPool.SHARED.release(input);
+        CodecPool.SHARED.release(output);
+    }
+}
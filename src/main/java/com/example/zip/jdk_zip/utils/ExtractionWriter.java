@@ -0,0 +1,246 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.ZipException;
+
+/**
+ * 解压缩的写出端：校验条目路径、缓存已创建的目录、通过池化的直接缓冲区写出文件，并按 {@link Durability} 调用 fsync
+ * <p>
+ * 条目名称在写出前规范化，指向目标目录之外的名称（如 ../../etc/passwd、/etc/passwd）被拒绝。
+ * 已创建的目录（及其上级目录）记录在集合中，同一目录下的后续条目不再调用 createDirectories；
+ * 解压前可以通过 {@link #createDirectories(Collection)} 一次性创建全部目录。
+ * 小于缓冲区的文件只需要一次 write，写完后按中央目录中的大小校验写出的字节数。
+ * 每次写出都向 {@link JobProgress} 报告进度，任务被取消时以 {@link java.io.InterruptedIOException} 停止。
+ * <p>
+ * 一个实例可以被多个线程同时使用，每个 {@link Output} 只能在一个线程中（或按顺序）使用。
+ *
+ * @author vincent
+ */
+final class ExtractionWriter {
+    private final Path root;
+    private final Durability durability;
+    private final JobProgress progress;
+    private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+    /**
+     * 等待统一 fsync 的文件（{@link Durability#BATCHED}）
+     */
+    private final Queue<Path> unsynced = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param root       目标目录（必须存在）
+     * @param durability 持久化方式
+     */
+    ExtractionWriter(Path root, Durability durability) {
+        this(root, durability, JobProgress.NONE);
+    }
+
+    /**
+     * @param root       目标目录（必须存在）
+     * @param durability 持久化方式
+     * @param progress   进度和取消检查
+     */
+    ExtractionWriter(Path root, Durability durability, JobProgress progress) {
+        this.root = root.toAbsolutePath().normalize();
+        this.durability = Objects.requireNonNull(durability, "durability");
+        this.progress = Objects.requireNonNull(progress, "progress");
+        directories.add(this.root);
+    }
+
+    /**
+     * 解析条目在目标目录中的路径
+     *
+     * @param name 条目名称
+     * @return 规范化后的绝对路径
+     * @throws ZipException 条目指向目标目录之外
+     */
+    Path resolve(String name) throws ZipException {
+        return resolve(root, name);
+    }
+
+    /**
+     * 解析条目在目标目录中的路径，拒绝指向目录之外的条目名称（如 ../../etc/passwd）
+     *
+     * @param root 规范化后的绝对路径
+     * @param name 条目名称
+     * @return 规范化后的绝对路径
+     * @throws ZipException 条目指向目标目录之外
+     */
+    static Path resolve(Path root, String name) throws ZipException {
+        Path target = root.resolve(name).normalize();
+        if (!target.startsWith(root) || target.equals(root)) {
+            throw new ZipException("entry is outside of the target dir: " + name);
+        }
+        return target;
+    }
+
+    /**
+     * 按路径顺序一次性创建多个目录（上级目录先于子目录，已创建的跳过）
+     *
+     * @param dirs 目录路径（{@link #resolve(String)} 的结果或其上级目录）
+     * @throws IOException IO异常
+     */
+    void createDirectories(Collection<Path> dirs) throws IOException {
+        for (Path dir : new TreeSet<>(dirs)) {
+            createDirectory(dir);
+        }
+    }
+
+    /**
+     * 创建目录及其上级目录，已创建过的直接返回
+     *
+     * @param dir 目录路径
+     * @throws IOException IO异常
+     */
+    void createDirectory(Path dir) throws IOException {
+        if (directories.contains(dir)) {
+            return;
+        }
+        Files.createDirectories(dir);
+        for (Path p = dir; p != null && p.startsWith(root) && directories.add(p); p = p.getParent()) {
+            //标记每一级上级目录
+        }
+    }
+
+    /**
+     * 创建（或覆盖）目标文件，上级目录不存在时创建
+     *
+     * @param target       {@link #resolve(String)} 的结果
+     * @param expectedSize 中央目录中的大小，未知时为 -1
+     * @return 写出端
+     * @throws IOException IO异常
+     */
+    Output open(Path target, long expectedSize) throws IOException {
+        createDirectory(target.getParent());
+        return new Output(target, expectedSize);
+    }
+
+    /**
+     * 全部文件写完后调用：按持久化方式 fsync 尚未同步的文件和创建过的目录
+     *
+     * @throws IOException IO异常
+     */
+    void finish() throws IOException {
+        if (durability == Durability.NONE) {
+            return;
+        }
+        Path file;
+        while ((file = unsynced.poll()) != null) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                channel.force(true);
+            }
+        }
+        //新文件的目录项写在目录中，目录也要 fsync
+        for (Path dir : directories) {
+            try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                //部分平台（Windows）不能打开目录
+            }
+        }
+    }
+
+    /**
+     * 单个文件的写出端
+     */
+    final class Output implements Closeable {
+        private final Path target;
+        private final long expectedSize;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = CodecPool.SHARED.directBuffer();
+        private long written;
+        private boolean closed;
+
+        private Output(Path target, long expectedSize) throws IOException {
+            this.target = target;
+            this.expectedSize = expectedSize;
+            try {
+                this.channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException | RuntimeException e) {
+                CodecPool.SHARED.release(buffer);
+                throw e;
+            }
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            progress.advance(len);
+            while (len > 0) {
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * 把输入流的剩余内容全部写出
+         *
+         * @param in     输入流（不会被关闭）
+         * @param buffer 复用的读缓冲区
+         * @return 写出的字节数
+         * @throws IOException IO异常
+         */
+        long copy(InputStream in, byte[] buffer) throws IOException {
+            long total = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                write(buffer, 0, n);
+                total += n;
+            }
+            return total;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * 写出剩余数据、校验大小并关闭文件
+         *
+         * @throws ZipException 写出的字节数与中央目录中的大小不一致
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                flush();
+                if (expectedSize >= 0 && written != expectedSize) {
+                    throw new ZipException("size mismatch for " + target + ": expected " + expectedSize + " but got " + written);
+                }
+                if (durability == Durability.PER_FILE) {
+                    channel.force(true);
+                }
+            } finally {
+                channel.close();
+                CodecPool.SHARED.release(buffer);
+            }
+            if (durability == Durability.BATCHED) {
+                unsynced.add(target);
+            }
+        }
+    }
+}
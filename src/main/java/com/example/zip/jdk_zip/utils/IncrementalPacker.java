@@ -0,0 +1,87 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * 增量压缩：对比源目录与已有压缩文件的中央目录，只重新压缩新增或修改的文件
+ * <p>
+ * 文件大小和最后修改时间（DOS 时间，精确到 2 秒）与条目一致时视为未修改，可选再比较内容的 CRC32；
+ * 未修改的条目从原压缩文件原样拷贝压缩数据，源目录中已不存在的条目不再写入。
+ * 结果先写入临时文件再替换原压缩文件，任何时候原压缩文件都是完整的。
+ *
+ * @author vincent
+ */
+final class IncrementalPacker {
+    private final boolean compareContent;
+
+    /**
+     * @param compareContent 大小和修改时间一致时是否还要比较文件内容的 CRC32（需要读取整个文件，但不需要压缩）
+     */
+    IncrementalPacker(boolean compareContent) {
+        this.compareContent = compareContent;
+    }
+
+    /**
+     * @param sourceDir 源目录
+     * @param files     源目录中的文件，按写入顺序排列
+     * @param zipPath   压缩文件，不存在时全部重新压缩
+     * @return 统计信息
+     * @throws IOException IO异常
+     */
+    RepackStats repack(Path sourceDir, List<Path> files, Path zipPath) throws IOException {
+        long start = System.nanoTime();
+        int copied = 0;
+        int packed = 0;
+        int previous = 0;
+        int retained = 0;
+        Path temp = Files.createTempFile(zipPath.toAbsolutePath().getParent(), zipPath.getFileName().toString(), ".tmp");
+        try {
+            try (ZipIndex index = Files.exists(zipPath) ? ZipIndex.open(zipPath) : null;
+                 ZipArchiveWriter writer = new ZipArchiveWriter(temp);
+                 EntryPacker packer = new EntryPacker()) {
+                byte[] buffer = CodecPool.SHARED.buffer();
+                try {
+                    previous = index == null ? 0 : index.size();
+                    for (Path file : files) {
+                        String name = ZipFormat.entryName(sourceDir.relativize(file));
+                        ZipIndex.Entry entry = index == null ? null : index.getEntry(name);
+                        if (entry != null) {
+                            retained++;
+                        }
+                        if (entry != null && isUnchanged(file, entry, buffer)) {
+                            ArchiveMerger.copyRaw(index, entry, writer);
+                            copied++;
+                        } else {
+                            packer.pack(file, name, writer);
+                            packed++;
+                        }
+                    }
+                    writer.finish();
+                } finally {
+                    CodecPool.SHARED.release(buffer);
+                }
+            }
+            Files.move(temp, zipPath, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return new RepackStats(copied, packed, Math.max(0, previous - retained), System.nanoTime() - start);
+    }
+
+    private boolean isUnchanged(Path file, ZipIndex.Entry entry, byte[] buffer) throws IOException {
+        if (entry.isEncrypted() || entry.isDirectory()) {
+            return false;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attrs.size() != entry.getSize()
+                || ZipFormat.javaToDosTime(attrs.lastModifiedTime().toMillis()) != entry.getDosTime()) {
+            return false;
+        }
+        return !compareContent || EntryPacker.crc(file, buffer) == entry.getCrc();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 压缩 / 解压缩流程中的进度和取消检查
+ * <p>
+ * 由 {@link AsyncZipService} 创建并传给共用的压缩、解压流程（{@link ZipUtils}、{@link ParallelUnpacker}、{@link ExtractionWriter}），
+ * 同步调用使用 {@link #NONE}。线程安全：多线程解压时进度回调可能来自多个线程。
+ *
+ * @author vincent
+ */
+final class JobProgress {
+    /**
+     * 不报告进度、不会被取消
+     */
+    static final JobProgress NONE = new JobProgress(() -> false, ProgressListener.NONE);
+
+    private final BooleanSupplier cancelled;
+    private final ProgressListener listener;
+    private final AtomicLong completed = new AtomicLong();
+    private volatile long total;
+
+    /**
+     * @param cancelled 任务是否已被取消
+     * @param listener  进度回调
+     */
+    JobProgress(BooleanSupplier cancelled, ProgressListener listener) {
+        this.cancelled = Objects.requireNonNull(cancelled, "cancelled");
+        this.listener = Objects.requireNonNull(listener, "listener");
+    }
+
+    /**
+     * @return 是否需要在开始处理前知道总大小（{@link #NONE} 不需要，流程可以边列举边处理）
+     */
+    boolean tracksTotal() {
+        return this != NONE;
+    }
+
+    /**
+     * 开始处理，报告 0 进度
+     *
+     * @param total 需要处理的原始字节总数
+     */
+    void start(long total) {
+        this.total = total;
+        listener.onProgress(0, total);
+    }
+
+    /**
+     * 检查取消并报告新完成的字节数
+     *
+     * @param bytes 新完成的原始字节数
+     * @throws InterruptedIOException 任务已被取消
+     */
+    void advance(long bytes) throws InterruptedIOException {
+        checkCancelled();
+        if (this != NONE) {
+            listener.onProgress(completed.addAndGet(bytes), total);
+        }
+    }
+
+    /**
+     * @throws InterruptedIOException 任务已被取消或线程已被中断
+     */
+    void checkCancelled() throws InterruptedIOException {
+        if (cancelled.getAsBoolean() || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("zip job cancelled");
+        }
+    }
+
+    /**
+     * @return 已完成的原始字节数
+     */
+    long getCompleted() {
+        return completed.get();
+    }
+}
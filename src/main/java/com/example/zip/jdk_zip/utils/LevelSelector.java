@@ -0,0 +1,29 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+
+/**
+ * 为每个文件选择 DEFLATE 压缩级别
+ *
+ * @author vincent
+ */
+@FunctionalInterface
+public interface LevelSelector {
+
+    /**
+     * @param file 需要压缩的文件
+     * @return 压缩级别（{@link Deflater#BEST_SPEED} ~ {@link Deflater#BEST_COMPRESSION}、{@link Deflater#DEFAULT_COMPRESSION}），
+     * 返回 {@link Deflater#NO_COMPRESSION} 表示不压缩（STORED）
+     * @throws IOException IO异常
+     */
+    int level(Path file) throws IOException;
+
+    /**
+     * @return 默认选择：不可压缩的文件不压缩，其余文件使用默认级别
+     */
+    static LevelSelector defaultSelector() {
+        return file -> Compressibility.isIncompressible(file) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+
+/**
+ * 压缩时每写完一个条目的回调
+ *
+ * @author vincent
+ * @see ZipUtils#pack(java.util.List, String, PayloadCache, LevelSelector, String, PackListener, ZipMetrics.Operation)
+ */
+@FunctionalInterface
+public interface PackListener {
+    /**
+     * 不关心每个条目的结果
+     */
+    PackListener NONE = (file, level, size, compressedSize, elapsedNanos) -> {
+    };
+
+    /**
+     * 在压缩线程中调用，不应执行耗时操作
+     *
+     * @param file           源文件
+     * @param level          实际使用的压缩级别，{@link Deflater#NO_COMPRESSION} 表示不压缩（STORED）
+     * @param size           原始大小
+     * @param compressedSize 压缩后的大小
+     * @param elapsedNanos   写入该条目（包括选择级别、读取缓存或压缩）的耗时
+     */
+    void onEntry(Path file, int level, long size, long compressedSize, long elapsedNanos);
+}
@@ -0,0 +1,189 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 单个大文件的分块并行压缩（参考 pigz）
+ * <p>
+ * 文件按固定大小切分成块，每块在线程池中独立压缩，并用前一块末尾 32 KB 的数据作为预设字典，
+ * 压缩率与单线程压缩基本相同。除最后的空结束块外，每块都以 SYNC_FLUSH 结束并按字节对齐，
+ * 因此按顺序拼接后就是一个合法的 DEFLATE 数据流；各块的 CRC32 通过 {@link Crc32Combiner} 合并。
+ *
+ * @author vincent
+ */
+final class ParallelBlockDeflater {
+    static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    /**
+     * 只包含结束标志的最后一个固定哈夫曼编码块
+     */
+    private static final byte[] FINAL_EMPTY_BLOCK = {3, 0};
+
+    private final int parallelism;
+    private final int level;
+    private final int blockSize;
+
+    ParallelBlockDeflater(int parallelism) {
+        this(parallelism, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+
+    ParallelBlockDeflater(int parallelism, int level, int blockSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("blockSize must be at least " + DICTIONARY_SIZE + ": " + blockSize);
+        }
+        this.parallelism = parallelism;
+        this.level = level;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * 把文件分块并行压缩为 zip 文件中的一个条目（大小和 CRC 写入数据描述符）
+     *
+     * @param file   源文件
+     * @param name   条目名称
+     * @param writer zip 文件写入器
+     * @throws IOException IO异常
+     */
+    void deflate(Path file, String name, ZipArchiveWriter writer) throws IOException {
+        ZipEntryRecord entry = new ZipEntryRecord(name)
+                .method(ZipFormat.METHOD_DEFLATED)
+                .lastModified(Files.getLastModifiedTime(file).toMillis());
+        entry.flags |= ZipFormat.FLAG_DATA_DESCRIPTOR;
+        writer.putEntry(entry);
+
+        BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            deflaters.add(CodecPool.SHARED.deflater(level));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat("zip-block-%d").setDaemon(true).build());
+        Deque<Future<Block>> window = new ArrayDeque<>();
+        int maxInFlight = parallelism * 2;
+        long crc = 0;
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] dictionary = null;
+            int len;
+            do {
+                byte[] data = new byte[blockSize];
+                len = readFully(in, data);
+                if (len == 0) {
+                    break;
+                }
+                byte[] blockDictionary = dictionary;
+                int blockLength = len;
+                window.add(pool.submit(() -> compress(data, blockLength, blockDictionary, deflaters)));
+                dictionary = Arrays.copyOfRange(data, len - Math.min(len, DICTIONARY_SIZE), len);
+                while (window.size() >= maxInFlight) {
+                    Block block = ParallelPacker.await(window.poll());
+                    crc = Crc32Combiner.combine(crc, block.crc, block.length);
+                    size += block.length;
+                    writer.write(block.compressed, 0, block.compressedLength);
+                }
+            } while (len == blockSize);
+            while (!window.isEmpty()) {
+                Block block = ParallelPacker.await(window.poll());
+                crc = Crc32Combiner.combine(crc, block.crc, block.length);
+                size += block.length;
+                writer.write(block.compressed, 0, block.compressedLength);
+            }
+            writer.write(FINAL_EMPTY_BLOCK, 0, FINAL_EMPTY_BLOCK.length);
+        } finally {
+            pool.shutdownNow();
+            for (Future<Block> future : window) {
+                future.cancel(true);
+            }
+            if (awaitTermination(pool)) {
+                deflaters.forEach(deflater -> CodecPool.SHARED.release(deflater, level));
+            }
+        }
+        entry.sizes(crc, 0, size);
+        writer.closeEntry();
+    }
+
+    private Block compress(byte[] data, int len, byte[] dictionary, BlockingQueue<Deflater> deflaters) throws InterruptedException {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, len);
+        Deflater deflater = deflaters.take();
+        try {
+            deflater.reset();
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data, 0, len);
+            byte[] out = new byte[len + (len >> 3) + 64];
+            int n = 0;
+            //SYNC_FLUSH 在输出缓冲区写满时需要扩容后继续调用
+            while (true) {
+                n += deflater.deflate(out, n, out.length - n, Deflater.SYNC_FLUSH);
+                if (n < out.length) {
+                    break;
+                }
+                out = Arrays.copyOf(out, out.length << 1);
+            }
+            return new Block(out, n, crc.getValue(), len);
+        } finally {
+            deflaters.add(deflater);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] b) throws IOException {
+        int n = 0;
+        while (n < b.length) {
+            int count = in.read(b, n, b.length - n);
+            if (count < 0) {
+                break;
+            }
+            n += count;
+        }
+        return n;
+    }
+
+    /**
+     * 等待仍在运行的压缩任务退出后才能释放 Deflater（被中断时交由 GC 回收）
+     */
+    private static boolean awaitTermination(ExecutorService pool) {
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                pool.shutdownNow();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class Block {
+        final byte[] compressed;
+        final int compressedLength;
+        final long crc;
+        final int length;
+
+        Block(byte[] compressed, int compressedLength, long crc, int length) {
+            this.compressed = compressed;
+            this.compressedLength = compressedLength;
+            this.crc = crc;
+            this.length = length;
+        }
+    }
+}
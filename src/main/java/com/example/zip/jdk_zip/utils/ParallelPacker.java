@@ -0,0 +1,228 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程并行压缩
+ * <p>
+ * 各条目在固定大小的线程池中同时压缩到各自的 {@link CompressedPayload} 中，
+ * 再由调用线程按提交顺序依次写入 zip 文件，输出的条目顺序与并行度无关。
+ * 同时在途的条目数量有上限，因此内存占用不会随目录大小增长。不可压缩的文件以 STORED 方式直接拷贝。
+ *
+ * @author vincent
+ */
+final class ParallelPacker {
+    /**
+     * 单个条目在内存中缓冲的压缩数据上限，超过后溢出到临时文件
+     */
+    static final long DEFAULT_SPILL_THRESHOLD = 8L * 1024 * 1024;
+
+    private final int parallelism;
+    private final int level;
+    private final long spillThreshold;
+
+    ParallelPacker(int parallelism) {
+        this(parallelism, Deflater.DEFAULT_COMPRESSION, DEFAULT_SPILL_THRESHOLD);
+    }
+
+    ParallelPacker(int parallelism, int level, long spillThreshold) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.level = level;
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * 并行压缩目录中的文件并按给定顺序写入 zip 文件
+     *
+     * @param sourceDir 源目录（用于计算条目名称）
+     * @param files     需要压缩的文件，按写入顺序排列
+     * @param writer    zip 文件写入器
+     * @throws IOException IO异常
+     */
+    void pack(Path sourceDir, List<Path> files, ZipArchiveWriter writer) throws IOException {
+        pack(sourceDir, writer, submit -> {
+            for (Path file : files) {
+                submit.visit(file, null);
+            }
+        });
+    }
+
+    /**
+     * 边遍历目录边并行压缩，遍历到的文件立即提交压缩，按遍历顺序写入 zip 文件
+     *
+     * @param sourceDir 源目录
+     * @param scanner   目录遍历（有序时输出的条目顺序固定）
+     * @param writer    zip 文件写入器
+     * @throws IOException IO异常
+     */
+    void pack(Path sourceDir, DirectoryScanner scanner, ZipArchiveWriter writer) throws IOException {
+        pack(sourceDir, writer, submit -> scanner.scan(sourceDir, submit));
+    }
+
+    private void pack(Path sourceDir, ZipArchiveWriter writer, FileSource source) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat("zip-pack-%d").setDaemon(true).build());
+        Deque<Future<CompressedEntry>> window = new ArrayDeque<>();
+        int maxInFlight = parallelism * 2;
+        try {
+            source.forEach((file, attributes) -> {
+                if (window.size() >= maxInFlight) {
+                    writeEntry(await(window.poll()), writer);
+                }
+                String name = ZipFormat.entryName(sourceDir.relativize(file));
+                window.add(pool.submit(() -> deflate(file, attributes, name)));
+            });
+            while (!window.isEmpty()) {
+                writeEntry(await(window.poll()), writer);
+            }
+        } finally {
+            pool.shutdownNow();
+            discard(window);
+        }
+    }
+
+    private CompressedEntry deflate(Path file, BasicFileAttributes attributes, String name) throws IOException {
+        if (attributes == null) {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        }
+        ZipEntryRecord entry = new ZipEntryRecord(name)
+                .lastModified(attributes.lastModifiedTime().toMillis());
+        if (Compressibility.isIncompressible(file)) {
+            //不可压缩的文件只计算 CRC32，由写入线程直接拷贝原文件
+            long size = attributes.size();
+            byte[] buffer = CodecPool.SHARED.buffer();
+            try {
+                entry.method(ZipFormat.METHOD_STORED).sizes(EntryPacker.crc(file, buffer), size, size);
+            } finally {
+                CodecPool.SHARED.release(buffer);
+            }
+            return new CompressedEntry(entry, null, file);
+        }
+        entry.method(ZipFormat.METHOD_DEFLATED);
+        CompressedPayload payload = new CompressedPayload(spillThreshold);
+        Deflater deflater = CodecPool.SHARED.deflater(level);
+        CRC32 crc = new CRC32();
+        byte[] input = CodecPool.SHARED.buffer();
+        byte[] output = CodecPool.SHARED.buffer();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(input)) != -1) {
+                crc.update(input, 0, n);
+                size += n;
+                deflater.setInput(input, 0, n);
+                while (!deflater.needsInput()) {
+                    int len = deflater.deflate(output);
+                    payload.write(output, 0, len);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                int len = deflater.deflate(output);
+                payload.write(output, 0, len);
+            }
+        } catch (IOException | RuntimeException e) {
+            payload.close();
+            throw e;
+        } finally {
+            CodecPool.SHARED.release(deflater, level);
+            CodecPool.SHARED.release(input);
+            CodecPool.SHARED.release(output);
+        }
+        entry.sizes(crc.getValue(), payload.length(), size);
+        return new CompressedEntry(entry, payload, file);
+    }
+
+    private static void writeEntry(CompressedEntry compressed, ZipArchiveWriter writer) throws IOException {
+        writer.putEntry(compressed.entry);
+        if (compressed.payload == null) {
+            try (FileChannel channel = FileChannel.open(compressed.source, StandardOpenOption.READ)) {
+                writer.transferFrom(channel, 0, compressed.entry.size);
+            }
+        } else {
+            try (CompressedPayload payload = compressed.payload) {
+                payload.writeTo(writer);
+            }
+        }
+        writer.closeEntry();
+    }
+
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while packing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 需要压缩的文件来源
+     */
+    @FunctionalInterface
+    private interface FileSource {
+        void forEach(DirectoryScanner.FileVisitor visitor) throws IOException;
+    }
+
+    /**
+     * 出错时清理尚未写入的条目（删除溢出的临时文件）
+     */
+    private static void discard(Deque<Future<CompressedEntry>> window) {
+        for (Future<CompressedEntry> future : window) {
+            future.cancel(true);
+            try {
+                CompressedPayload payload = future.get().payload;
+                if (payload != null) {
+                    payload.close();
+                }
+            } catch (Exception ignored) {
+                //任务已取消或失败，没有需要清理的数据
+            }
+        }
+    }
+
+    private static final class CompressedEntry {
+        final ZipEntryRecord entry;
+        /**
+         * 压缩后的数据，STORED 条目为 null
+         */
+        final CompressedPayload payload;
+        final Path source;
+
+        CompressedEntry(ZipEntryRecord entry, CompressedPayload payload, Path source) {
+            this.entry = entry;
+            this.payload = payload;
+            this.source = source;
+        }
+    }
+}
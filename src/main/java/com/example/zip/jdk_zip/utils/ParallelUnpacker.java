@@ -0,0 +1,244 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * 多线程并行解压缩
+ * <p>
+ * {@link ZipFile} 支持随机访问且线程安全，多个线程共用同一个 ZipFile（解压结束时关闭），
+ * 各自领取条目解压到互不相同的目标文件中。parallelism 为 1 时在调用线程中顺序解压。
+ * ZipFile 只支持 STORED 和 DEFLATE，包含其他压缩方式（如 Zstandard）条目的压缩文件改用 {@link ZipIndex} 解压，并行方式相同。
+ * 文件通过 {@link ExtractionWriter} 写出。
+ * <p>
+ * 写出之前要校验全部条目的路径并去掉重复的目标，目标表的内存占用与条目数成正比（每个条目一个目标路径和条目对象），
+ * 不像压缩时那样与条目数无关；条目数特别多且不需要预先校验时使用 {@link ZipUtils#unpack(java.io.InputStream, EntryHandler)} 流式解压。
+ *
+ * @author vincent
+ */
+final class ParallelUnpacker {
+    private final int parallelism;
+
+    ParallelUnpacker(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 解压缩 zip 文件到指定目录
+     *
+     * @param zipPath 压缩文件路径
+     * @param destDir 解压缩的目标目录
+     * @return 统计信息
+     * @throws IOException IO异常
+     */
+    UnpackStats unpack(Path zipPath, Path destDir) throws IOException {
+        return unpack(zipPath, destDir, Durability.NONE);
+    }
+
+    /**
+     * 解压缩 zip 文件到指定目录
+     * <p>
+     * 开始写出之前先校验全部条目的路径（任何一个条目指向目标目录之外时不写出任何文件），并一次性创建全部目录。
+     *
+     * @param zipPath    压缩文件路径
+     * @param destDir    解压缩的目标目录
+     * @param durability 持久化方式
+     * @return 统计信息
+     * @throws IOException IO异常
+     */
+    UnpackStats unpack(Path zipPath, Path destDir, Durability durability) throws IOException {
+        return unpack(zipPath, destDir, durability, JobProgress.NONE);
+    }
+
+    /**
+     * 解压缩 zip 文件到指定目录，报告进度并在每个条目和每个数据块之前检查取消
+     *
+     * @param zipPath    压缩文件路径
+     * @param destDir    解压缩的目标目录
+     * @param durability 持久化方式
+     * @param progress   进度和取消检查（校验完全部条目后以条目大小之和开始）
+     * @return 统计信息
+     * @throws IOException IO异常
+     */
+    UnpackStats unpack(Path zipPath, Path destDir, Durability durability, JobProgress progress) throws IOException {
+        long start = System.nanoTime();
+        ExtractionWriter output = new ExtractionWriter(destDir, durability, progress);
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(zipPath.toFile());
+        } catch (ZipException e) {
+            //ZipFile 拒绝打开包含其他压缩方式条目的压缩文件，改用中央目录索引
+            return unpackIndexed(zipPath, output, progress, start, e);
+        }
+        try {
+            Map<Path, ZipEntry> targets = targets(Collections.list(zipFile.entries()).iterator(),
+                    ZipEntry::getName, ZipEntry::isDirectory, output);
+            if (progress.tracksTotal()) {
+                progress.start(targets.values().stream().mapToLong(entry -> Math.max(0, entry.getSize())).sum());
+            }
+            long bytes = run(targets, progress, (target, entry, buffer) -> {
+                if (entry.isDirectory()) {
+                    output.createDirectory(target);
+                    return 0;
+                }
+                try (InputStream in = zipFile.getInputStream(entry);
+                     ExtractionWriter.Output out = output.open(target, entry.getSize())) {
+                    return out.copy(in, buffer);
+                }
+            });
+            output.finish();
+            return new UnpackStats(targets.size(), bytes, System.nanoTime() - start);
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private UnpackStats unpackIndexed(Path zipPath, ExtractionWriter output, JobProgress progress, long start,
+                                      ZipException cause) throws IOException {
+        ZipIndex index;
+        try {
+            index = ZipIndex.open(zipPath);
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            throw e;
+        }
+        try {
+            Map<Path, ZipIndex.Entry> targets = targets(index.entries(),
+                    ZipIndex.Entry::getName, ZipIndex.Entry::isDirectory, output);
+            if (progress.tracksTotal()) {
+                progress.start(targets.values().stream().mapToLong(ZipIndex.Entry::getSize).sum());
+            }
+            long bytes = run(targets, progress, (target, entry, buffer) -> {
+                if (entry.isDirectory()) {
+                    output.createDirectory(target);
+                    return 0;
+                }
+                try (InputStream in = entry.open();
+                     ExtractionWriter.Output out = output.open(target, entry.getSize())) {
+                    return out.copy(in, buffer);
+                }
+            });
+            output.finish();
+            return new UnpackStats(targets.size(), bytes, System.nanoTime() - start);
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * 解析全部条目的目标路径并创建目录
+     * <p>
+     * 指向同一个目标文件的条目只保留最后一个，与顺序解压时后者覆盖前者的结果一致，也避免多个线程写同一个文件。
+     *
+     * @return 目标路径 → 条目
+     * @throws ZipException 条目指向目标目录之外
+     */
+    private static <E> Map<Path, E> targets(Iterator<? extends E> entries, Function<E, String> names, Predicate<E> directories,
+                                            ExtractionWriter output) throws IOException {
+        Map<Path, E> targets = new LinkedHashMap<>();
+        Set<Path> dirs = new HashSet<>();
+        while (entries.hasNext()) {
+            E entry = entries.next();
+            Path target = output.resolve(names.apply(entry));
+            targets.remove(target);
+            targets.put(target, entry);
+            dirs.add(directories.test(entry) ? target : target.getParent());
+        }
+        output.createDirectories(dirs);
+        return targets;
+    }
+
+    /**
+     * 在 parallelism 个线程中领取并解压条目
+     *
+     * @return 解压的字节数
+     */
+    private <E> long run(Map<Path, E> targets, JobProgress progress, Extractor<E> extractor) throws IOException {
+        //各线程从同一个迭代器领取条目，不再复制一份条目列表
+        Iterator<Map.Entry<Path, E>> entries = targets.entrySet().iterator();
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicLong bytes = new AtomicLong();
+        if (parallelism == 1 || targets.size() <= 1) {
+            drain(entries, extractor, progress, stopped, bytes);
+            return bytes.get();
+        }
+        int workers = Math.min(parallelism, targets.size());
+        ExecutorService pool = Executors.newFixedThreadPool(workers,
+                new ThreadFactoryBuilder().setNameFormat("zip-unpack-%d").setDaemon(true).build());
+        try {
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(pool.submit(() -> {
+                    drain(entries, extractor, progress, stopped, bytes);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                ParallelPacker.await(future);
+            }
+        } finally {
+            //出错时让其他线程尽快停止领取新条目
+            stopped.set(true);
+            pool.shutdownNow();
+        }
+        return bytes.get();
+    }
+
+    /**
+     * 不断领取下一个条目进行解压，每个线程只使用一个缓冲区
+     */
+    private static <E> void drain(Iterator<Map.Entry<Path, E>> entries, Extractor<E> extractor, JobProgress progress,
+                                  AtomicBoolean stopped, AtomicLong bytes) throws IOException {
+        byte[] buffer = CodecPool.SHARED.buffer();
+        try {
+            Map.Entry<Path, E> entry;
+            while ((entry = next(entries, stopped)) != null) {
+                progress.checkCancelled();
+                bytes.addAndGet(extractor.extract(entry.getKey(), entry.getValue(), buffer));
+            }
+        } finally {
+            CodecPool.SHARED.release(buffer);
+        }
+    }
+
+    private static <E> Map.Entry<Path, E> next(Iterator<Map.Entry<Path, E>> entries, AtomicBoolean stopped) {
+        synchronized (entries) {
+            return !stopped.get() && entries.hasNext() ? entries.next() : null;
+        }
+    }
+
+    /**
+     * 解压单个条目
+     */
+    @FunctionalInterface
+    private interface Extractor<E> {
+        /**
+         * @return 解压的字节数
+         */
+        long extract(Path target, E entry, byte[] buffer) throws IOException;
+    }
+}
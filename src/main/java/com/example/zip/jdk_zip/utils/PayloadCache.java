@@ -0,0 +1,239 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按内容寻址的压缩数据缓存（本地磁盘，按总大小 LRU 淘汰）
+ * <p>
+ * 键为文件内容的 SHA-256 加上压缩方式和级别，值为压缩后的原始条目数据（不含文件头）；
+ * 键为内容加级别选择器标识时，值的第一个字节是选择的级别（参见 {@link CachedEntryPacker}）。
+ * 压缩相同内容的文件时直接把缓存的数据拷贝到新的压缩文件中，不需要再次压缩（参见 {@link ZipUtils#pack(List, String, PayloadCache, LevelSelector)}）。
+ * <p>
+ * 每个键对应目录中的一个文件，写入时先写临时文件再原子地移动，多个进程可以共用同一个目录；
+ * 打开时按最后访问时间（文件修改时间）恢复 LRU 顺序。线程安全。
+ *
+ * @author vincent
+ */
+public final class PayloadCache {
+    private static final String SUFFIX = ".payload";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+    private final long maxBytes;
+    /**
+     * 键 → 压缩数据大小，按访问顺序排列
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param dir      缓存目录（不存在时创建）
+     * @param maxBytes 缓存文件的总大小上限
+     * @throws IOException IO异常
+     */
+    public PayloadCache(Path dir, long maxBytes) throws IOException {
+        Objects.requireNonNull(dir, "dir");
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    /**
+     * 打开缓存的压缩数据，命中时更新访问顺序
+     *
+     * @param key  缓存键
+     * @param size 原始（未压缩）大小，命中时计入节省的字节数
+     * @return 压缩数据的文件通道，未命中时返回 null
+     * @throws IOException IO异常
+     */
+    FileChannel open(String key, long size) throws IOException {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        Path file = file(key);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            //被其他进程淘汰
+            synchronized (this) {
+                Long length = entries.remove(key);
+                if (length != null) {
+                    bytes -= length;
+                }
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            //只影响重新打开后的 LRU 顺序
+        }
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(size);
+        return channel;
+    }
+
+    /**
+     * @return 缓存目录中的新临时文件，写完后通过 {@link #put(String, Path)} 加入缓存
+     * @throws IOException IO异常
+     */
+    Path newTempFile() throws IOException {
+        return Files.createTempFile(dir, "payload-", TEMP_SUFFIX);
+    }
+
+    /**
+     * 把写好的临时文件加入缓存（原子地替换已有的同名文件），必要时淘汰最久未使用的条目
+     * <p>
+     * 加入后的文件随时可能被其他线程淘汰，调用方应在加入之前使用临时文件中的数据。
+     *
+     * @param key  缓存键
+     * @param temp {@link #newTempFile()} 创建的临时文件
+     * @throws IOException IO异常
+     */
+    void put(String key, Path temp) throws IOException {
+        long length = Files.size(temp);
+        Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        List<String> evicted;
+        synchronized (this) {
+            Long previous = entries.put(key, length);
+            bytes += length - (previous == null ? 0 : previous);
+            evicted = evictOverflow();
+        }
+        delete(evicted);
+    }
+
+    /**
+     * @return 缓存目录
+     */
+    public Path getDir() {
+        return dir;
+    }
+
+    /**
+     * @return 缓存的条目数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return 缓存文件的总大小
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return 命中次数
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return 未命中次数
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return 命中时不需要压缩的原始字节数之和
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * @return 淘汰次数
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private Path file(String key) {
+        return dir.resolve(key + SUFFIX);
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    //上次异常退出时留下的临时文件
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(SUFFIX)) {
+                    files.add(file);
+                    attributes.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+                }
+            }
+        }
+        files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+        List<String> evicted;
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long length = attributes.get(file).size();
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), length);
+                bytes += length;
+            }
+            evicted = evictOverflow();
+        }
+        delete(evicted);
+    }
+
+    /**
+     * 从最久未使用的条目开始淘汰，直到总大小不超过上限（刚写入的条目最后淘汰，超出上限的单个条目也会被淘汰）
+     *
+     * @return 被淘汰的键，由调用方在锁外删除文件
+     */
+    private List<String> evictOverflow() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            bytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    private void delete(List<String> keys) throws IOException {
+        for (String key : keys) {
+            evictions.incrementAndGet();
+            Files.deleteIfExists(file(key));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.zip.jdk_zip.utils;
+
+/**
+ * 异步压缩 / 解压缩任务的进度回调
+ *
+ * @author vincent
+ * @see AsyncZipService
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * 不关心进度
+     */
+    ProgressListener NONE = (completedBytes, totalBytes) -> {
+    };
+
+    /**
+     * 在执行任务的线程中调用，不应执行耗时操作
+     *
+     * @param completedBytes 已处理的原始（未压缩）字节数
+     * @param totalBytes     需要处理的原始字节总数
+     */
+    void onProgress(long completedBytes, long totalBytes);
+}
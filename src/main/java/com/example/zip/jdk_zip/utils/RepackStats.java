@@ -0,0 +1,54 @@
+package com.example.zip.jdk_zip.utils;
+
+/**
+ * 增量压缩统计信息（原样拷贝、重新压缩、删除的条目数和耗时）
+ *
+ * @author vincent
+ */
+public final class RepackStats {
+    private final int copied;
+    private final int packed;
+    private final int removed;
+    private final long elapsedNanos;
+
+    RepackStats(int copied, int packed, int removed, long elapsedNanos) {
+        this.copied = copied;
+        this.packed = packed;
+        this.removed = removed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return 未修改、从原压缩文件直接拷贝的条目数
+     */
+    public int getCopied() {
+        return copied;
+    }
+
+    /**
+     * @return 新增或已修改、重新压缩的条目数
+     */
+    public int getPacked() {
+        return packed;
+    }
+
+    /**
+     * @return 源目录中已删除、从压缩文件中移除的条目数
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return 耗时（纳秒）
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RepackStats{copied=%d, packed=%d, removed=%d, elapsed=%.3f s}",
+                copied, packed, removed, elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 从不可随机访问的输入流（网络连接、管道等）中顺序解压缩
+ * <p>
+ * 只读取本地文件头，不依赖中央目录，每个条目边解压边写出，整个过程只使用一个固定大小的缓冲区，
+ * 内存占用与条目大小无关。一个实例只能在一个线程中使用。
+ * <p>
+ * 限制：与 {@link ZipInputStream} 相同，不支持大小写在数据描述符中的 STORED 条目，
+ * 也无法识别被中央目录覆盖（删除或替换）的条目；只支持 STORED 和 DEFLATE 条目，
+ * 其他压缩方式（{@link ZipCodecs}）的压缩文件需要通过文件解压缩。
+ *
+ * @author vincent
+ */
+final class StreamingUnpacker {
+    private final byte[] buffer = new byte[ZipUtils.BUFFER_SIZE];
+
+    /**
+     * 把所有条目解压到目录中
+     *
+     * @param in        zip 数据
+     * @param targetDir 目标目录
+     * @return 统计信息
+     * @throws IOException IO异常
+     */
+    UnpackStats unpack(InputStream in, Path targetDir) throws IOException {
+        ExtractionWriter output = new ExtractionWriter(targetDir, Durability.NONE);
+        return unpack(in, (entry, content) -> {
+            Path target = output.resolve(entry.getName());
+            if (entry.isDirectory()) {
+                output.createDirectory(target);
+                return;
+            }
+            //大小写在数据描述符中时本地文件头中的大小未知（-1），不校验
+            try (ExtractionWriter.Output out = output.open(target, entry.getSize())) {
+                out.copy(content, buffer);
+            }
+        });
+    }
+
+    /**
+     * 依次把每个条目交给 handler 处理
+     *
+     * @param in      zip 数据
+     * @param handler 条目处理器
+     * @return 统计信息（字节数为 handler 读取的字节数）
+     * @throws IOException IO异常
+     */
+    UnpackStats unpack(InputStream in, EntryHandler handler) throws IOException {
+        long start = System.nanoTime();
+        int entries = 0;
+        long bytes = 0;
+        //不关闭调用方的输入流，但要关闭 ZipInputStream 以及时释放它的 Inflater
+        try (ZipInputStream zipInputStream = new ZipInputStream(new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        })) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                EntryContent content = new EntryContent(zipInputStream);
+                handler.handle(entry, content);
+                entries++;
+                bytes += content.count;
+                zipInputStream.closeEntry();
+            }
+        }
+        return new UnpackStats(entries, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * 当前条目的内容：统计读取的字节数，关闭时不关闭底层的输入流
+     */
+    private static final class EntryContent extends FilterInputStream {
+        long count;
+
+        EntryContent(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.zip.jdk_zip.utils;
+
+/**
+ * 解压缩统计信息（条目数、字节数、耗时和吞吐量）
+ *
+ * @author vincent
+ */
+public final class UnpackStats {
+    private final int entries;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    UnpackStats(int entries, long bytes, long elapsedNanos) {
+        this.entries = entries;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return 解压出的条目数
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return 解压后写出的字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return 耗时（纳秒）
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return 吞吐量（MB/s，按解压后的字节数计算）
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : (bytes / 1048576.0) / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * 合并多个压缩文件的统计信息
+     *
+     * @param other 另一个压缩文件的统计信息
+     * @return 合并后的统计信息（耗时为两者之和）
+     */
+    UnpackStats plus(UnpackStats other) {
+        return new UnpackStats(entries + other.entries, bytes + other.bytes, elapsedNanos + other.elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UnpackStats{entries=%d, bytes=%d, elapsed=%.3f s, throughput=%.1f MB/s}",
+                entries, bytes, elapsedNanos / 1e9, getThroughput());
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整性校验的结果
+ *
+ * @author vincent
+ */
+public final class VerifyReport {
+    private final int archives;
+    private final long entries;
+    private final long skipped;
+    private final long compressedBytes;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final List<Problem> problems;
+
+    VerifyReport(int archives, long entries, long skipped, long compressedBytes, long bytes, long elapsedNanos,
+                 List<Problem> problems) {
+        this.archives = archives;
+        this.entries = entries;
+        this.skipped = skipped;
+        this.compressedBytes = compressedBytes;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * @return 是否没有发现任何问题
+     */
+    public boolean isOk() {
+        return problems.isEmpty();
+    }
+
+    /**
+     * @return 校验的压缩文件数
+     */
+    public int getArchives() {
+        return archives;
+    }
+
+    /**
+     * @return 校验的条目数（包括有问题的条目，不包括跳过的条目）
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return 无法校验而跳过的条目数（没有口令的加密条目、传统 ZipCrypto 加密的条目）
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return 读取的压缩数据字节数
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * @return 解压后的字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return 解压吞吐量（字节/秒）
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : bytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @return 发现的问题，按发现的顺序排列
+     */
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    /**
+     * @return JSON 格式的报告，供脚本和监控系统读取
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(256 + problems.size() * 128);
+        sb.append("{\"ok\":").append(isOk())
+                .append(",\"archives\":").append(archives)
+                .append(",\"entries\":").append(entries)
+                .append(",\"skipped\":").append(skipped)
+                .append(",\"compressedBytes\":").append(compressedBytes)
+                .append(",\"bytes\":").append(bytes)
+                .append(",\"elapsedMillis\":").append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .append(",\"problems\":[");
+        for (int i = 0; i < problems.size(); i++) {
+            Problem problem = problems.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"archive\":");
+            appendString(sb, problem.archive.toString());
+            sb.append(",\"entry\":");
+            if (problem.entry == null) {
+                sb.append("null");
+            } else {
+                appendString(sb, problem.entry);
+            }
+            sb.append(",\"message\":");
+            appendString(sb, problem.message);
+            sb.append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    @Override
+    public String toString() {
+        return "VerifyReport{archives=" + archives + ", entries=" + entries + ", skipped=" + skipped
+                + ", problems=" + problems.size() + ", throughput=" + (long) getThroughput() + " B/s}";
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * 损坏的条目或无法读取的压缩文件
+     */
+    public static final class Problem {
+        private final Path archive;
+        private final String entry;
+        private final String message;
+
+        Problem(Path archive, String entry, String message) {
+            this.archive = archive;
+            this.entry = entry;
+            this.message = message;
+        }
+
+        public Path getArchive() {
+            return archive;
+        }
+
+        /**
+         * @return 条目名称，整个压缩文件无法读取（如中央目录损坏）时为 null
+         */
+        public String getEntry() {
+            return entry;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return archive + (entry == null ? "" : "!/" + entry) + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.zip.jdk_zip.utils;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * WinZip AES-256 加密（AE-2）
+ * <p>
+ * 每个条目使用随机盐值通过 PBKDF2-HMAC-SHA1 派生出 AES 密钥、HMAC 密钥和口令校验值，
+ * 数据以 AES-CTR（小端计数器，从 1 开始）加密，并对密文计算 HMAC-SHA1（截取前 10 字节）作为认证码。
+ * 口令只在创建实例时处理一次（预先初始化 PBKDF2 使用的 HMAC），派生密钥时复制该 HMAC。
+ *
+ * @author vincent
+ */
+final class WinZipAes {
+    static final int METHOD_AES = 99;
+    static final int EXTRA_ID = 0x9901;
+    static final int VERSION_NEEDED = 51;
+    static final int SALT_LENGTH = 16;
+    static final int VERIFIER_LENGTH = 2;
+    static final int MAC_LENGTH = 10;
+    /**
+     * 加密带来的额外长度：盐值 + 口令校验值 + 认证码
+     */
+    static final int OVERHEAD = SALT_LENGTH + VERIFIER_LENGTH + MAC_LENGTH;
+
+    private static final int KEY_LENGTH = 32;
+    private static final int ITERATIONS = 1000;
+    private static final int VENDOR_VERSION_AE_2 = 2;
+    private static final int KEY_STRENGTH_256 = 3;
+    private static final String HMAC_SHA1 = "HmacSHA1";
+
+    private final Mac prf;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param password 口令（与 zip4j 相同，每个字符取低 8 位）
+     */
+    WinZipAes(char[] password) {
+        if (password.length == 0) {
+            throw new IllegalArgumentException("password must not be empty");
+        }
+        byte[] key = new byte[password.length];
+        for (int i = 0; i < password.length; i++) {
+            key[i] = (byte) password[i];
+        }
+        try {
+            prf = Mac.getInstance(HMAC_SHA1);
+            prf.init(new SecretKeySpec(key, HMAC_SHA1));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA1 is not available", e);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    /**
+     * 为新条目生成盐值并派生密钥，可以在多个线程中同时调用
+     *
+     * @return 条目的加密器
+     * @throws GeneralSecurityException 加密算法不可用
+     */
+    EntryEncryptor newEntry() throws GeneralSecurityException {
+        byte[] salt = new byte[SALT_LENGTH];
+        synchronized (random) {
+            random.nextBytes(salt);
+        }
+        return new EntryEncryptor(salt, pbkdf2(salt, 2 * KEY_LENGTH + VERIFIER_LENGTH));
+    }
+
+    /**
+     * 按条目的盐值派生密钥，用于校验已加密的条目，可以在多个线程中同时调用
+     *
+     * @param strength 密钥强度（AES 扩展字段中的 1 / 2 / 3，对应 AES-128 / 192 / 256）
+     * @param salt     条目的盐值（长度为密钥长度的一半）
+     * @param verifier 条目的口令校验值
+     * @return 条目的解密器
+     * @throws GeneralSecurityException 口令错误或加密算法不可用
+     */
+    EntryDecryptor decryptor(int strength, byte[] salt, byte[] verifier) throws GeneralSecurityException {
+        int keyLength = keyLength(strength);
+        byte[] derived = pbkdf2(salt, 2 * keyLength + VERIFIER_LENGTH);
+        if (derived[2 * keyLength] != verifier[0] || derived[2 * keyLength + 1] != verifier[1]) {
+            Arrays.fill(derived, (byte) 0);
+            throw new GeneralSecurityException("wrong password");
+        }
+        return new EntryDecryptor(keyLength, derived);
+    }
+
+    /**
+     * @param strength 密钥强度（1 / 2 / 3）
+     * @return 盐值长度
+     * @throws GeneralSecurityException 未知的密钥强度
+     */
+    static int saltLength(int strength) throws GeneralSecurityException {
+        return keyLength(strength) / 2;
+    }
+
+    private static int keyLength(int strength) throws GeneralSecurityException {
+        if (strength < 1 || strength > KEY_STRENGTH_256) {
+            throw new GeneralSecurityException("unknown AES key strength: " + strength);
+        }
+        return 8 + 8 * strength;
+    }
+
+    /**
+     * @param actualMethod 加密前的压缩方式
+     * @return AES 扩展字段（0x9901）
+     */
+    static byte[] extraField(int actualMethod) {
+        ByteBuffer extra = ByteBuffer.allocate(11).order(ByteOrder.LITTLE_ENDIAN);
+        extra.putShort((short) EXTRA_ID);
+        extra.putShort((short) 7);
+        extra.putShort((short) VENDOR_VERSION_AE_2);
+        extra.put((byte) 'A');
+        extra.put((byte) 'E');
+        extra.put((byte) KEY_STRENGTH_256);
+        extra.putShort((short) actualMethod);
+        return extra.array();
+    }
+
+    private byte[] pbkdf2(byte[] salt, int length) throws GeneralSecurityException {
+        Mac mac = copyPrf();
+        int macLength = mac.getMacLength();
+        byte[] derived = new byte[length];
+        byte[] u = new byte[macLength];
+        byte[] t = new byte[macLength];
+        for (int block = 1, offset = 0; offset < length; block++, offset += macLength) {
+            mac.update(salt);
+            mac.update(new byte[]{(byte) (block >>> 24), (byte) (block >>> 16), (byte) (block >>> 8), (byte) block});
+            mac.doFinal(u, 0);
+            System.arraycopy(u, 0, t, 0, macLength);
+            for (int i = 1; i < ITERATIONS; i++) {
+                mac.update(u);
+                mac.doFinal(u, 0);
+                for (int k = 0; k < macLength; k++) {
+                    t[k] ^= u[k];
+                }
+            }
+            System.arraycopy(t, 0, derived, offset, Math.min(macLength, length - offset));
+        }
+        return derived;
+    }
+
+    private Mac copyPrf() throws GeneralSecurityException {
+        try {
+            synchronized (prf) {
+                return (Mac) prf.clone();
+            }
+        } catch (CloneNotSupportedException e) {
+            throw new GeneralSecurityException("HmacSHA1 cannot be cloned", e);
+        }
+    }
+
+    /**
+     * 单个条目的加密器（AES-CTR + HMAC-SHA1），只能在一个线程中使用
+     */
+    static final class EntryEncryptor {
+        private final byte[] salt;
+        private final byte[] verifier;
+        private final Keystream keystream;
+        private final Mac mac;
+
+        private EntryEncryptor(byte[] salt, byte[] derived) throws GeneralSecurityException {
+            this.salt = salt;
+            this.verifier = Arrays.copyOfRange(derived, 2 * KEY_LENGTH, 2 * KEY_LENGTH + VERIFIER_LENGTH);
+            this.keystream = new Keystream(derived, KEY_LENGTH);
+            this.mac = Mac.getInstance(HMAC_SHA1);
+            this.mac.init(new SecretKeySpec(derived, KEY_LENGTH, KEY_LENGTH, HMAC_SHA1));
+            Arrays.fill(derived, (byte) 0);
+        }
+
+        /**
+         * @return 盐值和口令校验值（写在加密数据之前）
+         */
+        byte[] header() {
+            byte[] header = Arrays.copyOf(salt, SALT_LENGTH + VERIFIER_LENGTH);
+            System.arraycopy(verifier, 0, header, SALT_LENGTH, VERIFIER_LENGTH);
+            return header;
+        }
+
+        /**
+         * 原地加密数据，并计入认证码
+         */
+        void encrypt(byte[] b, int off, int len) throws GeneralSecurityException {
+            keystream.apply(b, off, len);
+            mac.update(b, off, len);
+        }
+
+        /**
+         * @return 认证码（写在加密数据之后）
+         */
+        byte[] finish() {
+            return Arrays.copyOf(mac.doFinal(), MAC_LENGTH);
+        }
+    }
+
+    /**
+     * 单个条目的解密器，只能在一个线程中使用
+     */
+    static final class EntryDecryptor {
+        private final Keystream keystream;
+        private final Mac mac;
+
+        private EntryDecryptor(int keyLength, byte[] derived) throws GeneralSecurityException {
+            this.keystream = new Keystream(derived, keyLength);
+            this.mac = Mac.getInstance(HMAC_SHA1);
+            this.mac.init(new SecretKeySpec(derived, keyLength, keyLength, HMAC_SHA1));
+            Arrays.fill(derived, (byte) 0);
+        }
+
+        /**
+         * 把密文计入认证码，再原地解密
+         */
+        void decrypt(byte[] b, int off, int len) throws GeneralSecurityException {
+            mac.update(b, off, len);
+            keystream.apply(b, off, len);
+        }
+
+        /**
+         * @param authenticationCode 加密数据之后的认证码
+         * @return 认证码是否与密文一致
+         */
+        boolean verify(byte[] authenticationCode) {
+            return MessageDigest.isEqual(Arrays.copyOf(mac.doFinal(), MAC_LENGTH), authenticationCode);
+        }
+    }
+
+    /**
+     * AES-CTR 密钥流（小端计数器，从 1 开始）
+     */
+    private static final class Keystream {
+        /**
+         * 一次生成的密钥流长度，批量加密计数器块以减少 Cipher 调用次数
+         */
+        private static final int KEYSTREAM_LENGTH = 4096;
+
+        private final Cipher aes;
+        private final byte[] counterBlocks = new byte[KEYSTREAM_LENGTH];
+        private final byte[] keystream = new byte[KEYSTREAM_LENGTH];
+        private int keystreamPos = KEYSTREAM_LENGTH;
+        private long counter = 1;
+
+        Keystream(byte[] derived, int keyLength) throws GeneralSecurityException {
+            this.aes = Cipher.getInstance("AES/ECB/NoPadding");
+            this.aes.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(derived, 0, keyLength, "AES"));
+        }
+
+        /**
+         * 与密钥流异或（加密和解密相同）
+         */
+        void apply(byte[] b, int off, int len) throws GeneralSecurityException {
+            for (int i = off, end = off + len; i < end; i++) {
+                if (keystreamPos == KEYSTREAM_LENGTH) {
+                    nextKeystream();
+                }
+                b[i] ^= keystream[keystreamPos++];
+            }
+        }
+
+        private void nextKeystream() throws GeneralSecurityException {
+            for (int block = 0; block < KEYSTREAM_LENGTH; block += 16) {
+                long value = counter++;
+                for (int k = 0; k < 8; k++) {
+                    counterBlocks[block + k] = (byte) (value >>> (8 * k));
+                }
+            }
+            aes.update(counterBlocks, 0, KEYSTREAM_LENGTH, keystream, 0);
+            keystreamPos = 0;
+        }
+    }
+}
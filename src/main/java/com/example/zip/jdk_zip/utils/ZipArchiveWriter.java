@@ -0,0 +1,486 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.ZipException;
+
+/**
+ * 直接写入已压缩数据的 zip 文件写入器
+ * <p>
+ * 与 {@link java.util.zip.ZipOutputStream} 不同，条目数据由调用方预先压缩好（并给出 CRC32 和大小），
+ * 写入器只负责生成本地文件头、中央目录和目录结束记录，因此压缩工作可以在其他线程中完成。
+ * <p>
+ * 条目数、条目大小或偏移超出 32 位（16 位条目数）限制时自动使用 ZIP64 格式：条目的 ZIP64 扩展字段、
+ * 8 字节大小的数据描述符以及 ZIP64 目录结束记录都只在需要时写入，小压缩文件的格式不变。
+ * 每个条目结束时立即把它的中央目录记录写入暂存缓冲区，不保留条目元数据对象。暂存的中央目录超出内存上限后溢出到临时文件：
+ * 写入文件时上限为一个缓冲区（{@link ZipUtils#BUFFER_SIZE}），压缩写入器本身的内存占用与条目数无关；
+ * 写入通道（网络连接等流式输出）时默认在内存中保留最多 {@link #STREAMING_CENTRAL_MEMORY} 字节（约 20 万个条目）才使用临时文件，
+ * 也可以通过 {@link #ZipArchiveWriter(WritableByteChannel, long)} 指定上限（{@link Long#MAX_VALUE} 表示不使用临时文件）。
+ *
+ * @author vincent
+ */
+class ZipArchiveWriter implements Closeable {
+    /**
+     * 写入通道时默认在内存中保留的中央目录大小上限
+     */
+    static final long STREAMING_CENTRAL_MEMORY = 16L * 1024 * 1024;
+
+    private final WritableByteChannel channel;
+    /**
+     * 从 {@link CodecPool} 借用的直接缓冲区，写入通道时不需要 JDK 再拷贝到临时直接缓冲区
+     */
+    private final ByteBuffer buffer = CodecPool.SHARED.directBuffer();
+    /**
+     * 中央目录的暂存缓冲区，写满后追加到 {@link #centralSpill}
+     */
+    private final ByteBuffer centralBuffer = CodecPool.SHARED.directBuffer();
+    /**
+     * 暂存缓冲区写满后、溢出到临时文件之前保留在堆中的中央目录
+     */
+    private final List<ByteBuffer> centralChunks = new ArrayList<>();
+    private final long centralMemoryLimit;
+    private long centralChunkBytes;
+    private FileChannel centralSpill;
+    private long centralDirectorySize;
+    private long entryCount;
+    private long uncompressedBytes;
+    private ZipEntryRecord current;
+    private long position;
+    private long entryDataStart;
+    private boolean finished;
+    private boolean released;
+
+    ZipArchiveWriter(Path zipPath) throws IOException {
+        this(FileChannel.open(zipPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), 0);
+    }
+
+    ZipArchiveWriter(WritableByteChannel channel) {
+        this(channel, STREAMING_CENTRAL_MEMORY);
+    }
+
+    /**
+     * @param channel            输出通道
+     * @param centralMemoryLimit 暂存缓冲区之外在内存中保留的中央目录大小上限，超出后溢出到临时文件；
+     *                           {@link Long#MAX_VALUE} 表示不使用临时文件
+     */
+    ZipArchiveWriter(WritableByteChannel channel, long centralMemoryLimit) {
+        if (centralMemoryLimit < 0) {
+            throw new IllegalArgumentException("centralMemoryLimit must not be negative: " + centralMemoryLimit);
+        }
+        this.channel = Objects.requireNonNull(channel);
+        this.centralMemoryLimit = centralMemoryLimit;
+    }
+
+    /**
+     * 开始写入新的条目，写入本地文件头
+     * <p>
+     * 如果条目设置了 {@link ZipFormat#FLAG_DATA_DESCRIPTOR}，本地文件头中的 CRC 和大小写 0，
+     * 由 {@link #closeEntry()} 在数据之后写入数据描述符；否则条目的 CRC 和大小必须事先给出。
+     *
+     * @param entry 条目元数据
+     * @throws IOException IO异常
+     */
+    void putEntry(ZipEntryRecord entry) throws IOException {
+        Objects.requireNonNull(entry);
+        if (current != null) {
+            closeEntry();
+        }
+        ensureOpen();
+        boolean deferred = (entry.flags & ZipFormat.FLAG_DATA_DESCRIPTOR) != 0;
+        //大小已知且超出 32 位时，本地文件头中的大小写在 ZIP64 扩展字段中（两个大小都要写）
+        boolean zip64 = !deferred && (entry.size >= ZipFormat.ZIP64_MAGIC || entry.compressedSize >= ZipFormat.ZIP64_MAGIC);
+        if (zip64) {
+            entry.versionNeeded = Math.max(entry.versionNeeded, ZipFormat.VERSION_ZIP64);
+        }
+        int extraLength = entry.extra.length + (zip64 ? 20 : 0);
+        entry.localHeaderOffset = position;
+        ensureCapacity(ZipFormat.LOCAL_HEADER_LENGTH + entry.nameBytes.length + extraLength);
+        buffer.putInt(ZipFormat.LOCAL_HEADER_SIGNATURE);
+        buffer.putShort((short) entry.versionNeeded);
+        buffer.putShort((short) entry.flags);
+        buffer.putShort((short) entry.method);
+        buffer.putInt((int) entry.dosTime);
+        buffer.putInt(deferred ? 0 : (int) entry.crc);
+        buffer.putInt(deferred ? 0 : zip64 ? (int) ZipFormat.ZIP64_MAGIC : (int) entry.compressedSize);
+        buffer.putInt(deferred ? 0 : zip64 ? (int) ZipFormat.ZIP64_MAGIC : (int) entry.size);
+        buffer.putShort((short) entry.nameBytes.length);
+        buffer.putShort((short) extraLength);
+        buffer.put(entry.nameBytes);
+        if (zip64) {
+            buffer.putShort((short) ZipFormat.ZIP64_EXTRA_ID);
+            buffer.putShort((short) 16);
+            buffer.putLong(entry.size);
+            buffer.putLong(entry.compressedSize);
+        }
+        buffer.put(entry.extra);
+        position += ZipFormat.LOCAL_HEADER_LENGTH + entry.nameBytes.length + extraLength;
+        current = entry;
+        entryDataStart = position;
+    }
+
+    /**
+     * 写入当前条目的压缩数据
+     */
+    void write(byte[] b, int off, int len) throws IOException {
+        ensureEntry();
+        position += len;
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 写入当前条目的压缩数据
+     */
+    void write(ByteBuffer src) throws IOException {
+        if (src.hasArray()) {
+            write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            src.position(src.limit());
+            return;
+        }
+        ensureEntry();
+        int n = src.remaining();
+        if (n <= buffer.remaining()) {
+            buffer.put(src);
+        } else {
+            //直接缓冲区不需要经过暂存缓冲区
+            flushBuffer();
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+        }
+        position += n;
+    }
+
+    /**
+     * 把文件中的一段已压缩数据直接传输到当前条目（不经过堆内存）
+     *
+     * @param source   源文件通道
+     * @param offset   源文件中的起始位置
+     * @param count    字节数
+     * @throws IOException IO异常
+     */
+    void transferFrom(FileChannel source, long offset, long count) throws IOException {
+        ensureEntry();
+        flushBuffer();
+        long done = 0;
+        while (done < count) {
+            long n = source.transferTo(offset + done, count - done, channel);
+            if (n <= 0) {
+                throw new ZipException("unexpected end of " + current.name + " payload");
+            }
+            done += n;
+        }
+        position += count;
+    }
+
+    /**
+     * 结束当前条目，校验写入的数据长度，必要时写入数据描述符，并把条目的中央目录记录写入暂存区
+     *
+     * @throws IOException IO异常
+     */
+    void closeEntry() throws IOException {
+        ensureEntry();
+        ZipEntryRecord entry = current;
+        long written = position - entryDataStart;
+        if ((entry.flags & ZipFormat.FLAG_DATA_DESCRIPTOR) != 0) {
+            entry.compressedSize = written;
+            //与 ZipOutputStream 相同：任一大小超出 32 位时数据描述符使用 8 字节的大小
+            if (entry.size >= ZipFormat.ZIP64_MAGIC || entry.compressedSize >= ZipFormat.ZIP64_MAGIC) {
+                entry.versionNeeded = Math.max(entry.versionNeeded, ZipFormat.VERSION_ZIP64);
+                ensureCapacity(ZipFormat.ZIP64_DATA_DESCRIPTOR_LENGTH);
+                buffer.putInt(ZipFormat.DATA_DESCRIPTOR_SIGNATURE);
+                buffer.putInt((int) entry.crc);
+                buffer.putLong(entry.compressedSize);
+                buffer.putLong(entry.size);
+                position += ZipFormat.ZIP64_DATA_DESCRIPTOR_LENGTH;
+            } else {
+                ensureCapacity(ZipFormat.DATA_DESCRIPTOR_LENGTH);
+                buffer.putInt(ZipFormat.DATA_DESCRIPTOR_SIGNATURE);
+                buffer.putInt((int) entry.crc);
+                buffer.putInt((int) entry.compressedSize);
+                buffer.putInt((int) entry.size);
+                position += ZipFormat.DATA_DESCRIPTOR_LENGTH;
+            }
+        } else if (written != entry.compressedSize) {
+            throw new ZipException("invalid entry compressed size for " + entry.name
+                    + " (expected " + entry.compressedSize + " but got " + written + " bytes)");
+        }
+        writeCentralHeader(entry);
+        entryCount++;
+        uncompressedBytes += entry.size;
+        current = null;
+    }
+
+    /**
+     * 把缓冲的数据写入底层通道
+     *
+     * @throws IOException IO异常
+     */
+    void flush() throws IOException {
+        if (!finished) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * 写入中央目录和目录结束记录，不关闭底层通道
+     * <p>
+     * 条目数、中央目录的大小或偏移超出限制时，在目录结束记录之前写入 ZIP64 目录结束记录及其定位器。
+     *
+     * @throws IOException IO异常
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (current != null) {
+            closeEntry();
+        }
+        long centralDirectoryOffset = position;
+        flushBuffer();
+        if (centralSpill != null) {
+            spillCentralBuffer();
+            long done = 0;
+            while (done < centralDirectorySize) {
+                long n = centralSpill.transferTo(done, centralDirectorySize - done, channel);
+                if (n <= 0) {
+                    throw new ZipException("unexpected end of central directory spill");
+                }
+                done += n;
+            }
+        } else {
+            for (ByteBuffer chunk : centralChunks) {
+                writeFully(chunk);
+            }
+            centralChunks.clear();
+            centralBuffer.flip();
+            writeFully(centralBuffer);
+        }
+        position += centralDirectorySize;
+        boolean zip64 = entryCount >= ZipFormat.ZIP64_MAGIC_COUNT
+                || centralDirectorySize >= ZipFormat.ZIP64_MAGIC
+                || centralDirectoryOffset >= ZipFormat.ZIP64_MAGIC;
+        if (zip64) {
+            long zip64EndOffset = position;
+            ensureCapacity(ZipFormat.ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH + ZipFormat.ZIP64_LOCATOR_LENGTH);
+            buffer.putInt(ZipFormat.ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            //记录中此字段之后的长度
+            buffer.putLong(ZipFormat.ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH - 12);
+            buffer.putShort((short) ZipFormat.VERSION_ZIP64);
+            buffer.putShort((short) ZipFormat.VERSION_ZIP64);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putLong(entryCount);
+            buffer.putLong(entryCount);
+            buffer.putLong(centralDirectorySize);
+            buffer.putLong(centralDirectoryOffset);
+            buffer.putInt(ZipFormat.ZIP64_LOCATOR_SIGNATURE);
+            buffer.putInt(0);
+            buffer.putLong(zip64EndOffset);
+            buffer.putInt(1);
+            position += ZipFormat.ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH + ZipFormat.ZIP64_LOCATOR_LENGTH;
+        }
+        ensureCapacity(ZipFormat.END_OF_CENTRAL_DIRECTORY_LENGTH);
+        buffer.putInt(ZipFormat.END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) Math.min(entryCount, ZipFormat.ZIP64_MAGIC_COUNT));
+        buffer.putShort((short) Math.min(entryCount, ZipFormat.ZIP64_MAGIC_COUNT));
+        buffer.putInt((int) Math.min(centralDirectorySize, ZipFormat.ZIP64_MAGIC));
+        buffer.putInt((int) Math.min(centralDirectoryOffset, ZipFormat.ZIP64_MAGIC));
+        buffer.putShort((short) 0);
+        position += ZipFormat.END_OF_CENTRAL_DIRECTORY_LENGTH;
+        flushBuffer();
+        finished = true;
+        release();
+    }
+
+    /**
+     * @return 已完成的条目数
+     */
+    long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return 已完成条目的原始（未压缩）大小之和
+     */
+    long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * @return 已写入的字节数
+     */
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * 关闭底层通道，不写入中央目录
+     * <p>
+     * 没有调用 {@link #finish()} 就关闭说明压缩过程中出错：此时写出的是缺少中央目录的不完整文件，
+     * 不能再补写中央目录（否则得到一个缺少后续条目、看起来却完整的压缩文件），由调用方删除。
+     *
+     * @throws IOException IO异常
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            release();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * 把条目的中央目录记录写入暂存区，超出 32 位的大小和偏移按顺序写在 ZIP64 扩展字段中
+     */
+    private void writeCentralHeader(ZipEntryRecord entry) throws IOException {
+        boolean sizeOverflow = entry.size >= ZipFormat.ZIP64_MAGIC;
+        boolean compressedOverflow = entry.compressedSize >= ZipFormat.ZIP64_MAGIC;
+        boolean offsetOverflow = entry.localHeaderOffset >= ZipFormat.ZIP64_MAGIC;
+        int zip64Length = (sizeOverflow ? 8 : 0) + (compressedOverflow ? 8 : 0) + (offsetOverflow ? 8 : 0);
+        int extraLength = entry.extra.length + (zip64Length > 0 ? 4 + zip64Length : 0);
+        int length = ZipFormat.CENTRAL_HEADER_LENGTH + entry.nameBytes.length + extraLength;
+        if (length > centralBuffer.capacity()) {
+            throw new ZipException("header too large: " + length);
+        }
+        if (centralBuffer.remaining() < length) {
+            spillCentralBuffer();
+        }
+        ByteBuffer cd = centralBuffer;
+        cd.putInt(ZipFormat.CENTRAL_HEADER_SIGNATURE);
+        cd.putShort((short) entry.versionMadeBy);
+        cd.putShort((short) (zip64Length > 0 ? Math.max(entry.versionNeeded, ZipFormat.VERSION_ZIP64) : entry.versionNeeded));
+        cd.putShort((short) entry.flags);
+        cd.putShort((short) entry.method);
+        cd.putInt((int) entry.dosTime);
+        cd.putInt((int) entry.crc);
+        cd.putInt((int) Math.min(entry.compressedSize, ZipFormat.ZIP64_MAGIC));
+        cd.putInt((int) Math.min(entry.size, ZipFormat.ZIP64_MAGIC));
+        cd.putShort((short) entry.nameBytes.length);
+        cd.putShort((short) extraLength);
+        cd.putShort((short) 0);
+        cd.putShort((short) 0);
+        cd.putShort((short) 0);
+        cd.putInt((int) entry.externalAttributes);
+        cd.putInt((int) Math.min(entry.localHeaderOffset, ZipFormat.ZIP64_MAGIC));
+        cd.put(entry.nameBytes);
+        if (zip64Length > 0) {
+            cd.putShort((short) ZipFormat.ZIP64_EXTRA_ID);
+            cd.putShort((short) zip64Length);
+            if (sizeOverflow) {
+                cd.putLong(entry.size);
+            }
+            if (compressedOverflow) {
+                cd.putLong(entry.compressedSize);
+            }
+            if (offsetOverflow) {
+                cd.putLong(entry.localHeaderOffset);
+            }
+        }
+        cd.put(entry.extra);
+        centralDirectorySize += length;
+    }
+
+    /**
+     * 把写满的中央目录暂存缓冲区移到堆中；超出内存上限时连同堆中已有的部分追加到临时文件（首次溢出时创建，关闭时删除）
+     */
+    private void spillCentralBuffer() throws IOException {
+        centralBuffer.flip();
+        if (centralSpill == null && centralChunkBytes + centralBuffer.remaining() <= centralMemoryLimit) {
+            ByteBuffer chunk = ByteBuffer.allocate(centralBuffer.remaining());
+            chunk.put(centralBuffer).flip();
+            centralChunks.add(chunk);
+            centralChunkBytes += chunk.remaining();
+            centralBuffer.clear();
+            return;
+        }
+        if (centralSpill == null) {
+            Path spill = Files.createTempFile("zip-central-", ".tmp");
+            centralSpill = FileChannel.open(spill, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            for (ByteBuffer chunk : centralChunks) {
+                while (chunk.hasRemaining()) {
+                    centralSpill.write(chunk);
+                }
+            }
+            centralChunks.clear();
+        }
+        while (centralBuffer.hasRemaining()) {
+            centralSpill.write(centralBuffer);
+        }
+        centralBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flushBuffer();
+        }
+        if (buffer.remaining() < length) {
+            throw new ZipException("header too large: " + length);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 归还缓冲区、删除中央目录的临时文件，不关闭底层通道（{@link #finish()} 结束时已自动调用）
+     * <p>
+     * 写入调用方的通道时，出错后用它代替 {@link #close()} 清理资源。
+     *
+     * @throws IOException IO异常
+     */
+    void release() throws IOException {
+        if (!released) {
+            released = true;
+            centralChunks.clear();
+            CodecPool.SHARED.release(buffer);
+            CodecPool.SHARED.release(centralBuffer);
+            if (centralSpill != null) {
+                centralSpill.close();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished || released) {
+            throw new IOException("zip archive already finished");
+        }
+    }
+
+    private void ensureEntry() throws IOException {
+        if (current == null) {
+            throw new ZipException("no current zip entry");
+        }
+    }
+}
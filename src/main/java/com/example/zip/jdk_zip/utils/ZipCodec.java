@@ -0,0 +1,55 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * zip 条目的压缩方式（扩展点）
+ * <p>
+ * 写入时按 {@link #method()} 记录在本地文件头和中央目录中，解压缩时按条目的压缩方式查找对应的实现（参见 {@link ZipCodecs}）。
+ * 条目的大小和 CRC32 写在数据描述符中，因此压缩后的数据必须能自己确定结束位置（如 Zstandard 帧、XZ 流）。
+ * 实现必须是线程安全的，每次调用返回新的流。
+ * <p>
+ * 额外的实现可以通过 {@link ZipCodecs#register(ZipCodec)} 注册，
+ * 或者在 META-INF/services/com.example.zip.jdk_zip.utils.ZipCodec 中声明后由 {@link java.util.ServiceLoader} 加载。
+ *
+ * @author vincent
+ */
+public interface ZipCodec {
+
+    /**
+     * @return zip 压缩方式编号（参见 PKWARE APPNOTE.TXT 4.4.5）
+     */
+    int method();
+
+    /**
+     * @return 名称（用于日志和异常信息）
+     */
+    String name();
+
+    /**
+     * @return 解压缩需要的 zip 版本（写入 "version needed to extract"）
+     */
+    default int versionNeeded() {
+        return ZipFormat.VERSION_DEFAULT;
+    }
+
+    /**
+     * 创建压缩流，关闭压缩流时写出剩余的数据，out 由调用方关闭
+     *
+     * @param out 压缩后的数据
+     * @return 压缩流
+     * @throws IOException IO异常
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+
+    /**
+     * 创建解压流
+     *
+     * @param in 压缩的数据（只包含当前条目）
+     * @return 解压后的数据流
+     * @throws IOException IO异常
+     */
+    InputStream decompress(InputStream in) throws IOException;
+}
@@ -0,0 +1,199 @@
+package com.example.zip.jdk_zip.utils;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import io.airlift.compress.zstd.ZstdOutputStream;
+import org.tukaani.xz.BasicArrayCache;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.UnsupportedOptionsException;
+import org.tukaani.xz.XZInputStream;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 内置的压缩方式和按压缩方式编号查找实现的注册表
+ * <p>
+ * DEFLATE 由 {@link EntryPacker} 直接使用池化的 Deflater 压缩，这里的实现只用于统一的查找和解压缩。
+ * Zstandard（93）压缩和解压缩的速度都是 DEFLATE 的数倍，压缩率相近，适合内部使用的压缩文件；
+ * XZ（95）压缩较慢但压缩率更高。两者都是纯 Java 实现，但 JDK 的 ZipFile / ZipInputStream 和很多常见工具无法解压这两种条目。
+ *
+ * @author vincent
+ */
+public final class ZipCodecs {
+    /**
+     * DEFLATE（8），zip 的默认压缩方式
+     */
+    public static final ZipCodec DEFLATE = new ZipCodec() {
+        @Override
+        public int method() {
+            return ZipFormat.METHOD_DEFLATED;
+        }
+
+        @Override
+        public String name() {
+            return "deflate";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            return new DeflaterOutputStream(out, CodecPool.SHARED.deflater(Deflater.DEFAULT_COMPRESSION), ZipUtils.BUFFER_SIZE) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    try {
+                        finish();
+                    } finally {
+                        CodecPool.SHARED.release(def, Deflater.DEFAULT_COMPRESSION);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return ZipIndex.inflate(in);
+        }
+    };
+
+    /**
+     * Zstandard（93）
+     */
+    public static final ZipCodec ZSTD = new ZipCodec() {
+        @Override
+        public int method() {
+            return ZipFormat.METHOD_ZSTD;
+        }
+
+        @Override
+        public String name() {
+            return "zstd";
+        }
+
+        @Override
+        public int versionNeeded() {
+            return ZipFormat.VERSION_EXTENDED_METHODS;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException {
+            return new ZstdOutputStream(out);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return new ZstdInputStream(in);
+        }
+    };
+
+    /**
+     * XZ（95），使用偏向速度的 1 级预设（字典 1 MB），LZMA2 的大数组在线程间复用
+     */
+    public static final ZipCodec XZ = new ZipCodec() {
+        private final LZMA2Options options = options(1);
+
+        @Override
+        public int method() {
+            return ZipFormat.METHOD_XZ;
+        }
+
+        @Override
+        public String name() {
+            return "xz";
+        }
+
+        @Override
+        public int versionNeeded() {
+            return ZipFormat.VERSION_EXTENDED_METHODS;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException {
+            //条目已有 CRC32，XZ 流中不再计算校验值
+            return new XZOutputStream(out, options, org.tukaani.xz.XZ.CHECK_NONE, BasicArrayCache.getInstance());
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) throws IOException {
+            return new XZInputStream(in, BasicArrayCache.getInstance());
+        }
+    };
+
+    private static final ConcurrentMap<Integer, ZipCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        CODECS.put(DEFLATE.method(), DEFLATE);
+        CODECS.put(ZSTD.method(), ZSTD);
+        CODECS.put(XZ.method(), XZ);
+        for (ZipCodec codec : ServiceLoader.load(ZipCodec.class)) {
+            register(codec);
+        }
+    }
+
+    private ZipCodecs() {
+    }
+
+    /**
+     * 注册压缩方式（替换同一编号已有的实现）
+     *
+     * @param codec 压缩方式
+     * @throws IllegalArgumentException 编号为 STORED（0）
+     */
+    public static void register(ZipCodec codec) {
+        Objects.requireNonNull(codec, "codec");
+        if (codec.method() == ZipFormat.METHOD_STORED) {
+            throw new IllegalArgumentException("method 0 (stored) cannot be replaced");
+        }
+        CODECS.put(codec.method(), codec);
+    }
+
+    /**
+     * @param method zip 压缩方式编号
+     * @return 对应的实现，未注册时返回 null
+     */
+    public static ZipCodec forMethod(int method) {
+        return CODECS.get(method);
+    }
+
+    /**
+     * 按条目的压缩方式创建解压流（STORED 直接返回 in）
+     *
+     * @param method 条目的压缩方式
+     * @param name   条目名称（用于异常信息）
+     * @param in     条目的原始数据
+     * @return 解压后的数据流
+     * @throws ZipException 压缩方式未注册（此时 in 已关闭）
+     */
+    static InputStream decompress(int method, String name, InputStream in) throws IOException {
+        if (method == ZipFormat.METHOD_STORED) {
+            return in;
+        }
+        ZipCodec codec = forMethod(method);
+        if (codec == null) {
+            in.close();
+            throw new ZipException("unsupported compression method " + method + " for " + name);
+        }
+        return codec.decompress(in);
+    }
+
+    private static LZMA2Options options(int preset) {
+        try {
+            return new LZMA2Options(preset);
+        } catch (UnsupportedOptionsException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * zip 条目的元数据（本地文件头和中央目录共用）
+ *
+ * @author vincent
+ */
+final class ZipEntryRecord {
+    final String name;
+    final byte[] nameBytes;
+    int versionMadeBy = ZipFormat.VERSION_DEFAULT;
+    int versionNeeded = ZipFormat.VERSION_DEFAULT;
+    int flags;
+    int method;
+    long dosTime;
+    long crc;
+    long compressedSize;
+    long size;
+    byte[] extra = new byte[0];
+    long externalAttributes;
+    long localHeaderOffset;
+
+    ZipEntryRecord(String name) {
+        this.name = name;
+        this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length != name.length()) {
+            flags |= ZipFormat.FLAG_UTF8;
+        }
+    }
+
+    /**
+     * 使用原始的名称字节（原样拷贝其他压缩文件中的条目时使用，不改变名称编码）
+     */
+    ZipEntryRecord(String name, byte[] nameBytes) {
+        this.name = name;
+        this.nameBytes = nameBytes;
+    }
+
+    ZipEntryRecord method(int method) {
+        this.method = method;
+        return this;
+    }
+
+    ZipEntryRecord lastModified(long millis) {
+        this.dosTime = ZipFormat.javaToDosTime(millis);
+        return this;
+    }
+
+    ZipEntryRecord sizes(long crc, long compressedSize, long size) {
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        return this;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * zip 文件格式常量（参见 PKWARE APPNOTE.TXT）
+ *
+ * @author vincent
+ */
+final class ZipFormat {
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    static final int LOCAL_HEADER_LENGTH = 30;
+    static final int CENTRAL_HEADER_LENGTH = 46;
+    static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH = 56;
+    static final int ZIP64_LOCATOR_LENGTH = 20;
+    static final int DATA_DESCRIPTOR_LENGTH = 16;
+    static final int ZIP64_DATA_DESCRIPTOR_LENGTH = 24;
+
+    /**
+     * ZIP64 扩展字段的标识
+     */
+    static final int ZIP64_EXTRA_ID = 0x0001;
+    /**
+     * 32 位字段的溢出标记，大于等于该值的大小和偏移写在 ZIP64 扩展字段中
+     */
+    static final long ZIP64_MAGIC = 0xffffffffL;
+    /**
+     * 16 位条目数的溢出标记
+     */
+    static final int ZIP64_MAGIC_COUNT = 0xffff;
+
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATED = 8;
+    static final int METHOD_ZSTD = 93;
+    static final int METHOD_XZ = 95;
+
+    static final int VERSION_DEFAULT = 20;
+    static final int VERSION_ZIP64 = 45;
+    /**
+     * 使用 LZMA、XZ、Zstandard 等压缩方式时需要的版本（APPNOTE 6.3）
+     */
+    static final int VERSION_EXTENDED_METHODS = 63;
+
+    /**
+     * 通用标志位：条目已加密
+     */
+    static final int FLAG_ENCRYPTED = 1;
+    /**
+     * 通用标志位：条目大小和 CRC 写在数据描述符中
+     */
+    static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    /**
+     * 通用标志位：文件名使用 UTF-8 编码
+     */
+    static final int FLAG_UTF8 = 1 << 11;
+
+    private static final long DOS_TIME_MIN = 0x00210000L;
+
+    private ZipFormat() {
+    }
+
+    /**
+     * 把相对路径转换为 zip 条目名称（统一使用 '/' 作为分隔符）
+     *
+     * @param relativePath 相对路径
+     * @return 条目名称
+     */
+    static String entryName(Path relativePath) {
+        StringBuilder sb = new StringBuilder();
+        for (Path part : relativePath) {
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(part.toString());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 把 Java 时间戳转换为 MS-DOS 日期时间
+     *
+     * @param millis 毫秒时间戳
+     * @return MS-DOS 日期时间
+     */
+    static long javaToDosTime(long millis) {
+        LocalDateTime d = LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        int year = d.getYear();
+        if (year < 1980) {
+            return DOS_TIME_MIN;
+        }
+        return ((year - 1980) << 25 | d.getMonthValue() << 21 | d.getDayOfMonth() << 16
+                | d.getHour() << 11 | d.getMinute() << 5 | d.getSecond() >> 1) & 0xffffffffL;
+    }
+
+    /**
+     * 把 MS-DOS 日期时间转换为 Java 时间戳（精度 2 秒）
+     *
+     * @param dosTime MS-DOS 日期时间
+     * @return 毫秒时间戳
+     */
+    static long dosToJavaTime(long dosTime) {
+        //与 java.util.zip 一样宽松处理越界的字段（如月份为 0）
+        LocalDateTime d = LocalDateTime.of((int) (((dosTime >> 25) & 0x7f) + 1980), 1, 1, 0, 0)
+                .plusMonths(((dosTime >> 21) & 0x0f) - 1)
+                .plusDays(((dosTime >> 16) & 0x1f) - 1)
+                .plusHours((dosTime >> 11) & 0x1f)
+                .plusMinutes((dosTime >> 5) & 0x3f)
+                .plusSeconds((dosTime << 1) & 0x3e);
+        return d.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,593 @@
+package com.example.zip.jdk_zip.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 基于内存映射的中央目录索引
+ * <p>
+ * 打开时只把目录结束记录和中央目录映射到内存（支持 ZIP64），并用基本类型数组构建 名称 → 中央目录偏移 的开放寻址哈希表，
+ * 条目元数据直接从映射区读取，不为每个条目创建对象。按名称读取单个条目是 O(1) 的，不需要遍历整个压缩文件。
+ * 索引打开后可以被多个线程同时使用。
+ *
+ * @author vincent
+ */
+public final class ZipIndex implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer centralDirectory;
+    private final int size;
+    /**
+     * 第 i 个条目在中央目录中的偏移
+     */
+    private final int[] offsets;
+    /**
+     * 第 i 个条目名称的哈希值
+     */
+    private final int[] hashes;
+    /**
+     * 开放寻址哈希表，存放条目序号 + 1（0 表示空槽）
+     */
+    private final int[] table;
+
+    private ZipIndex(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        long fileSize = channel.size();
+        int tailLength = (int) Math.min(fileSize, ZipFormat.END_OF_CENTRAL_DIRECTORY_LENGTH + 0xffff + ZipFormat.ZIP64_LOCATOR_LENGTH);
+        ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, fileSize - tailLength, tailLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = findEndOfCentralDirectory(tail);
+        if (eocd < 0) {
+            throw new ZipException("zip END header not found: " + path);
+        }
+        long entries = tail.getShort(eocd + 10) & 0xffff;
+        long cdSize = tail.getInt(eocd + 12) & 0xffffffffL;
+        long cdOffset = tail.getInt(eocd + 16) & 0xffffffffL;
+        if (entries == 0xffff || cdSize == 0xffffffffL || cdOffset == 0xffffffffL) {
+            //ZIP64：从 ZIP64 目录结束记录定位器中找到 ZIP64 目录结束记录
+            int locator = eocd - ZipFormat.ZIP64_LOCATOR_LENGTH;
+            if (locator >= 0 && tail.getInt(locator) == ZipFormat.ZIP64_LOCATOR_SIGNATURE) {
+                long zip64End = tail.getLong(locator + 8);
+                ByteBuffer record = read(zip64End, ZipFormat.ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH);
+                if (record.getInt(0) != ZipFormat.ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new ZipException("invalid ZIP64 END header: " + path);
+                }
+                entries = record.getLong(32);
+                cdSize = record.getLong(40);
+                cdOffset = record.getLong(48);
+            }
+        }
+        if (cdSize > Integer.MAX_VALUE || entries > Integer.MAX_VALUE / 2 || cdOffset + cdSize > fileSize) {
+            throw new ZipException("invalid or unsupported central directory: " + path);
+        }
+        this.centralDirectory = channel.map(FileChannel.MapMode.READ_ONLY, cdOffset, cdSize);
+        this.centralDirectory.order(ByteOrder.LITTLE_ENDIAN);
+        this.size = (int) entries;
+        this.offsets = new int[size];
+        this.hashes = new int[size];
+        this.table = new int[tableSize(size)];
+        buildIndex((int) cdSize);
+    }
+
+    /**
+     * 打开 zip 文件并构建中央目录索引
+     *
+     * @param zipPath 压缩文件路径
+     * @return 中央目录索引
+     * @throws IOException IO异常
+     */
+    public static ZipIndex open(Path zipPath) throws IOException {
+        FileChannel channel = FileChannel.open(zipPath, StandardOpenOption.READ);
+        try {
+            return new ZipIndex(zipPath, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return 压缩文件路径
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return 条目数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param name 条目名称
+     * @return 是否包含该条目
+     */
+    public boolean contains(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * 按名称查找条目
+     *
+     * @param name 条目名称
+     * @return 条目，不存在时返回 null
+     */
+    public Entry getEntry(String name) {
+        int i = indexOf(name);
+        return i < 0 ? null : new Entry(i);
+    }
+
+    /**
+     * @return 按中央目录顺序遍历全部条目
+     */
+    public Iterator<Entry> entries() {
+        return new Iterator<Entry>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Entry next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return new Entry(next++);
+            }
+        };
+    }
+
+    /**
+     * 打开条目的解压缩输入流
+     *
+     * @param name 条目名称
+     * @return 解压后的数据流
+     * @throws IOException 条目不存在、已加密或压缩方式不支持
+     */
+    public InputStream openEntry(String name) throws IOException {
+        Entry entry = getEntry(name);
+        if (entry == null) {
+            throw new NoSuchFileException(path + "!/" + name);
+        }
+        return entry.open();
+    }
+
+    /**
+     * 打开条目的解压缩通道，STORED 条目直接返回文件中的数据区间，不经过任何缓冲
+     *
+     * @param name 条目名称
+     * @return 解压后的数据通道
+     * @throws IOException 条目不存在、已加密或压缩方式不支持
+     */
+    public ReadableByteChannel openEntryChannel(String name) throws IOException {
+        Entry entry = getEntry(name);
+        if (entry == null) {
+            throw new NoSuchFileException(path + "!/" + name);
+        }
+        if (entry.getMethod() == ZipFormat.METHOD_STORED && !entry.isEncrypted()) {
+            return entry.openRawChannel();
+        }
+        return Channels.newChannel(entry.open());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return 压缩文件通道（只能使用按位置读取的方法）
+     */
+    FileChannel channel() {
+        return channel;
+    }
+
+    private void buildIndex(int cdSize) throws ZipException {
+        ByteBuffer cd = centralDirectory;
+        int pos = 0;
+        int mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            if (pos + ZipFormat.CENTRAL_HEADER_LENGTH > cdSize || cd.getInt(pos) != ZipFormat.CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("invalid central directory header at " + pos + ": " + path);
+            }
+            int nameLength = cd.getShort(pos + 28) & 0xffff;
+            int extraLength = cd.getShort(pos + 30) & 0xffff;
+            int commentLength = cd.getShort(pos + 32) & 0xffff;
+            int hash = hash(cd, pos + ZipFormat.CENTRAL_HEADER_LENGTH, nameLength);
+            offsets[i] = pos;
+            hashes[i] = hash;
+            //同名条目保留第一个，与 java.util.zip.ZipFile 的行为一致
+            int slot = hash & mask;
+            while (true) {
+                int existing = table[slot] - 1;
+                if (existing < 0) {
+                    table[slot] = i + 1;
+                    break;
+                }
+                if (hashes[existing] == hash && nameEquals(existing, cd, pos + ZipFormat.CENTRAL_HEADER_LENGTH, nameLength)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            pos += ZipFormat.CENTRAL_HEADER_LENGTH + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private int indexOf(String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer key = ByteBuffer.wrap(nameBytes);
+        int hash = hash(key, 0, nameBytes.length);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            int i = table[slot] - 1;
+            if (i < 0) {
+                return -1;
+            }
+            if (hashes[i] == hash && nameEquals(i, key, 0, nameBytes.length)) {
+                return i;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean nameEquals(int i, ByteBuffer other, int otherPos, int length) {
+        int pos = offsets[i];
+        if ((centralDirectory.getShort(pos + 28) & 0xffff) != length) {
+            return false;
+        }
+        int namePos = pos + ZipFormat.CENTRAL_HEADER_LENGTH;
+        for (int k = 0; k < length; k++) {
+            if (centralDirectory.get(namePos + k) != other.get(otherPos + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a 哈希
+     */
+    private static int hash(ByteBuffer buffer, int pos, int length) {
+        int h = 0x811c9dc5;
+        for (int k = 0; k < length; k++) {
+            h ^= buffer.get(pos + k) & 0xff;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSize(int entries) {
+        int n = 16;
+        while (n < entries * 2) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer tail) {
+        for (int pos = tail.limit() - ZipFormat.END_OF_CENTRAL_DIRECTORY_LENGTH; pos >= 0; pos--) {
+            if (tail.getInt(pos) == ZipFormat.END_OF_CENTRAL_DIRECTORY_SIGNATURE
+                    && pos + ZipFormat.END_OF_CENTRAL_DIRECTORY_LENGTH + (tail.getShort(pos + 20) & 0xffff) == tail.limit()) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("unexpected end of " + path);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 索引中的一个条目，元数据按需从映射的中央目录中读取
+     */
+    public final class Entry {
+        private final int index;
+        private long compressedSize;
+        private long size;
+        private long localHeaderOffset;
+
+        private Entry(int index) {
+            this.index = index;
+            int pos = offsets[index];
+            compressedSize = centralDirectory.getInt(pos + 20) & 0xffffffffL;
+            size = centralDirectory.getInt(pos + 24) & 0xffffffffL;
+            localHeaderOffset = centralDirectory.getInt(pos + 42) & 0xffffffffL;
+            if (compressedSize == 0xffffffffL || size == 0xffffffffL || localHeaderOffset == 0xffffffffL) {
+                readZip64Extra(pos);
+            }
+        }
+
+        public String getName() {
+            return new String(getNameBytes(), StandardCharsets.UTF_8);
+        }
+
+        byte[] getNameBytes() {
+            int pos = offsets[index];
+            return bytes(pos + ZipFormat.CENTRAL_HEADER_LENGTH, centralDirectory.getShort(pos + 28) & 0xffff);
+        }
+
+        int getVersionMadeBy() {
+            return centralDirectory.getShort(offsets[index] + 4) & 0xffff;
+        }
+
+        int getVersionNeeded() {
+            return centralDirectory.getShort(offsets[index] + 6) & 0xffff;
+        }
+
+        long getExternalAttributes() {
+            return centralDirectory.getInt(offsets[index] + 38) & 0xffffffffL;
+        }
+
+        /**
+         * @return 中央目录中的扩展字段（去掉 ZIP64 扩展字段，由写入器按需重新生成）
+         */
+        byte[] getExtra() {
+            int pos = offsets[index];
+            int nameLength = centralDirectory.getShort(pos + 28) & 0xffff;
+            int extraLength = centralDirectory.getShort(pos + 30) & 0xffff;
+            int extra = pos + ZipFormat.CENTRAL_HEADER_LENGTH + nameLength;
+            int end = extra + extraLength;
+            ByteArrayOutputStream out = new ByteArrayOutputStream(extraLength);
+            while (extra + 4 <= end) {
+                int id = centralDirectory.getShort(extra) & 0xffff;
+                int length = centralDirectory.getShort(extra + 2) & 0xffff;
+                if (extra + 4 + length > end) {
+                    break;
+                }
+                if (id != ZipFormat.ZIP64_EXTRA_ID) {
+                    byte[] field = bytes(extra, 4 + length);
+                    out.write(field, 0, field.length);
+                }
+                extra += 4 + length;
+            }
+            return out.toByteArray();
+        }
+
+        private byte[] bytes(int pos, int length) {
+            byte[] bytes = new byte[length];
+            for (int k = 0; k < length; k++) {
+                bytes[k] = centralDirectory.get(pos + k);
+            }
+            return bytes;
+        }
+
+        public boolean isDirectory() {
+            int pos = offsets[index];
+            int nameLength = centralDirectory.getShort(pos + 28) & 0xffff;
+            return nameLength > 0 && centralDirectory.get(pos + ZipFormat.CENTRAL_HEADER_LENGTH + nameLength - 1) == '/';
+        }
+
+        public int getFlags() {
+            return centralDirectory.getShort(offsets[index] + 8) & 0xffff;
+        }
+
+        public boolean isEncrypted() {
+            return (getFlags() & ZipFormat.FLAG_ENCRYPTED) != 0;
+        }
+
+        public int getMethod() {
+            return centralDirectory.getShort(offsets[index] + 10) & 0xffff;
+        }
+
+        /**
+         * @return MS-DOS 格式的最后修改时间
+         */
+        public long getDosTime() {
+            return centralDirectory.getInt(offsets[index] + 12) & 0xffffffffL;
+        }
+
+        public long getCrc() {
+            return centralDirectory.getInt(offsets[index] + 16) & 0xffffffffL;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+
+        /**
+         * @return 条目数据在压缩文件中的起始位置（跳过本地文件头）
+         * @throws IOException IO异常
+         */
+        public long getDataOffset() throws IOException {
+            ByteBuffer header = read(localHeaderOffset, ZipFormat.LOCAL_HEADER_LENGTH);
+            if (header.getInt(0) != ZipFormat.LOCAL_HEADER_SIGNATURE) {
+                throw new ZipException("invalid LOC header for " + getName() + ": " + path);
+            }
+            return localHeaderOffset + ZipFormat.LOCAL_HEADER_LENGTH
+                    + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+        }
+
+        /**
+         * @return 条目的原始（未解压）数据通道
+         * @throws IOException IO异常
+         */
+        public ReadableByteChannel openRawChannel() throws IOException {
+            return new SliceChannel(channel, getDataOffset(), compressedSize);
+        }
+
+        /**
+         * @return 解压后的数据流
+         * @throws IOException 条目已加密或压缩方式不支持
+         */
+        public InputStream open() throws IOException {
+            if (isEncrypted()) {
+                throw new ZipException("encrypted entry: " + getName());
+            }
+            InputStream raw = Channels.newInputStream(openRawChannel());
+            switch (getMethod()) {
+                case ZipFormat.METHOD_STORED:
+                    return raw;
+                case ZipFormat.METHOD_DEFLATED:
+                    return new RawInflaterInputStream(raw);
+                default:
+                    return ZipCodecs.decompress(getMethod(), getName(), raw);
+            }
+        }
+
+        private void readZip64Extra(int pos) {
+            int nameLength = centralDirectory.getShort(pos + 28) & 0xffff;
+            int extraLength = centralDirectory.getShort(pos + 30) & 0xffff;
+            int extra = pos + ZipFormat.CENTRAL_HEADER_LENGTH + nameLength;
+            int end = extra + extraLength;
+            while (extra + 4 <= end) {
+                int id = centralDirectory.getShort(extra) & 0xffff;
+                int length = centralDirectory.getShort(extra + 2) & 0xffff;
+                if (id == ZipFormat.ZIP64_EXTRA_ID) {
+                    int field = extra + 4;
+                    if (size == 0xffffffffL) {
+                        size = centralDirectory.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == 0xffffffffL) {
+                        compressedSize = centralDirectory.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == 0xffffffffL) {
+                        localHeaderOffset = centralDirectory.getLong(field);
+                    }
+                    return;
+                }
+                extra += 4 + length;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+
+    /**
+     * 文件中一段区间的只读通道（使用按位置读取，多个通道可以并发读取同一个文件）
+     */
+    private static final class SliceChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        private boolean open = true;
+
+        SliceChannel(FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            long remaining = end - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            ByteBuffer target = dst;
+            if (dst.remaining() > remaining) {
+                target = dst.duplicate();
+                target.limit(target.position() + (int) remaining);
+            }
+            int n = channel.read(target, position);
+            if (n < 0) {
+                throw new EOFException("unexpected end of zip entry data");
+            }
+            if (target != dst) {
+                dst.position(target.position());
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    /**
+     * @param in 原始 DEFLATE 数据
+     * @return 解压后的数据流（使用池化的 Inflater，关闭时归还）
+     */
+    static InputStream inflate(InputStream in) {
+        return new RawInflaterInputStream(in);
+    }
+
+    /**
+     * 解压原始 DEFLATE 数据（没有 zlib 头），在输入结束时补一个哑字节（参见 {@link Inflater} 的 nowrap 说明）
+     */
+    private static final class RawInflaterInputStream extends InflaterInputStream {
+        private boolean eof;
+        private boolean closed;
+
+        RawInflaterInputStream(InputStream in) {
+            super(in, CodecPool.SHARED.inflater(), ZipUtils.BUFFER_SIZE);
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("unexpected end of zip entry data");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                CodecPool.SHARED.release(inf);
+                super.close();
+            }
+        }
+    }
+}
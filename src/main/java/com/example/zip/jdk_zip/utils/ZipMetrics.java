@@ -0,0 +1,318 @@
+package com.example.zip.jdk_zip.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 压缩 / 解压缩操作的 Micrometer 指标
+ * <p>
+ * 默认不记录任何指标：{@link #start(String, String)} 返回空操作，只多一次 volatile 读。
+ * 调用 {@link #bind(MeterRegistry)} 之后每个操作记录：
+ * <ul>
+ *     <li>zip.operation（Timer）：耗时，标签 engine、operation、outcome</li>
+ *     <li>zip.operation.active（Gauge）：正在执行的操作数，标签 engine</li>
+ *     <li>zip.operation.errors（Counter）：失败次数，标签 engine、operation、cause（异常类名）</li>
+ *     <li>zip.bytes.in / zip.bytes.out（Counter）：读入和写出的字节数</li>
+ *     <li>zip.entries（Counter）：处理的条目数</li>
+ *     <li>zip.compression.ratio（DistributionSummary）：压缩操作（{@link Operation#markPack()}）的 压缩后 / 压缩前 比例</li>
+ * </ul>
+ * 以及池化资源：zip.codec.pool.created（{@link CodecPool} 新建的对象数）、
+ * zip.codec.pool.idle（池中空闲的对象数，标签 type：deflater、inflater、buffer、direct_buffer）。
+ * 调用方持有的 {@link PayloadCache} 和 {@link ArchiveHandleCache} 的指标分别由 {@link #bindPayloadCache(MeterRegistry, PayloadCache)}
+ * 和 {@link #bindHandleCache(MeterRegistry, String, ArchiveHandleCache)} 单独注册。
+ *
+ * @author vincent
+ */
+public final class ZipMetrics {
+    /**
+     * jdk_zip 引擎
+     */
+    public static final String ENGINE_JDK = "jdk";
+    /**
+     * zip4j 引擎
+     */
+    public static final String ENGINE_ZIP4J = "zip4j";
+
+    private static final ZipMetrics NOOP = new ZipMetrics(null);
+    private static volatile ZipMetrics current = NOOP;
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Meters> meters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> active = new ConcurrentHashMap<>();
+
+    private ZipMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 开始记录指标（替换之前绑定的注册表），Spring Boot 中通过 MeterBinder bean 调用
+     *
+     * @param registry 指标注册表
+     */
+    public static void bind(MeterRegistry registry) {
+        Objects.requireNonNull(registry, "registry");
+        bindResources(registry);
+        current = new ZipMetrics(registry);
+    }
+
+    /**
+     * 停止记录指标（已注册的指标保留在注册表中）
+     */
+    public static void unbind() {
+        current = NOOP;
+    }
+
+    /**
+     * 开始一个操作，调用方必须在结束时调用 {@link Operation#success()} 或 {@link Operation#failure(Throwable)}
+     *
+     * @param engine    引擎（{@link #ENGINE_JDK}、{@link #ENGINE_ZIP4J}）
+     * @param operation 操作名称
+     * @return 操作
+     */
+    public static Operation start(String engine, String operation) {
+        ZipMetrics metrics = current;
+        if (metrics.registry == null) {
+            return Operation.NOOP;
+        }
+        return new Operation(metrics, engine, operation);
+    }
+
+    /**
+     * 在一个操作中执行 body，body 返回或抛出异常时结束操作
+     *
+     * @param engine    引擎
+     * @param operation 操作名称
+     * @param body      操作内容，可以通过参数记录条目数和字节数
+     * @return body 的返回值
+     * @throws IOException body 抛出的异常
+     */
+    public static <T> T record(String engine, String operation, Body<T> body) throws IOException {
+        Operation metrics = start(engine, operation);
+        try {
+            T result = body.run(metrics);
+            metrics.success();
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            metrics.failure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 注册压缩数据缓存的指标：zip.payload.cache.size（条目数）、zip.payload.cache.bytes（占用的磁盘空间）、
+     * zip.payload.cache.hits / misses / evictions，以及 zip.payload.cache.bytes.saved（命中时不需要压缩的原始字节数）
+     *
+     * @param registry 指标注册表
+     * @param cache    压缩数据缓存
+     */
+    public static void bindPayloadCache(MeterRegistry registry, PayloadCache cache) {
+        Objects.requireNonNull(registry, "registry");
+        Objects.requireNonNull(cache, "cache");
+        Tags tags = Tags.of("dir", cache.getDir().toString());
+        Gauge.builder("zip.payload.cache.size", cache, PayloadCache::size).tags(tags).register(registry);
+        Gauge.builder("zip.payload.cache.bytes", cache, PayloadCache::getBytes).tags(tags).baseUnit("bytes").register(registry);
+        FunctionCounter.builder("zip.payload.cache.hits", cache, PayloadCache::getHits).tags(tags).register(registry);
+        FunctionCounter.builder("zip.payload.cache.misses", cache, PayloadCache::getMisses).tags(tags).register(registry);
+        FunctionCounter.builder("zip.payload.cache.evictions", cache, PayloadCache::getEvictions).tags(tags).register(registry);
+        FunctionCounter.builder("zip.payload.cache.bytes.saved", cache, PayloadCache::getBytesSaved).tags(tags)
+                .baseUnit("bytes").register(registry);
+    }
+
+    private static void bindResources(MeterRegistry registry) {
+        FunctionCounter.builder("zip.codec.pool.created", CodecPool.SHARED, CodecPool::getCreated)
+                .description("Deflater, Inflater and buffers created because the pool was empty")
+                .register(registry);
+        Gauge.builder("zip.codec.pool.idle", CodecPool.SHARED, CodecPool::getIdleDeflaters).tag("type", "deflater")
+                .register(registry);
+        Gauge.builder("zip.codec.pool.idle", CodecPool.SHARED, CodecPool::getIdleInflaters).tag("type", "inflater")
+                .register(registry);
+        Gauge.builder("zip.codec.pool.idle", CodecPool.SHARED, CodecPool::getIdleBuffers).tag("type", "buffer")
+                .register(registry);
+        Gauge.builder("zip.codec.pool.idle", CodecPool.SHARED, CodecPool::getIdleDirectBuffers).tag("type", "direct_buffer")
+                .register(registry);
+    }
+
+    /**
+     * 注册压缩文件句柄缓存的指标：zip.handle.cache.size（缓存的句柄数）、zip.handle.cache.hits / misses / evictions
+     *
+     * @param registry 指标注册表
+     * @param name     缓存名称（标签 cache）
+     * @param cache    句柄缓存
+     */
+    public static void bindHandleCache(MeterRegistry registry, String name, ArchiveHandleCache<?> cache) {
+        Objects.requireNonNull(registry, "registry");
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(cache, "cache");
+        Tags tags = Tags.of("cache", name);
+        Gauge.builder("zip.handle.cache.size", cache, ArchiveHandleCache::size).tags(tags).register(registry);
+        FunctionCounter.builder("zip.handle.cache.hits", cache, ArchiveHandleCache::getHits).tags(tags).register(registry);
+        FunctionCounter.builder("zip.handle.cache.misses", cache, ArchiveHandleCache::getMisses).tags(tags).register(registry);
+        FunctionCounter.builder("zip.handle.cache.evictions", cache, ArchiveHandleCache::getEvictions).tags(tags).register(registry);
+    }
+
+    private Meters meters(String engine, String operation) {
+        return meters.computeIfAbsent(engine + '/' + operation, key -> new Meters(engine, operation));
+    }
+
+    private AtomicInteger active(String engine) {
+        return active.computeIfAbsent(engine, key -> registry.gauge("zip.operation.active",
+                Tags.of("engine", engine), new AtomicInteger()));
+    }
+
+    /**
+     * 在 {@link #record(String, String, Body)} 中执行的操作内容
+     */
+    @FunctionalInterface
+    public interface Body<T> {
+        T run(Operation operation) throws IOException;
+    }
+
+    /**
+     * 单个操作的指标，只能在一个线程中使用
+     */
+    public static final class Operation {
+        private static final Operation NOOP = new Operation(null, null, null);
+
+        private final ZipMetrics metrics;
+        private final String engine;
+        private final String operation;
+        private final long start;
+        private long entries;
+        private long bytesIn;
+        private long bytesOut;
+        private boolean pack;
+        private boolean ended;
+
+        private Operation(ZipMetrics metrics, String engine, String operation) {
+            this.metrics = metrics;
+            this.engine = engine;
+            this.operation = operation;
+            if (metrics == null) {
+                this.start = 0;
+            } else {
+                this.start = System.nanoTime();
+                metrics.active(engine).incrementAndGet();
+            }
+        }
+
+        /**
+         * 累加处理的条目数和字节数
+         *
+         * @param entries  条目数
+         * @param bytesIn  读入的字节数（压缩时为原始大小，解压缩时为压缩文件大小）
+         * @param bytesOut 写出的字节数
+         */
+        public void add(long entries, long bytesIn, long bytesOut) {
+            this.entries += entries;
+            this.bytesIn += bytesIn;
+            this.bytesOut += bytesOut;
+        }
+
+        /**
+         * 标记为压缩操作：成功结束时记录 zip.compression.ratio（写出 / 读入的字节数），与操作名称无关
+         */
+        public void markPack() {
+            pack = true;
+        }
+
+        /**
+         * 累加 zip 文件写入器中已完成的条目，并标记为压缩操作
+         */
+        void add(ZipArchiveWriter writer) {
+            if (metrics == null) {
+                return;
+            }
+            markPack();
+            add(writer.getEntryCount(), writer.getUncompressedBytes(), writer.getPosition());
+        }
+
+        /**
+         * 累加解压缩的统计信息
+         */
+        void add(UnpackStats stats, long archiveBytes) {
+            add(stats.getEntries(), archiveBytes, stats.getBytes());
+        }
+
+        public void success() {
+            end(null);
+        }
+
+        public void failure(Throwable cause) {
+            end(cause);
+        }
+
+        private void end(Throwable cause) {
+            if (metrics == null || ended) {
+                return;
+            }
+            ended = true;
+            metrics.active(engine).decrementAndGet();
+            Meters meters = metrics.meters(engine, operation);
+            long elapsed = System.nanoTime() - start;
+            if (cause == null) {
+                meters.success.record(elapsed, TimeUnit.NANOSECONDS);
+            } else {
+                meters.error.record(elapsed, TimeUnit.NANOSECONDS);
+                Counter.builder("zip.operation.errors")
+                        .tags(meters.tags)
+                        .tag("cause", cause.getClass().getSimpleName())
+                        .register(metrics.registry)
+                        .increment();
+            }
+            meters.entries.increment(entries);
+            meters.bytesIn.increment(bytesIn);
+            meters.bytesOut.increment(bytesOut);
+            if (pack && bytesIn > 0 && cause == null) {
+                meters.ratio().record((double) bytesOut / bytesIn);
+            }
+        }
+    }
+
+    /**
+     * 一种操作的全部指标，首次使用时注册
+     */
+    private final class Meters {
+        final Tags tags;
+        final Timer success;
+        final Timer error;
+        final Counter entries;
+        final Counter bytesIn;
+        final Counter bytesOut;
+        private volatile DistributionSummary ratio;
+
+        Meters(String engine, String operation) {
+            this.tags = Tags.of("engine", engine, "operation", operation);
+            this.success = Timer.builder("zip.operation").tags(tags).tag("outcome", "success").register(registry);
+            this.error = Timer.builder("zip.operation").tags(tags).tag("outcome", "error").register(registry);
+            this.entries = Counter.builder("zip.entries").tags(tags).register(registry);
+            this.bytesIn = Counter.builder("zip.bytes.in").baseUnit("bytes").tags(tags).register(registry);
+            this.bytesOut = Counter.builder("zip.bytes.out").baseUnit("bytes").tags(tags).register(registry);
+        }
+
+        /**
+         * 只有压缩操作记录压缩比例，首次记录时注册
+         */
+        DistributionSummary ratio() {
+            DistributionSummary summary = ratio;
+            if (summary == null) {
+                //注册表对相同名称和标签返回同一个实例，并发注册也没有问题
+                summary = DistributionSummary.builder("zip.compression.ratio").tags(tags)
+                        .publishPercentiles(0.5, 0.95).register(registry);
+                ratio = summary;
+            }
+            return summary;
+        }
+    }
+}
@@ -2,26 +2,35 @@ package com.example.zip.jdk_zip.utils;
 
 import io.vavr.CheckedConsumer;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 
-import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
 /**
  * @author vincent
  */
 public class ZipUtils {
-    private static final String EXTENSION = ".zip";
+    static final String EXTENSION = ".zip";
+    /**
+     * 流式拷贝使用的固定缓冲区大小，压缩任意大小的文件时堆内存占用都保持不变
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
 
     /**
      * 压缩文件
@@ -48,6 +57,27 @@ public class ZipUtils {
      * @throws IOException IO异常
      */
     public static void packFile(String filePath, String desDirPath) throws IOException {
+        packFile(filePath, desDirPath, ZipCodecs.DEFLATE);
+    }
+
+    /**
+     * 使用指定的压缩方式压缩文件到指定目录
+     *
+     * @param filePath   需要压缩的文件路径
+     * @param desDirPath 压缩到指定文件目录（该目录必须存在，否则抛出异常）
+     * @param codec      压缩方式（文件不可压缩时仍以 STORED 方式写入）
+     * @throws IOException IO异常
+     * @see #packDir(String, ZipCodec)
+     */
+    public static void packFile(String filePath, String desDirPath, ZipCodec codec) throws IOException {
+        Objects.requireNonNull(codec, "codec");
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "packFile", metrics -> {
+            packFile(filePath, desDirPath, codec, metrics);
+            return null;
+        });
+    }
+
+    private static void packFile(String filePath, String desDirPath, ZipCodec codec, ZipMetrics.Operation metrics) throws IOException {
         /*
          *  假设：filePath -> /Users/vincent/IDEA_Project/my_project/zip/dirtest/jdkziptest/srcfile.txt
          *       desDirPath -> /Users/vincent/IDEA_Project/my_project/zip/dirtest/jdkziptest/out
@@ -75,18 +105,46 @@ public class ZipUtils {
 
         //拼接文件被压缩后的压缩文件名：zipFileName -> "abc" + ".zip" = "abc.zip"
         String zipFileName = FilenameUtils.getBaseName(sourceFilePath.getFileName().toString()).concat(EXTENSION);
-        //创建压缩输出流（就是创建最终输出的压缩文件容器），文件被压缩后的压缩文件的全路径（/Users/vincent/IDEA_Project/my_project/zip/dirtest/jdkziptest/out/abc.zip）
-        ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(sourceDirPath.resolve(zipFileName).toFile()));
-        //创建压缩文件 zip 实例
-        ZipEntry zipEntry = new ZipEntry(sourceFilePath.getFileName().toString());
-        //开始写入新的 zip 文件条目，并将流定位到条目数据的开头
-        outputStream.putNextEntry(zipEntry);
-        //读取原文件 filePath
-        byte[] bytes = Files.readAllBytes(sourceFilePath);
-        //把原文件 filePath 写入到压缩文件中
-        outputStream.write(bytes, 0, bytes.length);
-        outputStream.closeEntry();
-        outputStream.close();
+        //创建压缩文件写入器（就是创建最终输出的压缩文件容器），文件被压缩后的压缩文件的全路径（/Users/vincent/IDEA_Project/my_project/zip/dirtest/jdkziptest/out/abc.zip）
+        writeArchive(sourceDirPath.resolve(zipFileName), metrics, writer -> {
+            try (EntryPacker packer = new EntryPacker(Deflater.DEFAULT_COMPRESSION, false, codec)) {
+                //以固定大小的缓冲区把原文件 filePath 流式写入到压缩文件中（不会把整个文件读入内存），不可压缩的文件直接拷贝
+                packer.pack(sourceFilePath, sourceFilePath.getFileName().toString(), writer);
+            }
+        });
+    }
+
+    /**
+     * 多线程分块压缩单个大文件到指定目录
+     * <p>
+     * 文件被切分为固定大小的块在 parallelism 个线程中同时压缩，输出仍是标准的 DEFLATE 条目，
+     * 适合压缩单个体积很大的文件。
+     *
+     * @param filePath    需要压缩的文件路径
+     * @param desDirPath  压缩到指定文件目录（该目录必须存在，否则抛出异常）
+     * @param parallelism 并行压缩的线程数
+     * @throws IOException IO异常
+     */
+    public static void packFile(String filePath, String desDirPath, int parallelism) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "packFile", metrics -> {
+            packFile(filePath, desDirPath, parallelism, metrics);
+            return null;
+        });
+    }
+
+    private static void packFile(String filePath, String desDirPath, int parallelism, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(filePath, "filePath");
+        Objects.requireNonNull(desDirPath, "dirPath");
+        Path sourceFilePath = requireFile(filePath);
+        Path sourceDirPath = requireDirectory(desDirPath);
+
+        String zipFileName = FilenameUtils.getBaseName(sourceFilePath.getFileName().toString()).concat(EXTENSION);
+        if (Compressibility.isIncompressible(sourceFilePath)) {
+            packFile(filePath, desDirPath, ZipCodecs.DEFLATE, metrics);
+            return;
+        }
+        writeArchive(sourceDirPath.resolve(zipFileName), metrics, writer ->
+                new ParallelBlockDeflater(parallelism).deflate(sourceFilePath, sourceFilePath.getFileName().toString(), writer));
     }
 
     /**
@@ -96,6 +154,27 @@ public class ZipUtils {
      * @throws IOException IO异常
      */
     public static void packDir(String dirPath) throws IOException {
+        packDir(dirPath, ZipCodecs.DEFLATE);
+    }
+
+    /**
+     * 使用指定的压缩方式压缩整个文件目录
+     * <p>
+     * 使用 {@link ZipCodecs#ZSTD} 等非 DEFLATE 的压缩方式时，生成的压缩文件只能由本工具类（或支持该压缩方式的工具）解压。
+     *
+     * @param dirPath 需要压缩的文件目录路径
+     * @param codec   可压缩文件使用的压缩方式
+     * @throws IOException IO异常
+     */
+    public static void packDir(String dirPath, ZipCodec codec) throws IOException {
+        Objects.requireNonNull(codec, "codec");
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "packDir", metrics -> {
+            packDir(dirPath, codec, metrics);
+            return null;
+        });
+    }
+
+    private static void packDir(String dirPath, ZipCodec codec, ZipMetrics.Operation metrics) throws IOException {
         Path sourceDir = Paths.get(dirPath);
         if (Files.notExists(sourceDir)) {
             throw new NotDirectoryException(dirPath);
@@ -104,21 +183,351 @@ public class ZipUtils {
             throw new NotDirectoryException(dirPath + " is not a directory...");
         }
 
-        ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(sourceDir.toString().concat(EXTENSION)));
-        Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path filePath, BasicFileAttributes attrs) throws IOException {
-                Path targetFilePath = sourceDir.relativize(filePath);
-                outputStream.putNextEntry(new ZipEntry(targetFilePath.toString()));
-                byte[] bytes = Files.readAllBytes(filePath);
-                outputStream.write(bytes, 0, bytes.length);
-                outputStream.closeEntry();
-                return super.visitFile(filePath, attrs);
+        packDir(sourceDir, codec, JobProgress.NONE, metrics);
+    }
+
+    /**
+     * 压缩整个文件目录，生成与目录同名的 zip 文件（同步和异步压缩共用）
+     * <p>
+     * 先写入同目录的临时文件，完成后再替换目标文件，取消或失败时不会留下不完整的压缩文件。
+     * 需要报告进度时先有序列举整个目录得到总大小再压缩，否则边列举边压缩；每个文件压缩前检查取消。
+     *
+     * @param sourceDir 需要压缩的文件目录
+     * @param codec     可压缩文件使用的压缩方式
+     * @param progress  进度和取消检查
+     * @param metrics   指标记录
+     * @return 生成的压缩文件路径
+     * @throws IOException IO异常
+     */
+    static Path packDir(Path sourceDir, ZipCodec codec, JobProgress progress, ZipMetrics.Operation metrics) throws IOException {
+        Path zipPath = Paths.get(sourceDir.toString().concat(EXTENSION));
+        writeArchive(zipPath, metrics, writer -> {
+            try (EntryPacker packer = new EntryPacker(Deflater.DEFAULT_COMPRESSION, false, codec)) {
+                DirectoryScanner.FileVisitor visitor = (filePath, attrs) -> {
+                    progress.checkCancelled();
+                    packer.pack(filePath, attrs, ZipFormat.entryName(sourceDir.relativize(filePath)), writer);
+                    progress.advance(attrs.size());
+                };
+                if (progress.tracksTotal()) {
+                    Map<Path, BasicFileAttributes> files = new LinkedHashMap<>();
+                    new DirectoryScanner(DirectoryScanner.DEFAULT_PARALLELISM, true).scan(sourceDir, files::put);
+                    long total = 0;
+                    for (BasicFileAttributes attributes : files.values()) {
+                        total += attributes.size();
+                    }
+                    progress.start(total);
+                    for (Map.Entry<Path, BasicFileAttributes> file : files.entrySet()) {
+                        visitor.visit(file.getKey(), file.getValue());
+                    }
+                } else {
+                    new DirectoryScanner(DirectoryScanner.DEFAULT_PARALLELISM, false).scan(sourceDir, visitor);
+                }
             }
         });
-        outputStream.close();
+        return zipPath;
     }
 
+    /**
+     * 压缩整个文件目录并直接写入输出流（不生成临时文件，输出流不会被关闭）
+     * <p>
+     * 所有条目的大小和 CRC 都写在数据描述符中，不需要回头修改已写出的数据，适合直接写入网络连接。
+     * 边遍历目录边压缩，第一个条目压缩后立即开始输出，内存占用与目录大小无关。
+     *
+     * @param dirPath 需要压缩的文件目录路径
+     * @param out     输出流
+     * @throws IOException IO异常
+     */
+    public static void packDir(String dirPath, OutputStream out) throws IOException {
+        Objects.requireNonNull(out, "out");
+        packDir(dirPath, Channels.newChannel(out));
+        out.flush();
+    }
+
+    /**
+     * 压缩整个文件目录并直接写入通道（不生成临时文件，通道不会被关闭）
+     * <p>
+     * 中央目录超过 16 MB（约 20 万个条目）时才暂存到临时文件。
+     *
+     * @param dirPath 需要压缩的文件目录路径
+     * @param channel 输出通道
+     * @throws IOException IO异常
+     * @see #packDir(String, OutputStream)
+     */
+    public static void packDir(String dirPath, WritableByteChannel channel) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "packDir", metrics -> {
+            packDir(dirPath, channel, metrics);
+            return null;
+        });
+    }
+
+    private static void packDir(String dirPath, WritableByteChannel channel, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(dirPath, "dirPath");
+        Objects.requireNonNull(channel, "channel");
+        Path sourceDir = requireDirectory(dirPath);
+
+        //不能关闭调用方的通道，出错时只释放写入器的缓冲区和临时文件
+        ZipArchiveWriter writer = new ZipArchiveWriter(channel);
+        try (EntryPacker packer = new EntryPacker(Deflater.DEFAULT_COMPRESSION, true)) {
+            packDir(sourceDir, packer, writer);
+            writer.finish();
+            metrics.add(writer);
+        } finally {
+            writer.release();
+        }
+    }
+
+    private static void packDir(Path sourceDir, EntryPacker packer, ZipArchiveWriter writer) throws IOException {
+        //整个目录共用一个 Deflater 和缓冲区，子目录在后台线程中预先列举，列举时读取的属性直接用于条目
+        boolean[] first = {true};
+        new DirectoryScanner(DirectoryScanner.DEFAULT_PARALLELISM, false).scan(sourceDir, (filePath, attrs) -> {
+            Path targetFilePath = sourceDir.relativize(filePath);
+            packer.pack(filePath, attrs, ZipFormat.entryName(targetFilePath), writer);
+            if (first[0]) {
+                //第一个条目完成后立即输出，之后由缓冲区写满时输出
+                writer.flush();
+                first[0] = false;
+            }
+        });
+    }
+
+    /**
+     * 多线程并行压缩整个文件目录
+     * <p>
+     * 各文件在 parallelism 个线程中同时压缩，按相对路径排序后依次写入压缩文件，
+     * 因此相同的目录总是得到相同的条目顺序。目录边遍历边压缩，不需要等整个目录树列举完成。
+     *
+     * @param dirPath     需要压缩的文件目录路径
+     * @param parallelism 并行压缩的线程数
+     * @throws IOException IO异常
+     */
+    public static void packDir(String dirPath, int parallelism) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "packDir", metrics -> {
+            packDir(dirPath, parallelism, metrics);
+            return null;
+        });
+    }
+
+    private static void packDir(String dirPath, int parallelism, ZipMetrics.Operation metrics) throws IOException {
+        Path sourceDir = requireDirectory(dirPath);
+
+        writeArchive(Paths.get(sourceDir.toString().concat(EXTENSION)), metrics, writer -> {
+            DirectoryScanner scanner = new DirectoryScanner(DirectoryScanner.DEFAULT_PARALLELISM, true);
+            new ParallelPacker(parallelism).pack(sourceDir, scanner, writer);
+        });
+    }
+
+    /**
+     * 增量压缩整个文件目录
+     * <p>
+     * 与 {@link #packDir(String)} 生成同一个压缩文件，但只重新压缩新增或修改过（大小或修改时间不同）的文件，
+     * 未修改的条目直接从已有的压缩文件中拷贝压缩数据，已删除的文件不再出现在压缩文件中。
+     *
+     * @param dirPath 需要压缩的文件目录路径
+     * @return 统计信息
+     * @throws IOException IO异常
+     */
+    public static RepackStats repackDir(String dirPath) throws IOException {
+        return repackDir(dirPath, false);
+    }
+
+    /**
+     * 增量压缩整个文件目录
+     *
+     * @param dirPath        需要压缩的文件目录路径
+     * @param compareContent 大小和修改时间一致时是否还要比较文件内容的 CRC32
+     * @return 统计信息
+     * @throws IOException IO异常
+     * @see #repackDir(String)
+     */
+    public static RepackStats repackDir(String dirPath, boolean compareContent) throws IOException {
+        return ZipMetrics.record(ZipMetrics.ENGINE_JDK, "repackDir", metrics -> repackDir(dirPath, compareContent, metrics));
+    }
+
+    private static RepackStats repackDir(String dirPath, boolean compareContent, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(dirPath, "dirPath");
+        Path sourceDir = requireDirectory(dirPath);
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(sourceDir)) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        Path zipPath = Paths.get(sourceDir.toString().concat(EXTENSION));
+        RepackStats stats = new IncrementalPacker(compareContent).repack(sourceDir, files, zipPath);
+        metrics.add(stats.getCopied() + stats.getPacked(), 0, Files.size(zipPath));
+        return stats;
+    }
+
+    /**
+     * 多线程流水线加密压缩多个文件（WinZip AES-256，可以用 zip4j 等工具解密）
+     * <p>
+     * 读取、压缩、加密分别在不同的线程中进行，多个文件同时处理。条目名称为文件名。
+     *
+     * @param filePaths   需要压缩的文件路径
+     * @param desZipPath  压缩文件路径
+     * @param password    密码
+     * @param parallelism 同时处理的文件数
+     * @throws IOException IO异常
+     */
+    public static void packEncrypted(List<String> filePaths, String desZipPath, char[] password, int parallelism) throws IOException {
+        packEncrypted(filePaths, desZipPath, password, parallelism, LevelSelector.defaultSelector());
+    }
+
+    /**
+     * 多线程流水线加密压缩多个文件（WinZip AES-256，可以用 zip4j 等工具解密）
+     *
+     * @param filePaths   需要压缩的文件路径
+     * @param desZipPath  压缩文件路径
+     * @param password    密码
+     * @param parallelism 同时处理的文件数
+     * @param levels      为每个文件选择压缩级别
+     * @throws IOException IO异常
+     */
+    public static void packEncrypted(List<String> filePaths, String desZipPath, char[] password, int parallelism,
+                                     LevelSelector levels) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "packEncrypted", metrics -> {
+            packEncrypted(filePaths, desZipPath, password, parallelism, levels, metrics);
+            return null;
+        });
+    }
+
+    private static void packEncrypted(List<String> filePaths, String desZipPath, char[] password, int parallelism,
+                                      LevelSelector levels, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(filePaths, "filePaths");
+        Objects.requireNonNull(desZipPath, "desZipPath");
+        Objects.requireNonNull(password, "password");
+        Objects.requireNonNull(levels, "levels");
+        List<Path> files = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            files.add(requireFile(filePath));
+        }
+        AesPipelinePacker packer = new AesPipelinePacker(parallelism, password, levels);
+        writeArchive(Paths.get(desZipPath), metrics, writer -> packer.pack(files, writer));
+    }
+
+    /**
+     * 压缩多个文件（条目名称为文件名，已存在的压缩文件被覆盖）
+     * <p>
+     * Deflater 和缓冲区从 {@link CodecPool} 中借用，连续压缩大量小文件时不会为每次调用重新分配。
+     *
+     * @param filePaths  需要压缩的文件路径
+     * @param desZipPath 压缩文件路径
+     * @throws IOException IO异常
+     */
+    public static void pack(List<String> filePaths, String desZipPath) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "pack", metrics -> {
+            pack(filePaths, desZipPath, metrics);
+            return null;
+        });
+    }
+
+    private static void pack(List<String> filePaths, String desZipPath, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(filePaths, "filePaths");
+        Objects.requireNonNull(desZipPath, "desZipPath");
+        List<Path> files = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            files.add(requireFile(filePath));
+        }
+        writeArchive(Paths.get(desZipPath), metrics, writer -> {
+            try (EntryPacker packer = new EntryPacker()) {
+                for (Path file : files) {
+                    packer.pack(file, file.getFileName().toString(), writer);
+                }
+            }
+        });
+    }
+
+    /**
+     * 压缩多个文件，内容相同的文件复用缓存中已经压缩好的数据（不再压缩）
+     * <p>
+     * 条目名称为文件名。适合反复打包大量相同文件（配置、jar 包、静态资源）的场景，命中率等指标参见 {@link ZipMetrics#bindPayloadCache}。
+     *
+     * @param filePaths  需要压缩的文件路径
+     * @param desZipPath 压缩文件路径
+     * @param cache      压缩数据缓存
+     * @param levels     为每个文件选择压缩级别，不压缩的文件不经过缓存
+     * @throws IOException IO异常
+     */
+    public static void pack(List<String> filePaths, String desZipPath, PayloadCache cache, LevelSelector levels) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "pack", metrics -> {
+            pack(filePaths, desZipPath, cache, levels, null, PackListener.NONE, metrics);
+            return null;
+        });
+    }
+
+    /**
+     * 压缩多个文件，内容相同的文件复用缓存中已经压缩好的数据，缓存命中时不再运行级别选择器
+     * <p>
+     * 缓存键为文件内容加选择器标识，选择的级别与压缩数据一起缓存，适合选择级别代价较高（例如需要采样试压缩）的选择器。
+     *
+     * @param filePaths  需要压缩的文件路径
+     * @param desZipPath 压缩文件路径
+     * @param cache      压缩数据缓存
+     * @param levels     为每个文件选择压缩级别
+     * @param selectorId 选择器的标识，标识相同的选择器对相同的内容必须选择相同的级别；为 null 时先选择级别，再按级别查找缓存
+     * @param listener   每写完一个条目的回调
+     * @param metrics    由调用方开始和结束的指标记录（可以记录在其他引擎名下）
+     * @throws IOException IO异常
+     */
+    public static void pack(List<String> filePaths, String desZipPath, PayloadCache cache, LevelSelector levels,
+                            String selectorId, PackListener listener, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(filePaths, "filePaths");
+        Objects.requireNonNull(desZipPath, "desZipPath");
+        List<Path> files = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            files.add(requireFile(filePath));
+        }
+        Objects.requireNonNull(metrics, "metrics");
+        writeArchive(Paths.get(desZipPath), metrics, writer -> {
+            try (CachedEntryPacker packer = new CachedEntryPacker(cache, levels, selectorId, listener)) {
+                for (Path file : files) {
+                    packer.pack(file, file.getFileName().toString(), writer);
+                }
+            }
+        });
+    }
+
+    /**
+     * 合并多个 zip 文件（直接拷贝压缩数据，不重新压缩）
+     *
+     * @param filePaths  需要合并的 zip 文件路径，同名条目只保留先出现的一个
+     * @param desZipPath 合并后的 zip 文件路径
+     * @throws IOException IO异常
+     */
+    public static void merge(List<String> filePaths, String desZipPath) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "merge", metrics -> {
+            merge(filePaths, desZipPath, metrics);
+            return null;
+        });
+    }
+
+    private static void merge(List<String> filePaths, String desZipPath, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(filePaths, "filePaths");
+        Objects.requireNonNull(desZipPath, "desZipPath");
+        List<Path> sources = new ArrayList<>(filePaths.size());
+        long bytesIn = 0;
+        for (String filePath : filePaths) {
+            sources.add(requireFile(filePath));
+            bytesIn += Files.size(sources.get(sources.size() - 1));
+        }
+        ArchiveMerger.merge(sources, Paths.get(desZipPath));
+        metrics.add(0, bytesIn, Files.size(Paths.get(desZipPath)));
+    }
+
+    /**
+     * 把其他 zip 文件中的条目追加到已有的 zip 文件中（直接拷贝压缩数据，不重新压缩）
+     *
+     * @param zipPath   已有的 zip 文件路径
+     * @param filePaths 需要追加的 zip 文件路径，与已有条目同名的条目被忽略
+     * @throws IOException IO异常
+     */
+    public static void append(String zipPath, List<String> filePaths) throws IOException {
+        Objects.requireNonNull(zipPath, "zipPath");
+        Objects.requireNonNull(filePaths, "filePaths");
+        List<String> sources = new ArrayList<>(filePaths.size() + 1);
+        sources.add(zipPath);
+        sources.addAll(filePaths);
+        merge(sources, zipPath);
+    }
 
     /**
      * 解压缩目录中的 zip 文件
@@ -127,6 +536,13 @@ public class ZipUtils {
      * @throws IOException IO异常
      */
     public static void unpackDir(String dirPath) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "unpackDir", metrics -> {
+            unpackDir(dirPath, metrics);
+            return null;
+        });
+    }
+
+    private static void unpackDir(String dirPath, ZipMetrics.Operation metrics) throws IOException {
         Path sourceDirPath = Paths.get(dirPath);
         if (Files.notExists(sourceDirPath)) {
             throw new NotDirectoryException(dirPath);
@@ -135,14 +551,79 @@ public class ZipUtils {
             throw new NotDirectoryException(dirPath + " is not a directory...");
         }
 
-        List<Path> sourceZipPaths = Files.walk(sourceDirPath)
-                .filter(p -> FilenameUtils.isExtension(p.toFile().getName(), "zip"))
-                .collect(Collectors.toList());
+        List<Path> sourceZipPaths = findZipFiles(sourceDirPath);
         sourceZipPaths.forEach(CheckedConsumer.<Path>of(
-                sourceZipPath -> unpack(sourceZipPath, sourceDirPath)).unchecked()
+                sourceZipPath -> metrics.add(unpack(sourceZipPath, sourceDirPath, 1), Files.size(sourceZipPath))).unchecked()
         );
     }
 
+    /**
+     * 列出目录树中的所有 zip 文件（先全部列出再解压，解压出的 zip 文件不会被再次解压）
+     */
+    private static List<Path> findZipFiles(Path dir) throws IOException {
+        List<Path> zipPaths = new ArrayList<>();
+        new DirectoryScanner(DirectoryScanner.DEFAULT_PARALLELISM, false).scan(dir, (file, attrs) -> {
+            if (FilenameUtils.isExtension(file.getFileName().toString(), "zip")) {
+                zipPaths.add(file);
+            }
+        });
+        return zipPaths;
+    }
+
+    /**
+     * 多线程并行解压缩目录中的 zip 文件
+     *
+     * @param dirPath     解压缩该目录下的所以 zip 文件
+     * @param parallelism 每个 zip 文件并行解压缩的线程数
+     * @return 所有 zip 文件合计的统计信息
+     * @throws IOException IO异常
+     */
+    public static UnpackStats unpackDir(String dirPath, int parallelism) throws IOException {
+        return ZipMetrics.record(ZipMetrics.ENGINE_JDK, "unpackDir", metrics -> unpackDir(dirPath, parallelism, metrics));
+    }
+
+    private static UnpackStats unpackDir(String dirPath, int parallelism, ZipMetrics.Operation metrics) throws IOException {
+        Path sourceDirPath = requireDirectory(dirPath);
+
+        List<Path> sourceZipPaths = findZipFiles(sourceDirPath);
+        UnpackStats stats = new UnpackStats(0, 0, 0);
+        for (Path sourceZipPath : sourceZipPaths) {
+            UnpackStats archiveStats = unpack(sourceZipPath, sourceDirPath, parallelism);
+            metrics.add(archiveStats, Files.size(sourceZipPath));
+            stats = stats.plus(archiveStats);
+        }
+        return stats;
+    }
+
+    /**
+     * 并发解压缩目录中的 zip 文件（适合大量小压缩文件）
+     * <p>
+     * 多个 zip 文件同时解压，解压和写盘的线程数分别限制，内存中缓冲的数据量有上限。
+     * 某个 zip 文件损坏只会记录在结果中，不会中断其他 zip 文件的解压。
+     *
+     * @param dirPath        解压缩该目录下的所以 zip 文件
+     * @param inflateThreads 解压线程数
+     * @param writeThreads   写盘线程数
+     * @return 批量解压缩的结果
+     * @throws IOException IO异常
+     */
+    public static BatchUnpackResult unpackDir(String dirPath, int inflateThreads, int writeThreads) throws IOException {
+        return ZipMetrics.record(ZipMetrics.ENGINE_JDK, "unpackDir", metrics -> unpackDir(dirPath, inflateThreads, writeThreads, metrics));
+    }
+
+    private static BatchUnpackResult unpackDir(String dirPath, int inflateThreads, int writeThreads, ZipMetrics.Operation metrics) throws IOException {
+        Path sourceDirPath = requireDirectory(dirPath);
+
+        List<Path> sourceZipPaths = findZipFiles(sourceDirPath);
+        BatchUnpackResult result = new ArchiveBatchUnpacker(inflateThreads, writeThreads).unpack(sourceZipPaths, sourceDirPath);
+        long bytesIn = 0;
+        for (Path succeeded : result.getSucceeded()) {
+            bytesIn += Files.size(succeeded);
+        }
+        metrics.add(result.getStats(), bytesIn);
+        return result;
+    }
+
     /**
      * 解压缩 zip 文件
      *
@@ -150,6 +631,13 @@ public class ZipUtils {
      * @throws IOException IO异常
      */
     public static void unpackFile(String filePath) throws IOException {
+        ZipMetrics.record(ZipMetrics.ENGINE_JDK, "unpackFile", metrics -> {
+            unpackFile(filePath, metrics);
+            return null;
+        });
+    }
+
+    private static void unpackFile(String filePath, ZipMetrics.Operation metrics) throws IOException {
         Path sourceFilePath = Paths.get(filePath);
         if (Files.notExists(sourceFilePath)) {
             throw new NoSuchFileException(filePath);
@@ -157,17 +645,273 @@ public class ZipUtils {
         if (!sourceFilePath.toFile().isFile()) {
             throw new NoSuchFileException(filePath + " is not a file...");
         }
-        unpack(sourceFilePath, sourceFilePath.getParent());
+        metrics.add(unpack(sourceFilePath, sourceFilePath.getParent(), 1), Files.size(sourceFilePath));
     }
 
-    private static void unpack(Path path, Path parentPath) throws IOException {
-        Objects.requireNonNull(path);
-        ZipFile zipFile = new ZipFile(path.toFile());
-        Enumeration<? extends ZipEntry> entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            ZipEntry zipEntry = entries.nextElement();
-            InputStream inputStream = zipFile.getInputStream(zipEntry);
-            IOUtils.copy(inputStream, new FileOutputStream(parentPath.resolve(zipEntry.getName()).toFile()));
+    /**
+     * 多线程并行解压缩 zip 文件
+     * <p>
+     * 各条目在 parallelism 个线程中同时解压，解压结果与 {@link #unpackFile(String)} 完全相同。
+     *
+     * @param filePath    需要解压缩的文件路径
+     * @param parallelism 并行解压缩的线程数
+     * @return 统计信息（条目数、字节数、耗时和吞吐量）
+     * @throws IOException IO异常
+     */
+    public static UnpackStats unpackFile(String filePath, int parallelism) throws IOException {
+        return unpackFile(filePath, parallelism, Durability.NONE);
+    }
+
+    /**
+     * 多线程并行解压缩 zip 文件，按指定方式持久化解压出的文件
+     * <p>
+     * 开始写出之前先校验全部条目的路径，任何一个条目指向压缩文件所在目录之外（如 ../evil.sh）时抛出 {@link java.util.zip.ZipException}，
+     * 不写出任何文件。
+     *
+     * @param filePath    需要解压缩的文件路径
+     * @param parallelism 并行解压缩的线程数
+     * @param durability  持久化方式
+     * @return 统计信息（条目数、字节数、耗时和吞吐量）
+     * @throws IOException IO异常
+     */
+    public static UnpackStats unpackFile(String filePath, int parallelism, Durability durability) throws IOException {
+        Objects.requireNonNull(durability, "durability");
+        return ZipMetrics.record(ZipMetrics.ENGINE_JDK, "unpackFile", metrics -> unpackFile(filePath, parallelism, durability, metrics));
+    }
+
+    private static UnpackStats unpackFile(String filePath, int parallelism, Durability durability, ZipMetrics.Operation metrics) throws IOException {
+        Path sourceFilePath = requireFile(filePath);
+        UnpackStats stats = new ParallelUnpacker(parallelism).unpack(sourceFilePath, sourceFilePath.getParent(), durability);
+        metrics.add(stats, Files.size(sourceFilePath));
+        return stats;
+    }
+
+    /**
+     * 从输入流中顺序解压缩到指定目录（输入流不需要支持随机访问，也不会被关闭）
+     * <p>
+     * 适合直接解压网络连接或管道中的数据：不生成临时文件，每个条目边解压边写出，内存占用与条目大小无关。
+     *
+     * @param in         zip 数据
+     * @param desDirPath 解压到的目录（必须存在）
+     * @return 统计信息
+     * @throws IOException IO异常
+     */
+    public static UnpackStats unpack(InputStream in, String desDirPath) throws IOException {
+        return ZipMetrics.record(ZipMetrics.ENGINE_JDK, "unpack", metrics -> unpack(in, desDirPath, metrics));
+    }
+
+    private static UnpackStats unpack(InputStream in, String desDirPath, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(in, "in");
+        Objects.requireNonNull(desDirPath, "desDirPath");
+        UnpackStats stats = new StreamingUnpacker().unpack(in, requireDirectory(desDirPath));
+        metrics.add(stats, 0);
+        return stats;
+    }
+
+    /**
+     * 从通道中顺序解压缩到指定目录（通道不会被关闭）
+     *
+     * @param channel    zip 数据
+     * @param desDirPath 解压到的目录（必须存在）
+     * @return 统计信息
+     * @throws IOException IO异常
+     * @see #unpack(InputStream, String)
+     */
+    public static UnpackStats unpack(ReadableByteChannel channel, String desDirPath) throws IOException {
+        Objects.requireNonNull(channel, "channel");
+        return unpack(Channels.newInputStream(channel), desDirPath);
+    }
+
+    /**
+     * 从输入流中顺序读取每个条目并交给 handler 处理（输入流不会被关闭）
+     *
+     * @param in      zip 数据
+     * @param handler 条目处理器
+     * @return 统计信息
+     * @throws IOException IO异常
+     */
+    public static UnpackStats unpack(InputStream in, EntryHandler handler) throws IOException {
+        return ZipMetrics.record(ZipMetrics.ENGINE_JDK, "unpack", metrics -> unpack(in, handler, metrics));
+    }
+
+    private static UnpackStats unpack(InputStream in, EntryHandler handler, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(in, "in");
+        Objects.requireNonNull(handler, "handler");
+        UnpackStats stats = new StreamingUnpacker().unpack(in, handler);
+        metrics.add(stats, 0);
+        return stats;
+    }
+
+    /**
+     * 读取 zip 文件中的单个条目
+     * <p>
+     * 每次调用都解析中央目录，关闭返回的数据流时关闭压缩文件；反复读取同一个压缩文件时使用
+     * {@link #openEntry(ArchiveHandleCache, String, String)}。
+     *
+     * @param filePath  压缩文件路径
+     * @param entryName 条目名称
+     * @return 解压后的数据流（使用完毕后必须关闭）
+     * @throws IOException IO异常
+     */
+    public static InputStream openEntry(String filePath, String entryName) throws IOException {
+        Objects.requireNonNull(entryName, "entryName");
+        ZipIndex index = ZipIndex.open(requireFile(filePath));
+        try {
+            return new FilterInputStream(index.openEntry(entryName)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        index.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            throw e;
         }
     }
+
+    /**
+     * 通过调用方持有的中央目录索引缓存读取 zip 文件中的单个条目，重复读取同一个压缩文件时不需要重新解析中央目录
+     *
+     * @param indexes   中央目录索引缓存（参见 {@link #newIndexCache(int, long, TimeUnit)}）
+     * @param filePath  压缩文件路径
+     * @param entryName 条目名称
+     * @return 解压后的数据流（使用完毕后必须关闭）
+     * @throws IOException IO异常
+     */
+    public static InputStream openEntry(ArchiveHandleCache<ZipIndex> indexes, String filePath, String entryName) throws IOException {
+        Objects.requireNonNull(indexes, "indexes");
+        Objects.requireNonNull(entryName, "entryName");
+        Path sourceFilePath = requireFile(filePath);
+        ArchiveHandleCache.Handle<ZipIndex> handle = indexes.acquire(sourceFilePath);
+        try {
+            return new FilterInputStream(handle.get().openEntry(entryName)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        handle.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            handle.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 多线程并行校验多个 zip 文件的完整性（不写出任何文件，跳过加密条目）
+     *
+     * @param filePaths   需要校验的文件路径
+     * @param parallelism 并行校验的线程数
+     * @return 校验报告
+     * @throws IOException 文件不存在或校验被中断
+     * @see #verify(List, int, long, char[])
+     */
+    public static VerifyReport verify(List<String> filePaths, int parallelism) throws IOException {
+        return verify(filePaths, parallelism, 0, null);
+    }
+
+    /**
+     * 多线程并行校验多个 zip 文件的完整性（不写出任何文件）
+     * <p>
+     * 每个条目解压到丢弃的缓冲区中，校验 CRC32、大小、本地文件头和数据描述符；提供密码时校验 WinZip AES 条目的
+     * 密码和认证码，传统 ZipCrypto 加密的条目被跳过。损坏的条目和无法读取的压缩文件记录在报告中，不会中断校验。
+     *
+     * @param filePaths         需要校验的文件路径
+     * @param parallelism       并行校验的线程数
+     * @param maxBytesPerSecond 每秒最多读取的压缩数据字节数，0 表示不限制
+     * @param password          AES 加密条目的密码，为 null 时跳过加密条目
+     * @return 校验报告
+     * @throws IOException 文件不存在或校验被中断
+     */
+    public static VerifyReport verify(List<String> filePaths, int parallelism, long maxBytesPerSecond, char[] password) throws IOException {
+        return ZipMetrics.record(ZipMetrics.ENGINE_JDK, "verify", metrics -> verify(filePaths, parallelism, maxBytesPerSecond, password, metrics));
+    }
+
+    private static VerifyReport verify(List<String> filePaths, int parallelism, long maxBytesPerSecond, char[] password,
+                                       ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(filePaths, "filePaths");
+        List<Path> files = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            files.add(requireFile(filePath));
+        }
+        VerifyReport report = new ArchiveVerifier(parallelism, maxBytesPerSecond, password).verify(files);
+        metrics.add(report.getEntries(), report.getCompressedBytes(), report.getBytes());
+        return report;
+    }
+
+    /**
+     * 创建中央目录索引缓存，由调用方持有，不再使用时必须关闭（关闭时释放全部文件句柄和内存映射）
+     *
+     * @param maxHandles  同时打开的压缩文件数上限
+     * @param idleTimeout 压缩文件空闲超过该时间后关闭，0 表示不按空闲时间关闭
+     * @param unit        idleTimeout 的单位
+     * @return 中央目录索引缓存
+     * @see #openEntry(ArchiveHandleCache, String, String)
+     */
+    public static ArchiveHandleCache<ZipIndex> newIndexCache(int maxHandles, long idleTimeout, TimeUnit unit) {
+        return new ArchiveHandleCache<>(maxHandles, idleTimeout, unit, ZipIndex::open, ZipIndex::close);
+    }
+
+    /**
+     * 先写入同目录的临时文件，全部条目写完后再替换目标文件
+     * <p>
+     * 压缩失败时删除临时文件，已有的压缩文件保持不变，也不会留下缺少部分条目或中央目录的文件。
+     *
+     * @param zipPath 压缩文件路径
+     * @param metrics 指标记录
+     * @param entries 写入全部条目（不需要调用 {@link ZipArchiveWriter#finish()}）
+     * @throws IOException IO异常
+     */
+    private static void writeArchive(Path zipPath, ZipMetrics.Operation metrics, ArchiveContent entries) throws IOException {
+        Path temp = Files.createTempFile(zipPath.toAbsolutePath().getParent(), zipPath.getFileName().toString(), ".tmp");
+        try {
+            try (ZipArchiveWriter writer = new ZipArchiveWriter(temp)) {
+                entries.write(writer);
+                writer.finish();
+                metrics.add(writer);
+            }
+            Files.move(temp, zipPath, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static Path requireFile(String filePath) throws NoSuchFileException {
+        Path path = Paths.get(filePath);
+        if (Files.notExists(path)) {
+            throw new NoSuchFileException(filePath);
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(filePath + " is not a file...");
+        }
+        return path;
+    }
+
+    static Path requireDirectory(String dirPath) throws NotDirectoryException {
+        Path path = Paths.get(dirPath);
+        if (Files.notExists(path)) {
+            throw new NotDirectoryException(dirPath);
+        }
+        if (!Files.isDirectory(path)) {
+            throw new NotDirectoryException(dirPath + " is not a directory...");
+        }
+        return path;
+    }
+
+    private static UnpackStats unpack(Path path, Path parentPath, int parallelism) throws IOException {
+        Objects.requireNonNull(path);
+        return new ParallelUnpacker(parallelism).unpack(path, parentPath);
+    }
+
+    @FunctionalInterface
+    private interface ArchiveContent {
+        void write(ZipArchiveWriter writer) throws IOException;
+    }
 }
@@ -0,0 +1,80 @@
+package com.example.zip.job;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 压缩任务：把多个文件压缩成一个 zip 文件（条目名称为文件名，已存在的压缩文件被覆盖）
+ *
+ * @author vincent
+ * @see ArchiveJobService#submit(ArchiveJob)
+ */
+public final class ArchiveJob {
+    private static final String EXTENSION = ".zip";
+
+    private final List<String> filePaths;
+    private final String desZipPath;
+    private char[] password;
+    private JobPriority priority = JobPriority.INTERACTIVE;
+
+    private ArchiveJob(List<String> filePaths, String desZipPath) {
+        this.filePaths = Collections.unmodifiableList(new ArrayList<>(filePaths));
+        this.desZipPath = desZipPath;
+    }
+
+    /**
+     * @param filePaths  需要压缩的文件路径
+     * @param desZipPath 压缩文件路径（以 .zip 结尾）
+     * @return 不加密、交互式优先级的压缩任务
+     */
+    public static ArchiveJob pack(List<String> filePaths, String desZipPath) {
+        Objects.requireNonNull(filePaths, "filePaths");
+        Objects.requireNonNull(desZipPath, "desZipPath");
+        if (!desZipPath.endsWith(EXTENSION)) {
+            throw new IllegalArgumentException("desZipPath must end with " + EXTENSION + ": " + desZipPath);
+        }
+        return new ArchiveJob(filePaths, desZipPath);
+    }
+
+    /**
+     * @param password 密码（WinZip AES-256），为 null 时不加密
+     * @return this
+     */
+    public ArchiveJob password(char[] password) {
+        this.password = password == null ? null : password.clone();
+        return this;
+    }
+
+    public ArchiveJob priority(JobPriority priority) {
+        this.priority = Objects.requireNonNull(priority, "priority");
+        return this;
+    }
+
+    public List<String> getFilePaths() {
+        return filePaths;
+    }
+
+    public String getDesZipPath() {
+        return desZipPath;
+    }
+
+    public JobPriority getPriority() {
+        return priority;
+    }
+
+    public boolean isEncrypted() {
+        return password != null;
+    }
+
+    char[] getPassword() {
+        return password;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveJob{" + desZipPath + ", files=" + filePaths.size() + ", priority=" + priority
+                + (password == null ? "" : ", encrypted") + "}";
+    }
+}
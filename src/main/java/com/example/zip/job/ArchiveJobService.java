@@ -0,0 +1,428 @@
+package com.example.zip.job;
+
+import com.example.zip.jdk_zip.utils.ZipUtils;
+import com.example.zip.zip4j.utils.ZipClient;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 压缩任务服务：有界队列、优先级、小任务合批和过载时拒绝
+ * <p>
+ * 任务按 {@link JobPriority} 进入两个队列，工作线程优先取交互式任务，每 {@value #BULK_TURN} 次至少取一次批量任务，
+ * 批量任务不会被持续的交互式任务饿死。队列中的任务总数达到容量时拒绝新任务；批量任务在达到容量的 3/4 时就被拒绝，
+ * 剩余的空间留给交互式任务。被拒绝的任务返回以 {@link RejectedExecutionException} 失败的 future，调用方可以稍后重试或返回 503。
+ * <p>
+ * 小任务（原始数据不超过 {@value #SMALL_JOB_BYTES} 字节）在队列积压时合批：工作线程一次取出同一优先级的多个连续小任务，
+ * 在同一线程中依次执行，省去逐个唤醒线程和交接的开销，Deflater 和缓冲区也在同一线程中从池里复用。
+ * 一批的大小随积压程度变化，最多取积压任务的 1/工作线程数，不会让一个线程拿走所有任务而其他线程空闲；队列较浅时每批只有一个任务，不增加延迟。
+ * <p>
+ * 不加密的任务由 {@link ZipUtils}（jdk_zip）执行；需要加密的任务由服务持有的一个 {@link ZipClient}（zip4j，WinZip AES-256）执行，
+ * 密码随任务给出，所有加密任务共用这个客户端，服务关闭且排队的任务全部执行完后关闭它。
+ * 压缩文件先写到同一目录的临时文件，完成后再替换目标文件，失败时不会留下不完整的压缩文件，也不会删除原有的压缩文件。
+ * 作为 Spring bean 时指标自动注册：
+ * <ul>
+ *     <li>zip.jobs.queue.depth（Gauge）：排队的任务数，标签 priority</li>
+ *     <li>zip.jobs.rejected（Counter）：被拒绝的任务数，标签 priority</li>
+ *     <li>zip.jobs.wait（Timer）：排队时间，标签 priority</li>
+ *     <li>zip.jobs.latency（Timer）：从提交到完成的时间，标签 priority、encrypted、outcome</li>
+ *     <li>zip.jobs.batch.size（DistributionSummary）：每批的任务数</li>
+ * </ul>
+ *
+ * @author vincent
+ */
+public final class ArchiveJobService implements MeterBinder, Closeable {
+    /**
+     * 可以合批的任务的原始数据大小上限
+     */
+    static final long SMALL_JOB_BYTES = 1 << 20;
+    static final int MAX_BATCH_JOBS = 32;
+    static final long MAX_BATCH_BYTES = 8L << 20;
+    private static final int BULK_TURN = 4;
+
+    private final int workers;
+    private final int queueCapacity;
+    private final int bulkCapacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<JobPriority, ArrayDeque<Pending>> queues = new EnumMap<>(JobPriority.class);
+    private final Map<JobPriority, AtomicLong> rejected = new EnumMap<>(JobPriority.class);
+    private final AtomicLong batches = new AtomicLong();
+    private final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("zip-job-%d").setDaemon(true).build();
+    private final ZipClient zipClient = new ZipClient();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private int depth;
+    private long takes;
+    private boolean started;
+    private boolean closed;
+    private volatile MeterRegistry registry;
+
+    /**
+     * @param workers       工作线程数
+     * @param queueCapacity 排队的任务数上限
+     */
+    public ArchiveJobService(int workers, int queueCapacity) {
+        this(workers, queueCapacity, true);
+    }
+
+    ArchiveJobService(int workers, int queueCapacity, boolean start) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.bulkCapacity = Math.max(1, queueCapacity * 3 / 4);
+        for (JobPriority priority : JobPriority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            rejected.put(priority, new AtomicLong());
+        }
+        if (start) {
+            start();
+        }
+    }
+
+    /**
+     * 启动工作线程（测试中先填充队列再启动）
+     */
+    void start() {
+        lock.lock();
+        try {
+            if (started) {
+                return;
+            }
+            started = true;
+        } finally {
+            lock.unlock();
+        }
+        runningWorkers.set(workers);
+        for (int i = 0; i < workers; i++) {
+            threadFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * 提交压缩任务
+     * <p>
+     * 排队中的任务可以通过返回的 future 的 {@link CompletableFuture#cancel(boolean)} 取消并移出队列，已经开始执行的任务不能取消。
+     *
+     * @param job 压缩任务
+     * @return 完成时返回压缩文件路径；队列已满或服务已关闭时以 {@link RejectedExecutionException} 失败
+     */
+    public CompletableFuture<Path> submit(ArchiveJob job) {
+        Objects.requireNonNull(job, "job");
+        JobPriority priority = job.getPriority();
+        int limit = priority == JobPriority.INTERACTIVE ? queueCapacity : bulkCapacity;
+        //过载时先拒绝，不为注定被拒绝的任务读取文件大小
+        lock.lock();
+        try {
+            RejectedExecutionException rejection = admit(priority, limit);
+            if (rejection != null) {
+                return failed(rejection);
+            }
+        } finally {
+            lock.unlock();
+        }
+        Pending pending = new Pending(job, estimateBytes(job));
+        lock.lock();
+        try {
+            //读取文件大小期间队列可能已满或服务已关闭
+            RejectedExecutionException rejection = admit(priority, limit);
+            if (rejection != null) {
+                pending.future.completeExceptionally(rejection);
+                return pending.future;
+            }
+            queues.get(priority).add(pending);
+            depth++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        pending.future.whenComplete((path, e) -> {
+            if (pending.future.isCancelled()) {
+                remove(pending);
+            }
+        });
+        return pending.future;
+    }
+
+    /**
+     * 在持有锁时检查能否接受任务，队列已满时计入拒绝次数
+     *
+     * @return 拒绝的原因，可以接受时返回 null
+     */
+    private RejectedExecutionException admit(JobPriority priority, int limit) {
+        if (closed) {
+            return new RejectedExecutionException("archive job service is closed");
+        }
+        if (depth >= limit) {
+            rejected.get(priority).incrementAndGet();
+            return new RejectedExecutionException("archive job queue is full (" + depth + "/" + limit + " for " + priority + ")");
+        }
+        return null;
+    }
+
+    private static CompletableFuture<Path> failed(Throwable cause) {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    /**
+     * @return 排队的任务总数
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority 优先级
+     * @return 该优先级排队的任务数
+     */
+    public int getQueueDepth(JobPriority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority 优先级
+     * @return 该优先级因队列已满被拒绝的任务数
+     */
+    public long getRejected(JobPriority priority) {
+        return rejected.get(priority).get();
+    }
+
+    /**
+     * @return 工作线程取出的批数（每批一个或多个任务）
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (JobPriority priority : JobPriority.values()) {
+            String tag = tag(priority);
+            Gauge.builder("zip.jobs.queue.depth", this, service -> service.getQueueDepth(priority))
+                    .tag("priority", tag).register(registry);
+            FunctionCounter.builder("zip.jobs.rejected", this, service -> service.getRejected(priority))
+                    .tag("priority", tag).register(registry);
+        }
+        this.registry = registry;
+    }
+
+    /**
+     * 不再接受新任务，已排队的任务继续执行，全部执行完后工作线程退出
+     */
+    @Override
+    public void close() {
+        boolean idle;
+        lock.lock();
+        try {
+            closed = true;
+            idle = !started;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (idle) {
+            closeClient();
+        }
+    }
+
+    private void work() {
+        List<Pending> batch;
+        try {
+            while ((batch = take()) != null) {
+                run(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            //最后一个退出的工作线程关闭加密任务共用的客户端
+            if (runningWorkers.decrementAndGet() == 0) {
+                closeClient();
+            }
+        }
+    }
+
+    private void closeClient() {
+        try {
+            zipClient.close();
+        } catch (IOException e) {
+            //客户端只缓存已读取的文件头，关闭时没有需要写出的数据
+        }
+    }
+
+    /**
+     * 取出下一批任务
+     *
+     * @return 服务已关闭且队列为空时返回 null
+     */
+    private List<Pending> take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (depth == 0) {
+                if (closed) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            ArrayDeque<Pending> interactive = queues.get(JobPriority.INTERACTIVE);
+            ArrayDeque<Pending> bulk = queues.get(JobPriority.BULK);
+            takes++;
+            ArrayDeque<Pending> queue = !bulk.isEmpty() && (interactive.isEmpty() || takes % BULK_TURN == 0) ? bulk : interactive;
+            List<Pending> batch = new ArrayList<>();
+            Pending head = queue.poll();
+            batch.add(head);
+            if (head.bytes <= SMALL_JOB_BYTES) {
+                //积压越多每批越大，但最多取积压任务的 1/workers，其余留给其他线程
+                int limit = Math.min(MAX_BATCH_JOBS, (depth + workers - 1) / workers);
+                long bytes = head.bytes;
+                Pending next;
+                while (batch.size() < limit && (next = queue.peek()) != null && next.bytes <= SMALL_JOB_BYTES
+                        && bytes + next.bytes <= MAX_BATCH_BYTES) {
+                    batch.add(queue.poll());
+                    bytes += next.bytes;
+                }
+            }
+            depth -= batch.size();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Pending pending) {
+        lock.lock();
+        try {
+            if (queues.get(pending.job.getPriority()).remove(pending)) {
+                depth--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(List<Pending> batch) {
+        batches.incrementAndGet();
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            DistributionSummary.builder("zip.jobs.batch.size").register(registry).record(batch.size());
+        }
+        for (Pending pending : batch) {
+            if (pending.future.isDone()) {
+                //排队时已被取消
+                continue;
+            }
+            ArchiveJob job = pending.job;
+            String priority = tag(job.getPriority());
+            if (registry != null) {
+                registry.timer("zip.jobs.wait", "priority", priority)
+                        .record(System.nanoTime() - pending.submittedNanos, TimeUnit.NANOSECONDS);
+            }
+            Throwable failure = null;
+            try {
+                execute(job);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            //先记录指标再完成 future，调用方拿到结果时指标已经更新
+            if (registry != null) {
+                Timer.builder("zip.jobs.latency")
+                        .tags("priority", priority, "encrypted", Boolean.toString(job.isEncrypted()), "outcome", failure == null ? "success" : "failure")
+                        .register(registry).record(System.nanoTime() - pending.submittedNanos, TimeUnit.NANOSECONDS);
+            }
+            if (failure == null) {
+                pending.future.complete(Paths.get(job.getDesZipPath()));
+            } else {
+                pending.future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void execute(ArchiveJob job) throws IOException {
+        Path target = Paths.get(job.getDesZipPath()).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            if (job.isEncrypted()) {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    zipClient.pack(job.getFilePaths(), out, job.getPassword());
+                }
+            } else {
+                ZipUtils.pack(job.getFilePaths(), temp.toString());
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return 任务的原始数据大小，用于判断能否合批（文件不存在时按 0 计算，执行时再报错）
+     */
+    private static long estimateBytes(ArchiveJob job) {
+        long bytes = 0;
+        for (String filePath : job.getFilePaths()) {
+            try {
+                bytes += Files.size(Paths.get(filePath));
+            } catch (IOException e) {
+                //执行时由压缩引擎报告
+            }
+        }
+        return bytes;
+    }
+
+    private static String tag(JobPriority priority) {
+        return priority.name().toLowerCase();
+    }
+
+    private static final class Pending {
+        final ArchiveJob job;
+        final long bytes;
+        final long submittedNanos = System.nanoTime();
+        final CompletableFuture<Path> future = new CompletableFuture<>();
+
+        Pending(ArchiveJob job, long bytes) {
+            this.job = job;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.zip.job;
+
+/**
+ * 压缩任务的优先级
+ *
+ * @author vincent
+ * @see ArchiveJobService
+ */
+public enum JobPriority {
+    /**
+     * 交互式任务（有用户在等待结果）：优先执行，队列接近满时仍然接受
+     */
+    INTERACTIVE,
+    /**
+     * 批量任务（后台导出、归档）：交互式任务较少时执行，队列接近满时最先被拒绝
+     */
+    BULK
+}
@@ -0,0 +1,70 @@
+package com.example.zip.zip4j.utils;
+
+import net.lingala.zip4j.model.enums.CompressionLevel;
+import net.lingala.zip4j.model.enums.CompressionMethod;
+
+import java.util.Objects;
+
+/**
+ * 压缩方式和压缩级别的组合
+ *
+ * @author vincent
+ */
+public final class CompressionChoice {
+    /**
+     * 不压缩，直接存储
+     */
+    public static final CompressionChoice STORE = new CompressionChoice(CompressionMethod.STORE, null);
+
+    private final CompressionMethod method;
+    private final CompressionLevel level;
+
+    private CompressionChoice(CompressionMethod method, CompressionLevel level) {
+        this.method = method;
+        this.level = level;
+    }
+
+    /**
+     * @param level 压缩级别
+     * @return 使用给定级别的 DEFLATE 压缩
+     */
+    public static CompressionChoice deflate(CompressionLevel level) {
+        return new CompressionChoice(CompressionMethod.DEFLATE, Objects.requireNonNull(level));
+    }
+
+    /**
+     * @return 压缩方式
+     */
+    public CompressionMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * @return 压缩级别，STORE 时为 null
+     */
+    public CompressionLevel getLevel() {
+        return level;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompressionChoice)) {
+            return false;
+        }
+        CompressionChoice that = (CompressionChoice) o;
+        return method == that.method && level == that.level;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(method, level);
+    }
+
+    @Override
+    public String toString() {
+        return level == null ? method.name() : method.name() + "/" + level.name();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.zip.zip4j.utils;
+
+import net.lingala.zip4j.model.enums.CompressionLevel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * 为每个文件选择压缩方式和压缩级别的策略
+ *
+ * @author vincent
+ */
+@FunctionalInterface
+public interface CompressionPolicy {
+
+    /**
+     * @param file 需要压缩的文件
+     * @return 该文件使用的压缩方式和级别
+     * @throws IOException IO异常
+     */
+    CompressionChoice choose(Path file) throws IOException;
+
+    /**
+     * 策略的标识，用作压缩数据缓存键的一部分（参见 {@link ZipClient#ZipClient(String, CompressionPolicy, com.example.zip.jdk_zip.utils.PayloadCache)}）：
+     * 标识相同的策略对相同内容的文件必须做出相同的选择，缓存命中时不再调用 {@link #choose(Path)}
+     *
+     * @return 策略的标识，为 null 时每个文件都先调用 {@link #choose(Path)}，再按选择的级别查找缓存
+     */
+    default String id() {
+        return null;
+    }
+
+    /**
+     * @param choice 压缩方式和级别
+     * @return 所有文件都使用同一种压缩方式和级别的策略
+     */
+    static CompressionPolicy fixed(CompressionChoice choice) {
+        Objects.requireNonNull(choice);
+        return new CompressionPolicy() {
+            @Override
+            public CompressionChoice choose(Path file) {
+                return choice;
+            }
+
+            @Override
+            public String id() {
+                return "fixed:" + choice;
+            }
+        };
+    }
+
+    /**
+     * 压缩率目标：对文件开头的数据按各个级别试压缩，选择压缩结果与最高压缩率相差不超过 tolerance 的最快级别
+     *
+     * @param tolerance 允许比最高压缩率多出的输出比例，例如 0.02 表示 2%
+     * @return 基于采样的策略
+     */
+    static CompressionPolicy sampled(double tolerance) {
+        return new SampledCompressionPolicy(tolerance, 0);
+    }
+
+    /**
+     * 吞吐量目标：对文件开头的数据按各个级别试压缩，选择采样吞吐量不低于目标的级别中压缩率最高的一个
+     *
+     * @param minThroughput 最低吞吐量（MB/s，按压缩前的字节数计算）
+     * @return 基于采样的策略
+     */
+    static CompressionPolicy throughput(double minThroughput) {
+        return new SampledCompressionPolicy(0, minThroughput);
+    }
+
+    /**
+     * 默认策略：不可压缩的文件（已压缩格式，或文件开头 8 KB 试压缩后几乎没有变小）直接存储，其余文件使用 {@link CompressionLevel#NORMAL}
+     * <p>
+     * 选择只取决于文件名和内容，与机器负载无关；需要按采样结果选择级别时使用 {@link #sampled(double)} 或 {@link #throughput(double)}。
+     *
+     * @return 默认策略
+     */
+    static CompressionPolicy defaultPolicy() {
+        return DefaultCompressionPolicy.INSTANCE;
+    }
+
+    /**
+     * @return 旧版本的行为：统一使用 {@link CompressionLevel#ULTRA}
+     */
+    static CompressionPolicy ultra() {
+        return fixed(CompressionChoice.deflate(CompressionLevel.ULTRA));
+    }
+}
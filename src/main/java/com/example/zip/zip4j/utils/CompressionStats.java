@@ -0,0 +1,120 @@
+package com.example.zip.zip4j.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按压缩方式和级别汇总的压缩统计信息（文件数、压缩前后字节数、压缩率和吞吐量）
+ *
+ * @author vincent
+ */
+public final class CompressionStats {
+    private final Map<CompressionChoice, Result> results = new LinkedHashMap<>();
+
+    CompressionStats() {
+    }
+
+    synchronized void record(CompressionChoice choice, int files, long inputBytes, long outputBytes, long elapsedNanos) {
+        Result previous = results.get(choice);
+        Result result = new Result(files, inputBytes, outputBytes, elapsedNanos);
+        results.put(choice, previous == null ? result : previous.plus(result));
+    }
+
+    /**
+     * @param choice 压缩方式和级别
+     * @return 使用该压缩方式和级别的统计信息，从未使用过时返回 null
+     */
+    public synchronized Result get(CompressionChoice choice) {
+        return results.get(choice);
+    }
+
+    /**
+     * @return 各压缩方式和级别的统计信息
+     */
+    public synchronized Map<CompressionChoice, Result> getResults() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(results));
+    }
+
+    /**
+     * 清空统计信息
+     */
+    public synchronized void reset() {
+        results.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CompressionStats" + results;
+    }
+
+    /**
+     * 单个压缩方式和级别的统计信息
+     */
+    public static final class Result {
+        private final int files;
+        private final long inputBytes;
+        private final long outputBytes;
+        private final long elapsedNanos;
+
+        Result(int files, long inputBytes, long outputBytes, long elapsedNanos) {
+            this.files = files;
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return 文件数
+         */
+        public int getFiles() {
+            return files;
+        }
+
+        /**
+         * @return 压缩前的字节数
+         */
+        public long getInputBytes() {
+            return inputBytes;
+        }
+
+        /**
+         * @return 压缩后的字节数（加密时包含加密头）
+         */
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * @return 耗时（纳秒）
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return 压缩率（压缩后 / 压缩前）
+         */
+        public double getRatio() {
+            return inputBytes == 0 ? 1 : (double) outputBytes / inputBytes;
+        }
+
+        /**
+         * @return 吞吐量（MB/s，按压缩前的字节数计算）
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : (inputBytes / 1048576.0) / (elapsedNanos / 1e9);
+        }
+
+        Result plus(Result other) {
+            return new Result(files + other.files, inputBytes + other.inputBytes,
+                    outputBytes + other.outputBytes, elapsedNanos + other.elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{files=%d, input=%d, output=%d, ratio=%.3f, throughput=%.1f MB/s}",
+                    files, inputBytes, outputBytes, getRatio(), getThroughput());
+        }
+    }
+}
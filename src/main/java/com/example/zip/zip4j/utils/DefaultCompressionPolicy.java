@@ -0,0 +1,31 @@
+package com.example.zip.zip4j.utils;
+
+import com.example.zip.jdk_zip.utils.Compressibility;
+import net.lingala.zip4j.model.enums.CompressionLevel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 默认的压缩策略：与 {@link com.example.zip.jdk_zip.utils.LevelSelector#defaultSelector()} 相同的判断，结果是确定的
+ *
+ * @author vincent
+ * @see CompressionPolicy#defaultPolicy()
+ */
+final class DefaultCompressionPolicy implements CompressionPolicy {
+    static final DefaultCompressionPolicy INSTANCE = new DefaultCompressionPolicy();
+    private static final CompressionChoice DEFAULT_CHOICE = CompressionChoice.deflate(CompressionLevel.NORMAL);
+
+    private DefaultCompressionPolicy() {
+    }
+
+    @Override
+    public CompressionChoice choose(Path file) throws IOException {
+        return Compressibility.isIncompressible(file) ? CompressionChoice.STORE : DEFAULT_CHOICE;
+    }
+
+    @Override
+    public String id() {
+        return "default";
+    }
+}
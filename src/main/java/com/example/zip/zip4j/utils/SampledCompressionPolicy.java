@@ -0,0 +1,116 @@
+package com.example.zip.zip4j.utils;
+
+import com.example.zip.jdk_zip.utils.Compressibility;
+import net.lingala.zip4j.model.enums.CompressionLevel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+
+/**
+ * 基于采样的压缩策略
+ * <p>
+ * 读取文件开头的一段数据，按 zip4j 支持的每个压缩级别各试压缩一次，记录压缩后的大小和耗时，
+ * 再根据压缩率目标或吞吐量目标选择级别。已压缩格式和试压缩后几乎没有变小的文件直接存储。
+ *
+ * @author vincent
+ */
+final class SampledCompressionPolicy implements CompressionPolicy {
+    static final int SAMPLE_SIZE = 128 * 1024;
+    /**
+     * 小于该大小的文件不采样，直接使用默认级别
+     */
+    static final int MIN_SAMPLE_SIZE = 4 * 1024;
+    private static final double INCOMPRESSIBLE_RATIO = 0.95;
+    private static final CompressionChoice DEFAULT_CHOICE = CompressionChoice.deflate(CompressionLevel.NORMAL);
+
+    private final double tolerance;
+    private final double minThroughput;
+
+    SampledCompressionPolicy(double tolerance, double minThroughput) {
+        if (tolerance < 0 || minThroughput < 0) {
+            throw new IllegalArgumentException("tolerance and minThroughput must not be negative");
+        }
+        this.tolerance = tolerance;
+        this.minThroughput = minThroughput;
+    }
+
+    @Override
+    public String id() {
+        return "sampled:" + tolerance + ":" + minThroughput;
+    }
+
+    @Override
+    public CompressionChoice choose(Path file) throws IOException {
+        if (Compressibility.hasCompressedExtension(file)) {
+            return CompressionChoice.STORE;
+        }
+        byte[] sample = new byte[SAMPLE_SIZE];
+        int length;
+        try (InputStream in = Files.newInputStream(file)) {
+            length = readFully(in, sample);
+        }
+        if (length < MIN_SAMPLE_SIZE) {
+            return DEFAULT_CHOICE;
+        }
+
+        CompressionLevel[] levels = CompressionLevel.values();
+        long[] sizes = new long[levels.length];
+        double[] throughputs = new double[levels.length];
+        byte[] output = new byte[SAMPLE_SIZE];
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            for (int i = 0; i < levels.length; i++) {
+                deflater.reset();
+                deflater.setLevel(levels[i].getLevel());
+                long start = System.nanoTime();
+                sizes[i] = deflate(deflater, sample, length, output);
+                throughputs[i] = (length / 1048576.0) / (Math.max(1, System.nanoTime() - start) / 1e9);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        //满足吞吐量目标的级别中压缩结果最小的一个
+        long bestSize = Long.MAX_VALUE;
+        for (int i = 0; i < levels.length; i++) {
+            if (throughputs[i] >= minThroughput) {
+                bestSize = Math.min(bestSize, sizes[i]);
+            }
+        }
+        if (bestSize == Long.MAX_VALUE) {
+            return CompressionChoice.deflate(levels[0]);
+        }
+        if (bestSize > length * INCOMPRESSIBLE_RATIO) {
+            return CompressionChoice.STORE;
+        }
+        //级别从快到慢排列，取第一个压缩结果足够接近最佳结果的级别
+        for (int i = 0; i < levels.length; i++) {
+            if (throughputs[i] >= minThroughput && sizes[i] <= bestSize * (1 + tolerance)) {
+                return CompressionChoice.deflate(levels[i]);
+            }
+        }
+        return DEFAULT_CHOICE;
+    }
+
+    private static long deflate(Deflater deflater, byte[] input, int length, byte[] output) {
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        long size = 0;
+        while (!deflater.finished()) {
+            size += deflater.deflate(output);
+        }
+        return size;
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        int n;
+        while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += n;
+        }
+        return length;
+    }
+}
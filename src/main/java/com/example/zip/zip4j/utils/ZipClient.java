@@ -1,54 +1,240 @@
 package com.example.zip.zip4j.utils;
 
+import com.example.zip.jdk_zip.utils.ArchiveHandleCache;
+import com.example.zip.jdk_zip.utils.PayloadCache;
+import com.example.zip.jdk_zip.utils.VerifyReport;
+import com.example.zip.jdk_zip.utils.ZipMetrics;
+import com.example.zip.jdk_zip.utils.ZipUtils;
 import com.google.common.collect.Lists;
 import net.lingala.zip4j.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
+import net.lingala.zip4j.io.inputstream.ZipInputStream;
+import net.lingala.zip4j.io.outputstream.ZipOutputStream;
+import net.lingala.zip4j.model.LocalFileHeader;
+import net.lingala.zip4j.model.FileHeader;
 import net.lingala.zip4j.model.ZipParameters;
 import net.lingala.zip4j.model.enums.AesKeyStrength;
 import net.lingala.zip4j.model.enums.CompressionLevel;
-import net.lingala.zip4j.model.enums.CompressionMethod;
 import net.lingala.zip4j.model.enums.EncryptionMethod;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.zip.Deflater;
 
 /**
+ * 不再使用时调用 {@link #close()} 释放缓存的压缩文件（及其密码）
+ *
  * @author vincent
  */
-public class ZipClient {
+public class ZipClient implements Closeable {
     private String password;
     private static final String EXTENSION = "zip";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    /**
+     * 已读取中央目录的 ZipFile 缓存，重复解压同一个压缩文件时不再解析文件头（zip4j 每次操作时才打开文件，缓存不占用文件描述符）
+     * <p>
+     * zip4j 的 ZipFile 不是线程安全的（同时解压会因 ProgressMonitor 处于 BUSY 状态而失败），使用时必须以 ZipFile 为锁。
+     * 不按空闲时间淘汰：定时清理任务会一直引用缓存和客户端，没有关闭的客户端永远不能被回收。
+     */
+    private final ArchiveHandleCache<ZipFile> zipFiles = new ArchiveHandleCache<>(16, this::openZipFile, zipFile -> {
+    });
+
+    private final CompressionPolicy compressionPolicy;
+    private final CompressionStats compressionStats = new CompressionStats();
+    private final PayloadCache payloadCache;
 
     public ZipClient() {
+        this(null);
     }
 
     public ZipClient(String password) {
+        this(password, CompressionPolicy.defaultPolicy());
+    }
+
+    /**
+     * @param password          密码，为 null 时不加密
+     * @param compressionPolicy 为每个文件选择压缩方式和级别的策略
+     */
+    public ZipClient(String password, CompressionPolicy compressionPolicy) {
+        this(password, compressionPolicy, null);
+    }
+
+    /**
+     * @param password          密码，为 null 时不加密
+     * @param compressionPolicy 为每个文件选择压缩方式和级别的策略
+     * @param payloadCache      压缩数据缓存，为 null 时不使用；
+     *                          只用于不加密地创建新的压缩文件（加密时每个条目的盐值不同，压缩数据无法复用）
+     */
+    public ZipClient(String password, CompressionPolicy compressionPolicy, PayloadCache payloadCache) {
         this.password = password;
+        this.compressionPolicy = Objects.requireNonNull(compressionPolicy);
+        this.payloadCache = payloadCache;
     }
 
     public void pack(List<String> filePaths, String desZipFileName) throws ZipException {
+        ZipMetrics.Operation metrics = ZipMetrics.start(ZipMetrics.ENGINE_ZIP4J, "pack");
+        metrics.markPack();
+        try {
+            if (payloadCache != null && password == null && Files.notExists(Paths.get(desZipFileName + "." + EXTENSION))) {
+                packCached(filePaths, desZipFileName, metrics);
+            } else {
+                pack(filePaths, desZipFileName, metrics);
+            }
+            metrics.success();
+        } catch (ZipException | RuntimeException e) {
+            metrics.failure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 内容相同的文件直接拷贝缓存的压缩数据（zip4j 不能写入已压缩的数据，改用 jdk_zip 的写入器），
+     * 缓存键包含压缩策略的标识，命中时不再运行压缩策略
+     */
+    private void packCached(List<String> filePaths, String desZipFileName, ZipMetrics.Operation metrics) throws ZipException {
+        try {
+            ZipUtils.pack(filePaths, desZipFileName + "." + EXTENSION, payloadCache,
+                    file -> toDeflaterLevel(compressionPolicy.choose(file)), compressionPolicy.id(),
+                    (file, level, size, compressedSize, elapsedNanos) ->
+                            compressionStats.record(toChoice(level), 1, size, compressedSize, elapsedNanos),
+                    metrics);
+        } catch (ZipException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ZipException(e);
+        }
+    }
+
+    private void pack(List<String> filePaths, String desZipFileName, ZipMetrics.Operation metrics) throws ZipException {
         Objects.requireNonNull(filePaths);
         Objects.requireNonNull(desZipFileName);
 
-        List<File> files = filePaths.stream().map(File::new).collect(Collectors.toList());
+        //按压缩策略为每个文件选择压缩方式和级别，相同选择的文件一起添加
+        Map<CompressionChoice, List<File>> groups = new LinkedHashMap<>();
+        for (String filePath : filePaths) {
+            groups.computeIfAbsent(choose(filePath), k -> new ArrayList<>()).add(new File(filePath));
+        }
         ZipFile zipFile = new ZipFile(desZipFileName + "." + EXTENSION, Optional.ofNullable(password).map(String::toCharArray).orElse(null));
-        zipFile.addFiles(files, Optional.ofNullable(password)
-                .map(p -> {
-                    ZipParameters zipParameters = new ZipParameters();
-                    zipParameters.setCompressionMethod(CompressionMethod.DEFLATE);
-                    zipParameters.setCompressionLevel(CompressionLevel.ULTRA);
-                    zipParameters.setEncryptFiles(true);
-                    zipParameters.setEncryptionMethod(EncryptionMethod.AES);
-                    zipParameters.setAesKeyStrength(AesKeyStrength.KEY_STRENGTH_256);
-                    return zipParameters;
-                })
-                .orElse(new ZipParameters())
-        );
+        for (Map.Entry<CompressionChoice, List<File>> group : groups.entrySet()) {
+            long start = System.nanoTime();
+            zipFile.addFiles(group.getValue(), newZipParameters(group.getKey(), password != null));
+            long elapsedNanos = System.nanoTime() - start;
+            recordStats(zipFile, group.getKey(), group.getValue(), elapsedNanos, metrics);
+        }
+    }
+
+    /**
+     * 压缩多个文件并直接写入输出流（不生成临时文件，输出流不会被关闭）
+     * <p>
+     * 条目的大小和 CRC 写在数据描述符中，第一个文件压缩时就开始输出，内存占用与文件大小无关，适合直接写入网络连接。
+     *
+     * @param filePaths 需要压缩的文件路径
+     * @param out       输出流
+     * @throws IOException IO异常
+     */
+    public void pack(List<String> filePaths, OutputStream out) throws IOException {
+        pack(filePaths, out, Optional.ofNullable(password).map(String::toCharArray).orElse(null));
+    }
+
+    /**
+     * 使用指定的密码压缩多个文件并直接写入输出流（不使用构造时给定的密码，输出流不会被关闭）
+     * <p>
+     * 密码随每次调用给出，一个客户端可以由使用不同密码的调用方共用。
+     *
+     * @param filePaths 需要压缩的文件路径
+     * @param out       输出流
+     * @param password  密码（WinZip AES-256），为 null 时不加密
+     * @throws IOException IO异常
+     */
+    public void pack(List<String> filePaths, OutputStream out, char[] password) throws IOException {
+        ZipMetrics.Operation metrics = ZipMetrics.start(ZipMetrics.ENGINE_ZIP4J, "pack");
+        metrics.markPack();
+        try {
+            pack(filePaths, out, password, metrics);
+            metrics.success();
+        } catch (IOException | RuntimeException e) {
+            metrics.failure(e);
+            throw e;
+        }
+    }
+
+    private void pack(List<String> filePaths, OutputStream out, char[] password, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(filePaths);
+        Objects.requireNonNull(out);
+
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(new CloseShieldOutputStream(out), password)) {
+            for (String filePath : filePaths) {
+                File file = new File(filePath);
+                CompressionChoice choice = choose(filePath);
+                ZipParameters zipParameters = newZipParameters(choice, password != null);
+                zipParameters.setFileNameInZip(file.getName());
+                zipParameters.setEntrySize(file.length());
+                zipParameters.setLastModifiedFileTime(file.lastModified());
+                long start = System.nanoTime();
+                zipOutputStream.putNextEntry(zipParameters);
+                try (InputStream in = new FileInputStream(file)) {
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        zipOutputStream.write(buffer, 0, n);
+                    }
+                }
+                FileHeader fileHeader = zipOutputStream.closeEntry();
+                compressionStats.record(choice, 1, file.length(), fileHeader.getCompressedSize(), System.nanoTime() - start);
+                metrics.add(1, file.length(), fileHeader.getCompressedSize());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * 多线程压缩，有密码时读取、压缩、加密在不同的线程中流水线进行，输出仍是 zip4j 可以解密的 WinZip AES-256 格式
+     *
+     * @param filePaths      需要压缩的文件路径
+     * @param desZipFileName 压缩文件名（不含扩展名）
+     * @param parallelism    同时处理的文件数
+     * @throws IOException IO异常
+     */
+    public void pack(List<String> filePaths, String desZipFileName, int parallelism) throws IOException {
+        Objects.requireNonNull(filePaths);
+        Objects.requireNonNull(desZipFileName);
+        if (password == null) {
+            pack(filePaths, desZipFileName);
+            return;
+        }
+
+        ZipUtils.packEncrypted(filePaths, desZipFileName + "." + EXTENSION, password.toCharArray(), parallelism,
+                file -> toDeflaterLevel(compressionPolicy.choose(file)));
+    }
+
+    /**
+     * 合并多个 zip 文件，条目的压缩（加密）数据原样拷贝，不需要解压和重新压缩
+     *
+     * @param sourceZipFilePaths 需要合并的 zip 文件路径，同名条目只保留先出现的一个
+     * @param desZipFileName     合并后的 zip 文件名（不含扩展名）
+     * @throws IOException IO异常
+     */
+    public void merge(List<String> sourceZipFilePaths, String desZipFileName) throws IOException {
+        Objects.requireNonNull(sourceZipFilePaths);
+        Objects.requireNonNull(desZipFileName);
+
+        ZipUtils.merge(sourceZipFilePaths, desZipFileName + "." + EXTENSION);
     }
 
     public void pack(String filePath) throws ZipException, NoSuchFileException {
@@ -65,6 +251,17 @@ public class ZipClient {
     }
 
     public void unpack(String sourceZipFilePath, String extractedZipDirPath) throws ZipException, NoSuchFileException, NotDirectoryException {
+        ZipMetrics.Operation metrics = ZipMetrics.start(ZipMetrics.ENGINE_ZIP4J, "unpack");
+        try {
+            unpack(sourceZipFilePath, extractedZipDirPath, metrics);
+            metrics.success();
+        } catch (IOException | RuntimeException e) {
+            metrics.failure(e);
+            throw e;
+        }
+    }
+
+    private void unpack(String sourceZipFilePath, String extractedZipDirPath, ZipMetrics.Operation metrics) throws ZipException, NoSuchFileException, NotDirectoryException {
         Objects.requireNonNull(sourceZipFilePath);
         Objects.requireNonNull(extractedZipDirPath);
 
@@ -82,10 +279,218 @@ public class ZipClient {
             throw new NotDirectoryException(extractedZipDirPath + " is not a directory...");
         }
 
-        ZipFile zipFile = new ZipFile(sourceZipFilePath);
+        try (ArchiveHandleCache.Handle<ZipFile> handle = zipFiles.acquire(Paths.get(sourceZipFilePath))) {
+            ZipFile zipFile = handle.get();
+            List<FileHeader> fileHeaders;
+            synchronized (zipFile) {
+                zipFile.extractAll(extractedZipDirPath);
+                fileHeaders = zipFile.getFileHeaders();
+            }
+            long bytesOut = 0;
+            for (FileHeader fileHeader : fileHeaders) {
+                bytesOut += fileHeader.getUncompressedSize();
+            }
+            metrics.add(fileHeaders.size(), Files.size(Paths.get(sourceZipFilePath)), bytesOut);
+        } catch (ZipException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ZipException(e);
+        }
+    }
+
+    public void unpack(String sourceZipFilePath, String fileName, String extractedZipDirPath) throws ZipException, NoSuchFileException, NotDirectoryException {
+        ZipMetrics.Operation metrics = ZipMetrics.start(ZipMetrics.ENGINE_ZIP4J, "unpack");
+        try {
+            unpack(sourceZipFilePath, fileName, extractedZipDirPath, metrics);
+            metrics.success();
+        } catch (IOException | RuntimeException e) {
+            metrics.failure(e);
+            throw e;
+        }
+    }
+
+    private void unpack(String sourceZipFilePath, String fileName, String extractedZipDirPath, ZipMetrics.Operation metrics) throws ZipException, NoSuchFileException, NotDirectoryException {
+        Objects.requireNonNull(sourceZipFilePath);
+        Objects.requireNonNull(fileName);
+        Objects.requireNonNull(extractedZipDirPath);
+
+        if (Files.notExists(Paths.get(sourceZipFilePath))) {
+            throw new NoSuchFileException(sourceZipFilePath);
+        }
+        if (Files.notExists(Paths.get(extractedZipDirPath))) {
+            throw new NotDirectoryException(extractedZipDirPath);
+        }
+
+        try (ArchiveHandleCache.Handle<ZipFile> handle = zipFiles.acquire(Paths.get(sourceZipFilePath))) {
+            ZipFile zipFile = handle.get();
+            FileHeader fileHeader;
+            synchronized (zipFile) {
+                zipFile.extractFile(fileName, extractedZipDirPath);
+                fileHeader = zipFile.getFileHeader(fileName);
+            }
+            metrics.add(1, fileHeader.getCompressedSize(), fileHeader.getUncompressedSize());
+        } catch (ZipException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ZipException(e);
+        }
+    }
+
+    /**
+     * 从输入流中顺序解压缩到指定目录（支持加密条目，输入流不需要支持随机访问，也不会被关闭）
+     * <p>
+     * 每个条目边解压边写出，只使用一个固定大小的缓冲区，内存占用与条目大小无关。
+     *
+     * @param in                  zip 数据
+     * @param extractedZipDirPath 解压到的目录（必须存在）
+     * @throws IOException IO异常
+     */
+    public void unpack(InputStream in, String extractedZipDirPath) throws IOException {
+        ZipMetrics.Operation metrics = ZipMetrics.start(ZipMetrics.ENGINE_ZIP4J, "unpack");
+        try {
+            unpack(in, extractedZipDirPath, metrics);
+            metrics.success();
+        } catch (IOException | RuntimeException e) {
+            metrics.failure(e);
+            throw e;
+        }
+    }
+
+    private void unpack(InputStream in, String extractedZipDirPath, ZipMetrics.Operation metrics) throws IOException {
+        Objects.requireNonNull(in);
+        Objects.requireNonNull(extractedZipDirPath);
+        if (!Files.isDirectory(Paths.get(extractedZipDirPath))) {
+            throw new NotDirectoryException(extractedZipDirPath);
+        }
+
+        Path root = Paths.get(extractedZipDirPath).toAbsolutePath().normalize();
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        try (ZipInputStream zipInputStream = new ZipInputStream(new CloseShieldInputStream(in),
+                Optional.ofNullable(password).map(String::toCharArray).orElse(null))) {
+            LocalFileHeader localFileHeader;
+            while ((localFileHeader = zipInputStream.getNextEntry()) != null) {
+                Path target = root.resolve(localFileHeader.getFileName()).normalize();
+                if (!target.startsWith(root) || target.equals(root)) {
+                    throw new ZipException("entry is outside of the target dir: " + localFileHeader.getFileName());
+                }
+                if (localFileHeader.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                long bytesOut = 0;
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    int n;
+                    while ((n = zipInputStream.read(buffer)) != -1) {
+                        out.write(buffer, 0, n);
+                        bytesOut += n;
+                    }
+                }
+                metrics.add(1, localFileHeader.getCompressedSize(), bytesOut);
+            }
+        }
+    }
+
+    /**
+     * 并行校验多个 zip 文件的完整性，有密码时同时校验 AES 加密条目的认证码
+     *
+     * @param zipPaths    需要校验的 zip 文件路径
+     * @param parallelism 并行校验的线程数
+     * @return 校验报告（损坏的条目不会抛出异常，记录在报告中）
+     * @throws IOException 文件不存在或校验被中断
+     */
+    public VerifyReport verify(List<String> zipPaths, int parallelism) throws IOException {
+        Objects.requireNonNull(zipPaths);
+
+        return ZipUtils.verify(zipPaths, parallelism, 0, Optional.ofNullable(password).map(String::toCharArray).orElse(null));
+    }
+
+    /**
+     * 清空压缩文件缓存，之后不能再解压缩
+     *
+     * @throws IOException IO异常
+     */
+    @Override
+    public void close() throws IOException {
+        zipFiles.close();
+    }
+
+    /**
+     * @return 压缩文件句柄缓存（可查看命中、未命中和淘汰次数）
+     */
+    public ArchiveHandleCache<ZipFile> getArchiveCache() {
+        return zipFiles;
+    }
+
+    /**
+     * @return 各压缩方式和级别实际达到的压缩率和吞吐量
+     */
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    private static ZipParameters newZipParameters(CompressionChoice choice, boolean encrypt) {
+        ZipParameters zipParameters = new ZipParameters();
+        zipParameters.setCompressionMethod(choice.getMethod());
+        if (choice.getLevel() != null) {
+            zipParameters.setCompressionLevel(choice.getLevel());
+        }
+        if (encrypt) {
+            zipParameters.setEncryptFiles(true);
+            zipParameters.setEncryptionMethod(EncryptionMethod.AES);
+            zipParameters.setAesKeyStrength(AesKeyStrength.KEY_STRENGTH_256);
+        }
+        return zipParameters;
+    }
+
+    private static int toDeflaterLevel(CompressionChoice choice) {
+        return choice.getLevel() == null ? Deflater.NO_COMPRESSION : choice.getLevel().getLevel();
+    }
+
+    private static CompressionChoice toChoice(int deflaterLevel) {
+        for (CompressionLevel level : CompressionLevel.values()) {
+            if (level.getLevel() == deflaterLevel) {
+                return CompressionChoice.deflate(level);
+            }
+        }
+        return CompressionChoice.STORE;
+    }
+
+    private CompressionChoice choose(String filePath) throws ZipException {
+        try {
+            return Objects.requireNonNull(compressionPolicy.choose(Paths.get(filePath)), "compression choice");
+        } catch (IOException e) {
+            throw new ZipException(e);
+        }
+    }
+
+    private void recordStats(ZipFile zipFile, CompressionChoice choice, List<File> files, long elapsedNanos,
+                             ZipMetrics.Operation metrics) throws ZipException {
+        //按条目路径（zip4j 为不带目录的文件写入的条目名）取本组条目的文件头，同名文件只会留下一个条目
+        Set<String> entryPaths = new HashSet<>();
+        for (File file : files) {
+            entryPaths.add(file.getName());
+        }
+        int entries = 0;
+        long inputBytes = 0;
+        long outputBytes = 0;
+        for (FileHeader fileHeader : zipFile.getFileHeaders()) {
+            if (entryPaths.contains(fileHeader.getFileName())) {
+                entries++;
+                inputBytes += fileHeader.getUncompressedSize();
+                outputBytes += fileHeader.getCompressedSize();
+            }
+        }
+        compressionStats.record(choice, entries, inputBytes, outputBytes, elapsedNanos);
+        metrics.add(entries, inputBytes, outputBytes);
+    }
+
+    private ZipFile openZipFile(Path path) throws ZipException {
+        ZipFile zipFile = new ZipFile(path.toFile());
+        //提前读取中央目录，之后的解压缩直接使用缓存的文件头
         if (zipFile.isEncrypted()) {
             zipFile.setPassword(password.toCharArray());
         }
-        zipFile.extractAll(extractedZipDirPath);
+        return zipFile;
     }
 }
@@ -0,0 +1,102 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArchiveHandleCacheTests {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final List<String> closed = new ArrayList<>();
+
+    private final ArchiveHandleCache<String> cache = new ArchiveHandleCache<>(2,
+            path -> path.getFileName() + "#" + loads.incrementAndGet(), closed::add);
+
+    @Test
+    void reusesHandlesAndEvictsLeastRecentlyUsed() throws IOException {
+        Path a = touch("a.zip");
+        Path b = touch("b.zip");
+        Path c = touch("c.zip");
+
+        try (ArchiveHandleCache.Handle<String> first = cache.acquire(a);
+             ArchiveHandleCache.Handle<String> second = cache.acquire(a)) {
+            assertThat(second.get()).isSameAs(first.get());
+        }
+        cache.acquire(b).close();
+        cache.acquire(a).close();
+        cache.acquire(c).close();
+
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(3);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(closed).containsExactly("b.zip#2");
+    }
+
+    @Test
+    void closesEvictedHandleOnlyAfterLastRelease() throws IOException {
+        Path a = touch("a.zip");
+        ArchiveHandleCache.Handle<String> inUse = cache.acquire(a);
+        cache.acquire(touch("b.zip")).close();
+        cache.acquire(touch("c.zip")).close();
+
+        assertThat(closed).isEmpty();
+        inUse.close();
+        assertThat(closed).containsExactly("a.zip#1");
+    }
+
+    @Test
+    void reloadsModifiedArchive() throws IOException {
+        Path a = touch("a.zip");
+        cache.acquire(a).close();
+        Files.write(a, "changed".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(a, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        try (ArchiveHandleCache.Handle<String> handle = cache.acquire(a)) {
+            assertThat(handle.get()).isEqualTo("a.zip#2");
+        }
+        assertThat(closed).containsExactly("a.zip#1");
+    }
+
+    @Test
+    void closesIdleHandlesAndRejectsUseAfterClose() throws Exception {
+        ArchiveHandleCache<String> idle = new ArchiveHandleCache<>(8, 50, TimeUnit.MILLISECONDS,
+                path -> path.getFileName() + "#" + loads.incrementAndGet(), closed::add);
+        Path a = touch("a.zip");
+        Path b = touch("b.zip");
+        ArchiveHandleCache.Handle<String> inUse = idle.acquire(a);
+        idle.acquire(b).close();
+
+        //空闲的句柄由后台线程关闭，正在使用的句柄不受影响
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (idle.size() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(closed).containsExactly("b.zip#2");
+        assertThat(inUse.get()).isEqualTo("a.zip#1");
+
+        idle.close();
+        assertThat(closed).containsExactly("b.zip#2");
+        inUse.close();
+        assertThat(closed).containsExactly("b.zip#2", "a.zip#1");
+        assertThatThrownBy(() -> idle.acquire(a)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private Path touch(String name) throws IOException {
+        return Files.write(tempDir.resolve(name), new byte[0]);
+    }
+}
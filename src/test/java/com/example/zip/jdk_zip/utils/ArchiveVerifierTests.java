@@ -0,0 +1,148 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArchiveVerifierTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void corruptedEntryIsReportedWithoutStoppingOtherArchives() throws IOException {
+        List<String> files = createFiles(20);
+        Path healthy = tempDir.resolve("healthy.zip");
+        Path corrupted = tempDir.resolve("corrupted.zip");
+        zip(files, healthy);
+        Files.copy(healthy, corrupted);
+        long dataOffset;
+        try (ZipIndex index = ZipIndex.open(corrupted)) {
+            dataOffset = index.getEntry("file07.txt").getDataOffset();
+        }
+        flip(corrupted, dataOffset + 2);
+        Path missing = tempDir.resolve("truncated.zip");
+        Files.write(missing, new byte[]{'P', 'K', 3, 4});
+
+        VerifyReport report = ZipUtils.verify(Arrays.asList(healthy.toString(), corrupted.toString(), missing.toString()), 4);
+
+        assertThat(report.isOk()).isFalse();
+        assertThat(report.getArchives()).isEqualTo(3);
+        assertThat(report.getEntries()).isEqualTo(40);
+        assertThat(report.getProblems()).extracting(VerifyReport.Problem::getArchive).containsOnly(corrupted, missing);
+        assertThat(report.getProblems()).filteredOn(problem -> corrupted.equals(problem.getArchive()))
+                .extracting(VerifyReport.Problem::getEntry).containsExactly("file07.txt");
+        assertThat(report.toJson()).contains("\"ok\":false").contains("\"entry\":\"file07.txt\"").contains("\"entry\":null");
+        assertThat(ZipUtils.verify(Collections.singletonList(healthy.toString()), 2).isOk()).isTrue();
+    }
+
+    @Test
+    void aesEntriesAreAuthenticatedWithPassword() throws IOException {
+        List<String> files = createFiles(5);
+        Path zipPath = tempDir.resolve("secret.zip");
+        ZipUtils.packEncrypted(files, zipPath.toString(), "secret".toCharArray(), 2);
+        List<String> paths = Collections.singletonList(zipPath.toString());
+
+        VerifyReport ok = ZipUtils.verify(paths, 2, 0, "secret".toCharArray());
+        assertThat(ok.isOk()).as(ok.toJson()).isTrue();
+        assertThat(ok.getEntries()).isEqualTo(5);
+        assertThat(ok.getSkipped()).isZero();
+
+        VerifyReport skipped = ZipUtils.verify(paths, 2);
+        assertThat(skipped.isOk()).isTrue();
+        assertThat(skipped.getSkipped()).isEqualTo(5);
+
+        assertThat(ZipUtils.verify(paths, 2, 0, "wrong".toCharArray()).getProblems())
+                .hasSize(5).allSatisfy(problem -> assertThat(problem.getMessage()).contains("wrong password"));
+
+        long dataOffset;
+        long compressedSize;
+        try (ZipIndex index = ZipIndex.open(zipPath)) {
+            ZipIndex.Entry entry = index.getEntry("file03.txt");
+            dataOffset = entry.getDataOffset();
+            compressedSize = entry.getCompressedSize();
+        }
+        //修改密文中间的一个字节，只有认证码能发现
+        flip(zipPath, dataOffset + compressedSize / 2);
+        VerifyReport tampered = ZipUtils.verify(paths, 2, 0, "secret".toCharArray());
+        assertThat(tampered.getProblems()).extracting(VerifyReport.Problem::getEntry).containsExactly("file03.txt");
+    }
+
+    @Test
+    void throttledVerificationStillChecksEveryEntry() throws IOException {
+        List<String> files = createFiles(8);
+        List<String> zipPaths = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path zipPath = tempDir.resolve("archive" + i + ".zip");
+            zip(files, zipPath);
+            zipPaths.add(zipPath.toString());
+        }
+
+        VerifyReport report = ZipUtils.verify(zipPaths, 2, 1 << 20, null);
+
+        assertThat(report.isOk()).isTrue();
+        assertThat(report.getArchives()).isEqualTo(3);
+        assertThat(report.getEntries()).isEqualTo(24);
+        assertThat(report.getBytes()).isEqualTo(3 * files.stream().mapToLong(f -> new File(f).length()).sum());
+        assertThat(report.getCompressedBytes()).isPositive();
+        assertThat(report.toJson()).startsWith("{\"ok\":true,\"archives\":3,\"entries\":24");
+    }
+
+    private List<String> createFiles(int count) throws IOException {
+        Path dir = Files.createDirectories(tempDir.resolve("src"));
+        Random random = new Random(42);
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 500 + i * 100; j++) {
+                sb.append("line ").append(random.nextInt(1000)).append('\n');
+            }
+            Path file = dir.resolve(String.format("file%02d.txt", i));
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+            files.add(file.toString());
+        }
+        return files;
+    }
+
+    /**
+     * 用 JDK 的 ZipOutputStream 压缩，DEFLATED 条目带数据描述符
+     */
+    private static void zip(List<String> files, Path zipPath) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipPath))) {
+            for (String file : files) {
+                Path path = Paths.get(file);
+                out.putNextEntry(new ZipEntry(path.getFileName().toString()));
+                Files.copy(path, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static void flip(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) ~b.get(0));
+            b.rewind();
+            channel.write(b, position);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ArchiveViewTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void listsDirectoriesAndStatsEntries() throws IOException {
+        Path sourceDir = createSourceDir();
+        ZipUtils.packDir(sourceDir.toString());
+
+        try (ArchiveView view = ArchiveView.open(tempDir.resolve("src.zip"))) {
+            assertThat(view.list("")).containsExactly("big.log", "docs", "random.bin");
+            assertThat(view.list("/docs/")).containsExactly("a.txt", "deep");
+            assertThat(view.list("docs/deep")).containsExactly("b.txt");
+
+            ArchiveView.Stat stat = view.stat("docs/a.txt");
+            assertThat(stat.isDirectory()).isFalse();
+            assertThat(stat.getSize()).isEqualTo(Files.size(sourceDir.resolve("docs/a.txt")));
+            assertThat(stat.getMethod()).isEqualTo(ZipFormat.METHOD_DEFLATED);
+            //zip 中的时间精度为 2 秒
+            assertThat(stat.getLastModifiedTime())
+                    .isCloseTo(Files.getLastModifiedTime(sourceDir.resolve("docs/a.txt")).toMillis(), within(2000L));
+            assertThat(view.stat("docs/deep").isDirectory()).isTrue();
+            assertThat(view.exists("docs/deep/b.txt")).isTrue();
+            assertThat(view.exists("docs/missing")).isFalse();
+
+            assertThatThrownBy(() -> view.list("docs/a.txt")).isInstanceOf(NotDirectoryException.class);
+            assertThatThrownBy(() -> view.stat("missing")).isInstanceOf(NoSuchFileException.class);
+            assertThatThrownBy(() -> view.open("docs")).isInstanceOf(FileSystemException.class);
+            try (InputStream in = view.open("docs/deep/b.txt")) {
+                assertThat(in).hasSameContentAs(Files.newInputStream(sourceDir.resolve("docs/deep/b.txt")));
+            }
+        }
+    }
+
+    @Test
+    void rangedReadsReuseInflatedChunks() throws IOException {
+        Path sourceDir = createSourceDir();
+        ZipUtils.packDir(sourceDir.toString());
+        byte[] expected = Files.readAllBytes(sourceDir.resolve("big.log"));
+
+        try (ArchiveView view = ArchiveView.open(tempDir.resolve("src.zip"), 8L * ArchiveView.CHUNK_SIZE)) {
+            //读取第 5 个块时解压并缓存前面的所有块
+            long position = 4L * ArchiveView.CHUNK_SIZE + 100;
+            assertThat(read(view, "big.log", position, 1000)).isEqualTo(Arrays.copyOfRange(expected, (int) position, (int) position + 1000));
+            assertThat(view.getChunkMisses()).isEqualTo(1);
+            long earlier = 2L * ArchiveView.CHUNK_SIZE - 10;
+            byte[] spanning = read(view, "big.log", earlier, 20);
+            assertThat(spanning).isEqualTo(Arrays.copyOfRange(expected, (int) earlier, (int) earlier + 20));
+            assertThat(view.getChunkHits()).isEqualTo(2);
+            assertThat(view.getChunkMisses()).isEqualTo(1);
+
+            assertThat(read(view, "big.log", 0, expected.length)).isEqualTo(expected);
+            assertThat(view.read("big.log", expected.length, new byte[1], 0, 1)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void storedEntriesAndUncachedViewsReadAtOffsets() throws IOException {
+        Path sourceDir = createSourceDir();
+        ZipUtils.packDir(sourceDir.toString());
+        byte[] random = Files.readAllBytes(sourceDir.resolve("random.bin"));
+        byte[] text = Files.readAllBytes(sourceDir.resolve("big.log"));
+
+        try (ArchiveView view = ArchiveView.open(tempDir.resolve("src.zip"))) {
+            assertThat(view.stat("random.bin").getMethod()).isEqualTo(ZipFormat.METHOD_STORED);
+            assertThat(read(view, "random.bin", 12_345, 50_000)).isEqualTo(Arrays.copyOfRange(random, 12_345, 62_345));
+            assertThat(view.getChunkMisses()).isZero();
+
+            //不缓存时向后读取需要重新解压，结果仍然正确
+            long late = text.length - 100;
+            assertThat(read(view, "big.log", late, 100)).isEqualTo(Arrays.copyOfRange(text, (int) late, text.length));
+            assertThat(read(view, "big.log", 10, 100)).isEqualTo(Arrays.copyOfRange(text, 10, 110));
+            assertThat(view.getChunkHits()).isZero();
+        }
+    }
+
+    /**
+     * 反复读取直到读满 len 字节或到达文件结尾
+     */
+    private static byte[] read(ArchiveView view, String path, long position, int len) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        while (out.size() < len) {
+            int n = view.read(path, position + out.size(), buffer, 0, Math.min(buffer.length, len - out.size()));
+            if (n < 0) {
+                break;
+            }
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private Path createSourceDir() throws IOException {
+        Path dir = tempDir.resolve("src");
+        Files.createDirectories(dir.resolve("docs/deep"));
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(3);
+        for (int i = 0; sb.length() < 2_000_000; i++) {
+            sb.append(i).append(" GET /api/items/").append(random.nextInt(10_000)).append(" 200\n");
+        }
+        Files.write(dir.resolve("big.log"), sb.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = new byte[100_000];
+        random.nextBytes(bytes);
+        Files.write(dir.resolve("random.bin"), bytes);
+        Files.write(dir.resolve("docs/a.txt"), "hello view".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("docs/deep/b.txt"), "deep".getBytes(StandardCharsets.UTF_8));
+        return dir;
+    }
+}
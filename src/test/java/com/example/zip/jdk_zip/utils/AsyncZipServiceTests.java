@@ -0,0 +1,100 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncZipServiceTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void packAndUnpackReportProgress() throws Exception {
+        Path sourceDir = ZipUtilsTests.createSourceDir(tempDir.resolve("source"));
+        List<Long> packProgress = new CopyOnWriteArrayList<>();
+        List<Long> unpackProgress = new CopyOnWriteArrayList<>();
+        long expected = Files.size(sourceDir.resolve("a.txt")) + Files.size(sourceDir.resolve("b.bin"));
+
+        try (AsyncZipService service = AsyncZipService.create()) {
+            Path zipPath = service.packDir(sourceDir.toString(), (done, total) -> {
+                assertThat(total).isEqualTo(expected);
+                packProgress.add(done);
+            }).get();
+            assertThat(zipPath).isEqualTo(tempDir.resolve("source.zip"));
+
+            Path unpackDir = Files.createDirectories(tempDir.resolve("unpack"));
+            Path copy = Files.move(zipPath, unpackDir.resolve("source.zip"));
+            UnpackStats stats = service.unpackFile(copy.toString(), (done, total) -> unpackProgress.add(done)).get();
+
+            assertThat(stats.getEntries()).isEqualTo(3);
+            assertThat(stats.getBytes()).isEqualTo(expected);
+            assertThat(unpackDir.resolve("a.txt")).hasSameBinaryContentAs(sourceDir.resolve("a.txt"));
+            assertThat(unpackDir.resolve("b.bin")).hasSameBinaryContentAs(sourceDir.resolve("b.bin"));
+        }
+        assertThat(packProgress).isSorted().startsWith(0L).endsWith(expected);
+        assertThat(unpackProgress).isSorted().startsWith(0L).endsWith(expected);
+    }
+
+    @Test
+    void extractSingleEntry() throws Exception {
+        Path sourceDir = ZipUtilsTests.createSourceDir(tempDir.resolve("source"));
+        ZipUtils.packDir(sourceDir.toString());
+        Path target = tempDir.resolve("a.txt");
+
+        try (AsyncZipService service = AsyncZipService.create(2, 16)) {
+            assertThat(service.extract(tempDir.resolve("source.zip").toString(), "a.txt", target.toString()).get())
+                    .hasSameBinaryContentAs(sourceDir.resolve("a.txt"));
+            CompletableFuture<Path> missing = service.extract(tempDir.resolve("source.zip").toString(), "missing", target.toString());
+            assertThatThrownBy(missing::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(java.nio.file.NoSuchFileException.class);
+        }
+    }
+
+    @Test
+    void cancelStopsExtractAndRemovesPartialFile() throws Exception {
+        Path sourceDir = ZipUtilsTests.createSourceDir(tempDir.resolve("source"));
+        ZipUtils.packDir(sourceDir.toString());
+        Path target = tempDir.resolve("b.bin");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        try (AsyncZipService service = AsyncZipService.create(1, 16)) {
+            CompletableFuture<Path> job = service.extract(tempDir.resolve("source.zip").toString(), "b.bin", target.toString(),
+                    (done, total) -> {
+                        if (done > 0) {
+                            started.countDown();
+                            awaitQuietly(cancelled);
+                        }
+                    });
+            job.whenComplete((path, e) -> failure.set(e));
+            started.await();
+            assertThat(job.cancel(true)).isTrue();
+            cancelled.countDown();
+            //等待任务检查到取消后退出
+            service.packDir(Files.createDirectories(tempDir.resolve("empty")).toString()).get();
+        }
+        assertThat(failure.get()).isInstanceOf(java.util.concurrent.CancellationException.class);
+        assertThat(target).doesNotExist();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodecPoolTests {
+
+    @Test
+    void steadyStateReusesCodecsAndBuffers() {
+        CodecPool pool = new CodecPool(10);
+        for (int i = 0; i < 100; i++) {
+            Deflater deflater = pool.deflater(i % 10);
+            Inflater inflater = pool.inflater();
+            byte[] buffer = pool.buffer();
+            ByteBuffer direct = pool.directBuffer();
+            deflater.setInput(buffer, 0, 128);
+            deflater.finish();
+            deflater.deflate(new byte[256]);
+            direct.putLong(1);
+            pool.release(deflater, i % 10);
+            pool.release(inflater);
+            pool.release(buffer);
+            pool.release(direct);
+        }
+
+        //每个级别一个 Deflater，加上 Inflater、缓冲区和直接缓冲区各一个
+        assertThat(pool.getCreated()).isEqualTo(13);
+    }
+
+    @Test
+    void borrowedObjectsAreReset() {
+        CodecPool pool = new CodecPool(4);
+        Deflater deflater = pool.deflater(Deflater.BEST_SPEED);
+        deflater.setInput(new byte[100]);
+        deflater.finish();
+        deflater.deflate(new byte[200]);
+        pool.release(deflater, Deflater.BEST_SPEED);
+        ByteBuffer direct = pool.directBuffer();
+        direct.putInt(42);
+        pool.release(direct);
+
+        assertThat(pool.deflater(Deflater.BEST_COMPRESSION)).isNotSameAs(deflater);
+        Deflater reused = pool.deflater(Deflater.BEST_SPEED);
+        assertThat(reused).isSameAs(deflater);
+        assertThat(reused.finished()).isFalse();
+        assertThat(reused.getTotalIn()).isZero();
+        ByteBuffer reusedDirect = pool.directBuffer();
+        assertThat(reusedDirect.position()).isZero();
+        assertThat(reusedDirect.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    void idleObjectsAreBounded() {
+        CodecPool pool = new CodecPool(2);
+        Deflater[] deflaters = new Deflater[3];
+        for (int i = 0; i < deflaters.length; i++) {
+            deflaters[i] = pool.deflater(Deflater.DEFAULT_COMPRESSION);
+        }
+        for (Deflater deflater : deflaters) {
+            pool.release(deflater, Deflater.DEFAULT_COMPRESSION);
+        }
+        //第三个归还时池已满，直接释放本地内存，不再回到池中
+        assertThat(pool.deflater(Deflater.DEFAULT_COMPRESSION)).isIn(deflaters[0], deflaters[1]);
+        assertThat(pool.deflater(Deflater.DEFAULT_COMPRESSION)).isIn(deflaters[0], deflaters[1]);
+        assertThat(pool.deflater(Deflater.DEFAULT_COMPRESSION)).isNotIn((Object[]) deflaters);
+
+        //上限由所有级别共用：一个级别占满之后，其他级别的 Deflater 归还时直接释放
+        CodecPool single = new CodecPool(1);
+        Deflater fast = single.deflater(Deflater.BEST_SPEED);
+        Deflater best = single.deflater(Deflater.BEST_COMPRESSION);
+        single.release(fast, Deflater.BEST_SPEED);
+        single.release(best, Deflater.BEST_COMPRESSION);
+        assertThat(single.deflater(Deflater.BEST_COMPRESSION)).isNotSameAs(best);
+        assertThat(single.deflater(Deflater.BEST_SPEED)).isSameAs(fast);
+
+        pool.release(new byte[16]);
+        assertThat(pool.buffer()).hasSize(ZipUtils.BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DirectoryScannerTests {
+
+    @Test
+    void orderedScanMatchesSortedWalk(@TempDir Path dir) throws IOException {
+        createTree(dir);
+
+        List<Path> expected;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            expected = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (int parallelism : new int[]{1, 4}) {
+            List<Path> visited = new ArrayList<>();
+            new DirectoryScanner(parallelism, true).scan(dir, (file, attrs) -> {
+                assertThat(attrs.isRegularFile()).isTrue();
+                assertThat(attrs.size()).isEqualTo(Files.size(file));
+                visited.add(file);
+            });
+            assertThat(visited).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void unorderedScanVisitsEveryFileOnce(@TempDir Path dir) throws IOException {
+        createTree(dir);
+
+        List<Path> expected;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            expected = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        List<Path> visited = new ArrayList<>();
+        new DirectoryScanner(DirectoryScanner.DEFAULT_PARALLELISM, false).scan(dir, (file, attrs) -> visited.add(file));
+        assertThat(visited).containsExactlyInAnyOrderElementsOf(expected);
+
+        //调用方给出的线程池执行预读，遍历结束后不会被关闭
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Path> injected = new ArrayList<>();
+            new DirectoryScanner(2, false, executor).scan(dir, (file, attrs) -> injected.add(file));
+            assertThat(injected).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(executor.isShutdown()).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void visitorAndListingErrorsPropagate(@TempDir Path dir) throws IOException {
+        createTree(dir);
+
+        DirectoryScanner scanner = new DirectoryScanner(2, true);
+        assertThatThrownBy(() -> scanner.scan(dir, (file, attrs) -> {
+            throw new IOException("stop at " + file.getFileName());
+        })).isInstanceOf(IOException.class).hasMessageStartingWith("stop at");
+        assertThatThrownBy(() -> scanner.scan(dir.resolve("missing"), (file, attrs) -> {
+        })).isInstanceOf(NoSuchFileException.class);
+    }
+
+    /**
+     * 多层目录，名称中包含会影响排序的字符（'-' 小于 '/'）
+     */
+    private static void createTree(Path dir) throws IOException {
+        for (int i = 0; i < 5; i++) {
+            Path sub = Files.createDirectories(dir.resolve("d" + i).resolve("nested"));
+            Files.write(sub.resolve("deep.txt"), ("deep " + i).getBytes());
+            Files.write(dir.resolve("d" + i).resolve("f" + i + ".txt"), ("file " + i).getBytes());
+        }
+        Files.createDirectories(dir.resolve("a"));
+        Files.write(dir.resolve("a").resolve("x.txt"), new byte[10]);
+        Files.write(dir.resolve("a-b.txt"), new byte[20]);
+        Files.createDirectories(dir.resolve("empty"));
+        Files.write(dir.resolve("root.txt"), new byte[30]);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExtractionWriterTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void entriesOutsideTargetDirAreRejectedBeforeWriting() throws IOException {
+        Path archiveDir = Files.createDirectories(tempDir.resolve("archives"));
+        Path zipPath = archiveDir.resolve("evil.zip");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(zipPath)) {
+            writeStored(writer, "ok.txt", "ok");
+            writeStored(writer, "../evil.txt", "evil");
+            writer.finish();
+        }
+
+        assertThatThrownBy(() -> ZipUtils.unpackFile(zipPath.toString(), 4))
+                .isInstanceOf(ZipException.class)
+                .hasMessageContaining("../evil.txt");
+        assertThat(tempDir.resolve("evil.txt")).doesNotExist();
+        //校验在写出之前完成，合法的条目也没有写出
+        assertThat(archiveDir.resolve("ok.txt")).doesNotExist();
+
+        BatchUnpackResult result = ZipUtils.unpackDir(archiveDir.toString(), 2, 2);
+        assertThat(result.getFailed()).containsOnlyKeys(zipPath);
+        assertThat(tempDir.resolve("evil.txt")).doesNotExist();
+        assertThatThrownBy(() -> new ExtractionWriter(archiveDir, Durability.NONE).resolve("/etc/passwd"))
+                .isInstanceOf(ZipException.class);
+    }
+
+    @Test
+    void nestedEntriesWithoutDirectoryEntriesAreExtracted() throws IOException {
+        int count = 2000;
+        Path zipPath = tempDir.resolve("nested.zip");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(zipPath)) {
+            for (int i = 0; i < count; i++) {
+                writeStored(writer, String.format("d%02d/sub%d/f%04d.txt", i % 50, i % 3, i), Integer.toString(i));
+            }
+            writer.finish();
+        }
+
+        for (Durability durability : Durability.values()) {
+            Path copy = Files.createDirectories(tempDir.resolve(durability.name())).resolve("nested.zip");
+            Files.copy(zipPath, copy);
+            UnpackStats stats = ZipUtils.unpackFile(copy.toString(), 4, durability);
+            assertThat(stats.getEntries()).isEqualTo(count);
+            assertThat(copy.resolveSibling("d07/sub1/f1357.txt")).hasContent("1357");
+            assertThat(copy.resolveSibling("d49/sub1/f1999.txt")).hasContent("1999");
+        }
+    }
+
+    @Test
+    void sizeMismatchIsReported() throws IOException {
+        byte[] content = "short".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        byte[] deflated = new byte[64];
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(content);
+        deflater.finish();
+        int length = deflater.deflate(deflated);
+        deflater.end();
+
+        Path zipPath = tempDir.resolve("lying.zip");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(zipPath)) {
+            //中央目录中记录的大小与解压后的实际大小不一致
+            writer.putEntry(new ZipEntryRecord("lying.txt").method(ZipFormat.METHOD_DEFLATED)
+                    .sizes(crc.getValue(), length, 1000));
+            writer.write(deflated, 0, length);
+            writer.closeEntry();
+            writer.finish();
+        }
+
+        assertThatThrownBy(() -> ZipUtils.unpackFile(zipPath.toString(), 1))
+                .isInstanceOf(ZipException.class)
+                .hasMessageContaining("size mismatch");
+
+        ExtractionWriter output = new ExtractionWriter(tempDir, Durability.PER_FILE);
+        Path target = output.resolve("a/b/unknown.txt");
+        output.createDirectories(Collections.singleton(target.getParent()));
+        try (ExtractionWriter.Output out = output.open(target, -1)) {
+            out.write(content, 0, content.length);
+        }
+        output.finish();
+        assertThat(target).hasBinaryContent(content);
+    }
+
+    private static void writeStored(ZipArchiveWriter writer, String name, String text) throws IOException {
+        byte[] content = text.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        writer.putEntry(new ZipEntryRecord(name).method(ZipFormat.METHOD_STORED)
+                .sizes(crc.getValue(), content.length, content.length));
+        writer.write(content, 0, content.length);
+        writer.closeEntry();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelBlockDeflaterTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void blocksJoinIntoOneValidDeflateStream() throws IOException {
+        byte[] data = sampleData(5 * 100 * 1024 + 123);
+        Path source = Files.write(tempDir.resolve("dump.sql"), data);
+        Path zipPath = tempDir.resolve("dump.zip");
+
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(zipPath)) {
+            new ParallelBlockDeflater(4, Deflater.DEFAULT_COMPRESSION, 64 * 1024).deflate(source, "dump.sql", writer);
+            writer.finish();
+        }
+
+        //ZipInputStream 读取时会校验数据描述符中的 CRC32 和大小
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zipPath))) {
+            ZipEntry entry = in.getNextEntry();
+            assertThat(entry.getName()).isEqualTo("dump.sql");
+            assertThat(readAll(in)).isEqualTo(data);
+            assertThat(in.getNextEntry()).isNull();
+        }
+    }
+
+    @Test
+    void emptyFileProducesEmptyEntry() throws IOException {
+        Path source = Files.write(tempDir.resolve("empty.txt"), new byte[0]);
+        ZipUtils.packFile(source.toString(), tempDir.toString(), 2);
+
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(tempDir.resolve("empty.zip")))) {
+            assertThat(in.getNextEntry().getName()).isEqualTo("empty.txt");
+            assertThat(readAll(in)).isEmpty();
+        }
+    }
+
+    @Test
+    void combinedCrcMatchesWholeCrc() {
+        byte[] data = sampleData(100000);
+        CRC32 whole = new CRC32();
+        whole.update(data);
+        CRC32 first = new CRC32();
+        first.update(data, 0, 40000);
+        CRC32 second = new CRC32();
+        second.update(data, 40000, 60000);
+
+        assertThat(Crc32Combiner.combine(first.getValue(), second.getValue(), 60000)).isEqualTo(whole.getValue());
+    }
+
+    private static byte[] sampleData(int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        Random random = new Random(7);
+        while (out.size() < size) {
+            byte[] line = ("INSERT INTO t VALUES (" + random.nextInt(1000) + ", 'row');\n").getBytes(StandardCharsets.UTF_8);
+            out.write(line, 0, Math.min(line.length, size - out.size()));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
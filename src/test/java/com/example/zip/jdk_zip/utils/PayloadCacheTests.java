@@ -0,0 +1,113 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadCacheTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void repeatedFilesSpliceCachedPayload() throws IOException {
+        Path config = Files.write(tempDir.resolve("app.yml"), repeat("server.port: 8080\n", 2000));
+        Path copy = Files.createDirectories(tempDir.resolve("copy")).resolve("app.yml");
+        Files.copy(config, copy);
+        Path other = Files.write(tempDir.resolve("other.txt"), repeat("other ", 2000));
+        PayloadCache cache = new PayloadCache(tempDir.resolve("cache"), 1 << 20);
+
+        ZipUtils.pack(Arrays.asList(config.toString(), other.toString()), tempDir.resolve("first.zip").toString(),
+                cache, LevelSelector.defaultSelector());
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+        //内容相同、路径不同的文件同样命中
+        ZipUtils.pack(Collections.singletonList(copy.toString()), tempDir.resolve("second.zip").toString(),
+                cache, LevelSelector.defaultSelector());
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getBytesSaved()).isEqualTo(Files.size(config));
+        //压缩级别不同时不能复用
+        ZipUtils.pack(Collections.singletonList(config.toString()), tempDir.resolve("third.zip").toString(),
+                cache, file -> Deflater.BEST_COMPRESSION);
+        assertThat(cache.getMisses()).isEqualTo(3);
+
+        try (ZipFile zipFile = new ZipFile(tempDir.resolve("second.zip").toFile());
+             InputStream in = zipFile.getInputStream(zipFile.getEntry("app.yml"))) {
+            assertThat(zipFile.getEntry("app.yml").getMethod()).isEqualTo(ZipFormat.METHOD_DEFLATED);
+            assertThat(in).hasSameContentAs(Files.newInputStream(config));
+        }
+        try (InputStream in = ZipUtils.openEntry(tempDir.resolve("first.zip").toString(), "other.txt")) {
+            assertThat(in).hasSameContentAs(Files.newInputStream(other));
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedPayloadsAreEvicted() throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        //随机内容压缩后约 10 KB，缓存只能容纳两个
+        PayloadCache cache = new PayloadCache(cacheDir, 25_000);
+        Path[] files = new Path[3];
+        for (int i = 0; i < files.length; i++) {
+            byte[] random = new byte[10_000];
+            new Random(i).nextBytes(random);
+            files[i] = Files.write(tempDir.resolve(i + ".bin"), random);
+        }
+        pack(cache, files[0], "a.zip");
+        pack(cache, files[1], "b.zip");
+        //访问 0 之后，最久未使用的是 1
+        pack(cache, files[0], "c.zip");
+        pack(cache, files[2], "d.zip");
+
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getBytes()).isLessThanOrEqualTo(25_000);
+        pack(cache, files[0], "e.zip");
+        assertThat(cache.getHits()).isEqualTo(2);
+        pack(cache, files[1], "f.zip");
+        assertThat(cache.getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    void reopenedCacheKeepsPayloadsAndDropsTempFiles() throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        Path file = Files.write(tempDir.resolve("a.txt"), repeat("reopen ", 1000));
+        PayloadCache cache = new PayloadCache(cacheDir, 1 << 20);
+        pack(cache, file, "a.zip");
+        Path temp = cache.newTempFile();
+
+        PayloadCache reopened = new PayloadCache(cacheDir, 1 << 20);
+        assertThat(temp).doesNotExist();
+        assertThat(reopened.size()).isEqualTo(1);
+        assertThat(reopened.getBytes()).isEqualTo(cache.getBytes());
+        pack(reopened, file, "b.zip");
+        assertThat(reopened.getHits()).isEqualTo(1);
+        assertThat(tempDir.resolve("b.zip")).hasSameBinaryContentAs(tempDir.resolve("a.zip"));
+        //上限更小时打开时就淘汰
+        assertThat(new PayloadCache(cacheDir, 0).size()).isZero();
+    }
+
+    private void pack(PayloadCache cache, Path file, String zipName) throws IOException {
+        ZipUtils.pack(Collections.singletonList(file.toString()), tempDir.resolve(zipName).toString(),
+                cache, f -> Deflater.BEST_SPEED);
+    }
+
+    private static byte[] repeat(String text, int times) {
+        StringBuilder sb = new StringBuilder(text.length() * times);
+        for (int i = 0; i < times; i++) {
+            sb.append(text);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ZipArchiveWriterTests {
+    /**
+     * 超出 32 位的条目大小（4 GB + 1 MB）
+     */
+    private static final long HUGE = (4L << 30) + (1 << 20);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void smallArchiveHasNoZip64Records() throws IOException {
+        Path zipPath = tempDir.resolve("small.zip");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(zipPath)) {
+            writeStored(writer, "a.txt", "hello".getBytes(StandardCharsets.UTF_8));
+            writer.finish();
+        }
+
+        byte[] bytes = Files.readAllBytes(zipPath);
+        ByteBuffer end = ByteBuffer.wrap(bytes, bytes.length - ZipFormat.END_OF_CENTRAL_DIRECTORY_LENGTH,
+                ZipFormat.END_OF_CENTRAL_DIRECTORY_LENGTH).slice().order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(end.getInt(0)).isEqualTo(ZipFormat.END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        assertThat(end.getShort(10)).isEqualTo((short) 1);
+        //本地文件头 + 数据 + 中央目录 + 目录结束记录，没有 ZIP64 记录
+        assertThat(bytes.length).isEqualTo(ZipFormat.LOCAL_HEADER_LENGTH + 5 + 5
+                + ZipFormat.CENTRAL_HEADER_LENGTH + 5 + ZipFormat.END_OF_CENTRAL_DIRECTORY_LENGTH);
+    }
+
+    @Test
+    void moreThan65535EntriesUseZip64() throws IOException {
+        int count = 70_000;
+        Path zipPath = tempDir.resolve("many.zip");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(zipPath)) {
+            for (int i = 0; i < count; i++) {
+                writeStored(writer, String.format("e/%05d", i), Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            }
+            writer.finish();
+            assertThat(writer.getEntryCount()).isEqualTo(count);
+        }
+
+        try (ZipIndex index = ZipIndex.open(zipPath)) {
+            assertThat(index.size()).isEqualTo(count);
+            try (InputStream in = index.openEntry("e/69999")) {
+                assertThat(in).hasContent("69999");
+            }
+        }
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(count);
+            assertThat(zipFile.getEntry("e/00000")).isNotNull();
+        }
+        AtomicInteger streamed = new AtomicInteger();
+        try (InputStream in = Files.newInputStream(zipPath)) {
+            ZipUtils.unpack(in, (entry, content) -> streamed.incrementAndGet());
+        }
+        assertThat(streamed.get()).isEqualTo(count);
+
+        //中央目录完全保留在内存中，或先保留在内存中、超出上限后溢出到临时文件，结果都相同
+        for (long centralMemoryLimit : new long[]{Long.MAX_VALUE, 256 * 1024}) {
+            Path copy = tempDir.resolve("many-" + centralMemoryLimit + ".zip");
+            try (ZipArchiveWriter writer = new ZipArchiveWriter(FileChannel.open(copy, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE), centralMemoryLimit)) {
+                for (int i = 0; i < count; i++) {
+                    writeStored(writer, String.format("e/%05d", i), Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+                }
+                writer.finish();
+            }
+            assertThat(copy).hasSameBinaryContentAs(zipPath);
+        }
+    }
+
+    @Test
+    void entriesLargerThan4GbUseZip64() throws IOException {
+        //4 GB 的零压缩后只有几 MB，不需要真的写出 4 GB 的文件
+        byte[] zeros = new byte[1 << 20];
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] output = new byte[1 << 16];
+        for (long done = 0; done < HUGE; done += zeros.length) {
+            crc.update(zeros);
+            deflater.setInput(zeros);
+            while (!deflater.needsInput()) {
+                compressed.write(output, 0, deflater.deflate(output));
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            compressed.write(output, 0, deflater.deflate(output));
+        }
+        deflater.end();
+        byte[] data = compressed.toByteArray();
+
+        Path zipPath = tempDir.resolve("huge.zip");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(zipPath)) {
+            //大小写在数据描述符中（8 字节的大小）
+            ZipEntryRecord deferred = new ZipEntryRecord("deferred.bin").method(ZipFormat.METHOD_DEFLATED);
+            deferred.flags |= ZipFormat.FLAG_DATA_DESCRIPTOR;
+            writer.putEntry(deferred);
+            writer.write(data, 0, data.length);
+            deferred.sizes(crc.getValue(), 0, HUGE);
+            writer.closeEntry();
+            //大小事先已知（本地文件头中的 ZIP64 扩展字段）
+            writer.putEntry(new ZipEntryRecord("known.bin").method(ZipFormat.METHOD_DEFLATED)
+                    .sizes(crc.getValue(), data.length, HUGE));
+            writer.write(data, 0, data.length);
+            writer.closeEntry();
+            writeStored(writer, "after.txt", "after".getBytes(StandardCharsets.UTF_8));
+            writer.finish();
+        }
+
+        try (ZipIndex index = ZipIndex.open(zipPath)) {
+            assertThat(index.getEntry("deferred.bin").getSize()).isEqualTo(HUGE);
+            assertThat(index.getEntry("known.bin").getSize()).isEqualTo(HUGE);
+            assertThat(index.getEntry("known.bin").getCompressedSize()).isEqualTo(data.length);
+            try (InputStream in = index.openEntry("after.txt")) {
+                assertThat(in).hasContent("after");
+            }
+        }
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertThat(zipFile.getEntry("deferred.bin").getSize()).isEqualTo(HUGE);
+            assertThat(zipFile.getEntry("known.bin").getSize()).isEqualTo(HUGE);
+        }
+        //顺序读取时能正确跳过 ZIP64 数据描述符
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zipPath))) {
+            ZipEntry first = in.getNextEntry();
+            long read = 0;
+            int n;
+            while ((n = in.read(zeros)) != -1) {
+                read += n;
+            }
+            assertThat(first.getName()).isEqualTo("deferred.bin");
+            assertThat(read).isEqualTo(HUGE);
+            assertThat(in.getNextEntry().getName()).isEqualTo("known.bin");
+        }
+    }
+
+    private static void writeStored(ZipArchiveWriter writer, String name, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        writer.putEntry(new ZipEntryRecord(name).method(ZipFormat.METHOD_STORED)
+                .sizes(crc.getValue(), content.length, content.length));
+        writer.write(content, 0, content.length);
+        writer.closeEntry();
+    }
+}
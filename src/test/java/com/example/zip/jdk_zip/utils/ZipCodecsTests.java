@@ -0,0 +1,130 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ZipCodecsTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void zstdAndXzArchivesRoundTrip() throws IOException {
+        for (ZipCodec codec : new ZipCodec[]{ZipCodecs.ZSTD, ZipCodecs.XZ}) {
+            Path sourceDir = ZipUtilsTests.createSourceDir(tempDir.resolve(codec.name()));
+            Files.createDirectories(sourceDir.resolve("nested"));
+            Files.write(sourceDir.resolve("nested/c.txt"), "nested".getBytes(StandardCharsets.UTF_8));
+            ZipUtils.packDir(sourceDir.toString(), codec);
+            Path zipPath = tempDir.resolve(codec.name() + ".zip");
+
+            try (ZipIndex index = ZipIndex.open(zipPath)) {
+                assertThat(index.getEntry("a.txt").getMethod()).isEqualTo(codec.method());
+                assertThat(index.getEntry("nested/c.txt").getMethod()).isEqualTo(codec.method());
+                //不可压缩的文件仍然直接存储
+                assertThat(index.getEntry("b.bin").getMethod()).isEqualTo(ZipFormat.METHOD_STORED);
+            }
+            try (InputStream in = ZipUtils.openEntry(zipPath.toString(), "a.txt")) {
+                assertThat(in).hasSameContentAs(Files.newInputStream(sourceDir.resolve("a.txt")));
+            }
+
+            Path outDir = Files.createDirectories(tempDir.resolve(codec.name() + "-out"));
+            Path moved = Files.move(zipPath, outDir.resolve("archive.zip"));
+            UnpackStats stats = ZipUtils.unpackFile(moved.toString(), 2);
+            assertThat(stats.getEntries()).isEqualTo(4);
+            for (String name : new String[]{"a.txt", "b.bin", "empty.txt", "nested/c.txt"}) {
+                assertThat(outDir.resolve(name)).hasSameBinaryContentAs(sourceDir.resolve(name));
+            }
+        }
+    }
+
+    @Test
+    void registeredCodecIsUsedForPackAndUnpack() throws IOException {
+        //把每个字节取反的测试压缩方式
+        ZipCodec inverting = new ZipCodec() {
+            @Override
+            public int method() {
+                return 201;
+            }
+
+            @Override
+            public String name() {
+                return "inverting";
+            }
+
+            @Override
+            public OutputStream compress(OutputStream out) {
+                return new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(~b);
+                    }
+                };
+            }
+
+            @Override
+            public InputStream decompress(InputStream in) {
+                return new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        int b = in.read();
+                        return b == -1 ? -1 : ~b & 0xff;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        in.close();
+                    }
+                };
+            }
+        };
+        Path file = ZipUtilsTests.createSourceDir(tempDir.resolve("src")).resolve("a.txt");
+
+        ZipCodecs.register(inverting);
+        ZipUtils.packFile(file.toString(), Files.createDirectories(tempDir.resolve("out")).toString(), inverting);
+        Path zipPath = tempDir.resolve("out/a.zip");
+        try (InputStream in = ZipUtils.openEntry(zipPath.toString(), "a.txt")) {
+            assertThat(in).hasSameContentAs(Files.newInputStream(file));
+        }
+        assertThat(ZipCodecs.forMethod(201)).isSameAs(inverting);
+        assertThatThrownBy(() -> ZipCodecs.register(new ZipCodec() {
+            @Override
+            public int method() {
+                return ZipFormat.METHOD_STORED;
+            }
+
+            @Override
+            public String name() {
+                return "stored";
+            }
+
+            @Override
+            public OutputStream compress(OutputStream out) {
+                return out;
+            }
+
+            @Override
+            public InputStream decompress(InputStream in) {
+                return in;
+            }
+        })).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void unknownMethodIsRejected() throws IOException {
+        InputStream raw = Files.newInputStream(Files.write(tempDir.resolve("raw"), new byte[1]));
+        assertThatThrownBy(() -> ZipCodecs.decompress(250, "x.txt", raw))
+                .isInstanceOf(ZipException.class)
+                .hasMessageContaining("250");
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.zip.jdk_zip.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ZipIndexTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void looksUpStoredAndDeflatedEntries() throws IOException {
+        Path zipPath = tempDir.resolve("index.zip");
+        writeArchive(zipPath, 2000);
+
+        try (ZipIndex index = ZipIndex.open(zipPath)) {
+            assertThat(index.size()).isEqualTo(2001);
+            assertThat(index.contains("dir/entry-1234.txt")).isTrue();
+            assertThat(index.contains("dir/entry-2000.txt")).isFalse();
+            try (InputStream in = index.openEntry("dir/entry-1234.txt")) {
+                assertThat(new String(readAll(in), StandardCharsets.UTF_8)).isEqualTo(content(1234));
+            }
+            try (ReadableByteChannel channel = index.openEntryChannel("stored.bin")) {
+                ByteBuffer buffer = ByteBuffer.allocate(64);
+                while (channel.read(buffer) >= 0) {
+                    assertThat(buffer.hasRemaining()).isTrue();
+                }
+                assertThat(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8)).isEqualTo("stored");
+            }
+            assertThatThrownBy(() -> index.openEntry("missing")).isInstanceOf(NoSuchFileException.class);
+        }
+    }
+
+    @Test
+    void readsZip64CentralDirectory() throws IOException {
+        Path zipPath = tempDir.resolve("zip64.zip");
+        writeArchive(zipPath, 70000);
+
+        try (ZipIndex index = ZipIndex.open(zipPath)) {
+            assertThat(index.size()).isEqualTo(70001);
+            try (InputStream in = index.openEntry("dir/entry-69999.txt")) {
+                assertThat(new String(readAll(in), StandardCharsets.UTF_8)).isEqualTo(content(69999));
+            }
+        }
+    }
+
+    private static void writeArchive(Path zipPath, int entries) throws IOException {
+        try (OutputStream file = Files.newOutputStream(zipPath); ZipOutputStream out = new ZipOutputStream(file)) {
+            for (int i = 0; i < entries; i++) {
+                out.putNextEntry(new ZipEntry("dir/entry-" + i + ".txt"));
+                out.write(content(i).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+            byte[] stored = "stored".getBytes(StandardCharsets.UTF_8);
+            ZipEntry entry = new ZipEntry("stored.bin");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(stored.length);
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            out.write(stored);
+            out.closeEntry();
+        }
+    }
+
+    private static String content(int i) {
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < 10; k++) {
+            sb.append("entry ").append(i).append(" line ").append(k).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
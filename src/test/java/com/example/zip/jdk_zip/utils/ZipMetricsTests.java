@@ -0,0 +1,89 @@
+package com.example.zip.jdk_zip.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ZipMetricsTests {
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void unbind() {
+        ZipMetrics.unbind();
+    }
+
+    @Test
+    void packAndUnpackAreRecorded() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ZipMetrics.bind(registry);
+        Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+        byte[] text = new byte[100_000];
+        Arrays.fill(text, (byte) 'a');
+        Files.write(sourceDir.resolve("a.txt"), text);
+        Files.write(sourceDir.resolve("b.txt"), "hello".getBytes(StandardCharsets.UTF_8));
+
+        ZipUtils.packDir(sourceDir.toString());
+        Path zipPath = tempDir.resolve("source.zip");
+        Path unpackDir = Files.createDirectories(tempDir.resolve("unpack"));
+        Path copy = Files.copy(zipPath, unpackDir.resolve("source.zip"));
+        ZipUtils.unpackFile(copy.toString());
+
+        assertThat(registry.get("zip.operation").tags("engine", "jdk", "operation", "packDir", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("zip.entries").tags("operation", "packDir").counter().count()).isEqualTo(2);
+        assertThat(registry.get("zip.bytes.in").tags("operation", "packDir").counter().count()).isEqualTo(100_005);
+        assertThat(registry.get("zip.bytes.out").tags("operation", "packDir").counter().count()).isEqualTo(Files.size(zipPath));
+        assertThat(registry.get("zip.compression.ratio").tags("operation", "packDir").summary().max()).isLessThan(0.1);
+        assertThat(registry.get("zip.bytes.out").tags("operation", "unpackFile").counter().count()).isEqualTo(100_005);
+        assertThat(registry.get("zip.operation.active").tags("engine", "jdk").gauge().value()).isZero();
+        assertThat(registry.find("zip.compression.ratio").tags("operation", "unpackFile").summary()).isNull();
+        assertThat(registry.get("zip.codec.pool.created").functionCounter().count()).isPositive();
+        assertThat(registry.get("zip.codec.pool.idle").tags("type", "buffer").gauge().value()).isPositive();
+        assertThat(registry.get("zip.codec.pool.idle").tags("type", "direct_buffer").gauge().value()).isPositive();
+
+        //压缩比例由压缩流程标记，不依赖操作名称
+        try (AsyncZipService service = new AsyncZipService(Runnable::run)) {
+            service.packDir(sourceDir.toString()).get();
+        }
+        assertThat(registry.get("zip.compression.ratio").tags("operation", "async.packDir").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failuresAreCountedByCause() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ZipMetrics.bind(registry);
+
+        assertThatThrownBy(() -> ZipUtils.unpackFile(tempDir.resolve("missing.zip").toString()))
+                .isInstanceOf(NoSuchFileException.class);
+
+        assertThat(registry.get("zip.operation.errors")
+                .tags("engine", "jdk", "operation", "unpackFile", "cause", "NoSuchFileException")
+                .counter().count()).isEqualTo(1);
+        assertThat(registry.get("zip.operation").tags("operation", "unpackFile", "outcome", "error")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void unboundMetricsRecordNothing() {
+        ZipMetrics.Operation operation = ZipMetrics.start(ZipMetrics.ENGINE_JDK, "packDir");
+        operation.add(1, 2, 3);
+        operation.success();
+
+        //没有绑定注册表时所有操作共用同一个空操作
+        assertThat(ZipMetrics.start(ZipMetrics.ENGINE_JDK, "unpackFile")).isSameAs(operation);
+    }
+}
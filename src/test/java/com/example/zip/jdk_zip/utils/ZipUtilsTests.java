@@ -0,0 +1,372 @@
+package com.example.zip.jdk_zip.utils;
+
+import com.example.zip.zip4j.utils.ZipClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ZipUtilsTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parallelPackDirIsReadableByUnpackFile() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+
+        ZipUtils.packDir(sourceDir.toString(), 4);
+
+        Path outDir = Files.createDirectories(tempDir.resolve("out"));
+        Path zipPath = Files.move(tempDir.resolve("src.zip"), outDir.resolve("src.zip"));
+        ZipUtils.unpackFile(zipPath.toString());
+        for (String name : new String[]{"a.txt", "b.bin", "empty.txt"}) {
+            assertThat(outDir.resolve(name)).hasSameBinaryContentAs(sourceDir.resolve(name));
+        }
+    }
+
+    @Test
+    void parallelPackDirIsDeterministic() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+        Files.createDirectories(sourceDir.resolve("nested/deeper"));
+        Files.write(sourceDir.resolve("nested/deeper/c.txt"), "nested".getBytes(StandardCharsets.UTF_8));
+
+        ZipUtils.packDir(sourceDir.toString(), 1);
+        byte[] single = Files.readAllBytes(tempDir.resolve("src.zip"));
+        ZipUtils.packDir(sourceDir.toString(), 8);
+        byte[] parallel = Files.readAllBytes(tempDir.resolve("src.zip"));
+
+        assertThat(parallel).isEqualTo(single);
+        try (ZipFile zipFile = new ZipFile(tempDir.resolve("src.zip").toFile())) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertThat(in).hasSameContentAs(Files.newInputStream(sourceDir.resolve(entry.getName())));
+                }
+            }
+            assertThat(names).containsExactly("a.txt", "b.bin", "empty.txt", "nested/deeper/c.txt");
+        }
+    }
+
+    @Test
+    void parallelUnpackMatchesSerialUnpack() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+        Files.createDirectories(sourceDir.resolve("nested"));
+        Files.write(sourceDir.resolve("nested/c.txt"), "nested".getBytes(StandardCharsets.UTF_8));
+        ZipUtils.packDir(sourceDir.toString(), 2);
+
+        Path serialDir = Files.createDirectories(tempDir.resolve("serial"));
+        Path parallelDir = Files.createDirectories(tempDir.resolve("parallel"));
+        Files.copy(tempDir.resolve("src.zip"), serialDir.resolve("src.zip"));
+        Files.copy(tempDir.resolve("src.zip"), parallelDir.resolve("src.zip"));
+
+        ZipUtils.unpackFile(serialDir.resolve("src.zip").toString());
+        UnpackStats stats = ZipUtils.unpackFile(parallelDir.resolve("src.zip").toString(), 4);
+
+        assertThat(stats.getEntries()).isEqualTo(4);
+        assertThat(stats.getBytes()).isEqualTo(Files.size(sourceDir.resolve("a.txt"))
+                + Files.size(sourceDir.resolve("b.bin")) + "nested".length());
+        for (String name : new String[]{"a.txt", "b.bin", "empty.txt", "nested/c.txt"}) {
+            assertThat(parallelDir.resolve(name)).hasSameBinaryContentAs(serialDir.resolve(name));
+            assertThat(parallelDir.resolve(name)).hasSameBinaryContentAs(sourceDir.resolve(name));
+        }
+    }
+
+    @Test
+    void concurrentUnpackDirIsolatesCorruptArchives() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+        ZipUtils.packDir(sourceDir.toString(), 2);
+        Path batchDir = Files.createDirectories(tempDir.resolve("batch"));
+        for (int i = 0; i < 5; i++) {
+            Path archiveDir = Files.createDirectories(batchDir.resolve("archive" + i));
+            Files.copy(tempDir.resolve("src.zip"), archiveDir.resolve("src.zip"));
+        }
+        Path corrupt = Files.write(batchDir.resolve("corrupt.zip"), "not a zip".getBytes(StandardCharsets.UTF_8));
+
+        BatchUnpackResult result = ZipUtils.unpackDir(batchDir.toString(), 3, 2);
+
+        assertThat(result.getSucceeded()).hasSize(5);
+        assertThat(result.getFailed()).containsOnlyKeys(corrupt);
+        assertThat(result.getStats().getEntries()).isEqualTo(15);
+        for (String name : new String[]{"a.txt", "b.bin", "empty.txt"}) {
+            assertThat(batchDir.resolve(name)).hasSameBinaryContentAs(sourceDir.resolve(name));
+        }
+    }
+
+    @Test
+    void incompressibleEntriesAreStored() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+        Files.write(sourceDir.resolve("photo.jpg"), "not really a jpeg".getBytes(StandardCharsets.UTF_8));
+
+        ZipUtils.packDir(sourceDir.toString());
+        assertMethods(tempDir.resolve("src.zip"));
+        ZipUtils.packDir(sourceDir.toString(), 3);
+        assertMethods(tempDir.resolve("src.zip"));
+    }
+
+    @Test
+    void failedPackKeepsExistingArchive() throws IOException {
+        Path outDir = Files.createDirectories(tempDir.resolve("out"));
+        Path a = Files.write(tempDir.resolve("a.txt"), "a".getBytes(StandardCharsets.UTF_8));
+        Path b = Files.write(tempDir.resolve("b.txt"), "b".getBytes(StandardCharsets.UTF_8));
+        Path zipPath = Files.write(outDir.resolve("files.zip"), "previous archive".getBytes(StandardCharsets.UTF_8));
+        PayloadCache cache = new PayloadCache(tempDir.resolve("cache"), 1 << 20);
+
+        //第一个条目已经写出后失败，不能留下缺少后续条目的压缩文件
+        LevelSelector failing = file -> {
+            if (file.equals(b)) {
+                throw new IOException("unreadable " + file);
+            }
+            return Deflater.DEFAULT_COMPRESSION;
+        };
+        assertThatThrownBy(() -> ZipUtils.pack(Arrays.asList(a.toString(), b.toString()), zipPath.toString(), cache, failing))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("unreadable");
+        assertThat(zipPath).hasContent("previous archive");
+        try (Stream<Path> files = Files.list(outDir)) {
+            assertThat(files).containsExactly(zipPath);
+        }
+    }
+
+    @Test
+    void mergeCopiesEntriesWithoutRecompressing() throws IOException {
+        Path first = createSourceDir(tempDir.resolve("first"));
+        Path second = Files.createDirectories(tempDir.resolve("second"));
+        Files.write(second.resolve("a.txt"), "shadowed".getBytes(StandardCharsets.UTF_8));
+        Files.write(second.resolve("c.txt"), "only in second".getBytes(StandardCharsets.UTF_8));
+        ZipUtils.packDir(first.toString());
+        ZipUtils.packDir(second.toString());
+
+        Path merged = tempDir.resolve("merged.zip");
+        ZipUtils.merge(Arrays.asList(tempDir.resolve("first.zip").toString(), tempDir.resolve("second.zip").toString()),
+                merged.toString());
+
+        try (ZipFile zipFile = new ZipFile(merged.toFile());
+             ZipFile firstZip = new ZipFile(tempDir.resolve("first.zip").toFile())) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            assertThat(names).containsExactlyInAnyOrder("a.txt", "b.bin", "empty.txt", "c.txt");
+            assertThat(zipFile.getEntry("a.txt").getCompressedSize()).isEqualTo(firstZip.getEntry("a.txt").getCompressedSize());
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("a.txt"))) {
+                assertThat(in).hasSameContentAs(Files.newInputStream(first.resolve("a.txt")));
+            }
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("c.txt"))) {
+                assertThat(in).hasContent("only in second");
+            }
+        }
+
+        ZipUtils.append(tempDir.resolve("second.zip").toString(),
+                Collections.singletonList(tempDir.resolve("first.zip").toString()));
+        try (ZipFile zipFile = new ZipFile(tempDir.resolve("second.zip").toFile())) {
+            assertThat(zipFile.size()).isEqualTo(4);
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("a.txt"))) {
+                assertThat(in).hasContent("shadowed");
+            }
+        }
+    }
+
+    @Test
+    void mergeKeepsEncryptedEntriesReadable() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+        ZipClient client = new ZipClient("secret");
+        client.pack(Arrays.asList(sourceDir.resolve("a.txt").toString(), sourceDir.resolve("b.bin").toString()),
+                tempDir.resolve("encrypted").toString());
+        Path plain = Files.createDirectories(tempDir.resolve("plain"));
+        Files.write(plain.resolve("c.txt"), "plain".getBytes(StandardCharsets.UTF_8));
+        ZipUtils.packDir(plain.toString());
+
+        client.merge(Arrays.asList(tempDir.resolve("encrypted.zip").toString(), tempDir.resolve("plain.zip").toString()),
+                tempDir.resolve("merged").toString());
+
+        Path outDir = Files.createDirectories(tempDir.resolve("out"));
+        client.unpack(tempDir.resolve("merged.zip").toString(), outDir.toString());
+        assertThat(outDir.resolve("a.txt")).hasSameBinaryContentAs(sourceDir.resolve("a.txt"));
+        assertThat(outDir.resolve("b.bin")).hasSameBinaryContentAs(sourceDir.resolve("b.bin"));
+        assertThat(outDir.resolve("c.txt")).hasContent("plain");
+    }
+
+    @Test
+    void packDirStreamsWithoutSeeking() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+        List<Integer> writes = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                int n = src.remaining();
+                writes.add(n);
+                while (src.hasRemaining()) {
+                    bytes.write(src.get());
+                }
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+                throw new AssertionError("channel must not be closed");
+            }
+        };
+
+        ZipUtils.packDir(sourceDir.toString(), channel);
+
+        assertThat(writes.size()).isGreaterThan(1);
+        assertThat(writes.get(0)).isLessThan(bytes.size());
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertThat(entry.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    content.write(buffer, 0, n);
+                }
+                assertThat(content.toByteArray()).isEqualTo(Files.readAllBytes(sourceDir.resolve(entry.getName())));
+            }
+        }
+        assertThat(names).containsExactlyInAnyOrder("a.txt", "b.bin", "empty.txt");
+    }
+
+    @Test
+    void repackDirCopiesUnchangedEntries() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+        Path zipPath = tempDir.resolve("src.zip");
+        assertThat(ZipUtils.repackDir(sourceDir.toString()).getPacked()).isEqualTo(3);
+
+        Files.write(sourceDir.resolve("a.txt"), "changed".getBytes(StandardCharsets.UTF_8));
+        Files.write(sourceDir.resolve("c.txt"), "added".getBytes(StandardCharsets.UTF_8));
+        Files.delete(sourceDir.resolve("empty.txt"));
+        RepackStats stats = ZipUtils.repackDir(sourceDir.toString());
+
+        assertThat(stats.getCopied()).isEqualTo(1);
+        assertThat(stats.getPacked()).isEqualTo(2);
+        assertThat(stats.getRemoved()).isEqualTo(1);
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(3);
+            assertThat(zipFile.getEntry("empty.txt")).isNull();
+            for (String name : new String[]{"a.txt", "b.bin", "c.txt"}) {
+                try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+                    assertThat(in).hasSameContentAs(Files.newInputStream(sourceDir.resolve(name)));
+                }
+            }
+        }
+
+        //大小和修改时间都不变的修改只有比较内容时才能发现
+        FileTime lastModified = Files.getLastModifiedTime(sourceDir.resolve("c.txt"));
+        Files.write(sourceDir.resolve("c.txt"), "ADDED".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(sourceDir.resolve("c.txt"), lastModified);
+        assertThat(ZipUtils.repackDir(sourceDir.toString()).getCopied()).isEqualTo(3);
+        RepackStats compared = ZipUtils.repackDir(sourceDir.toString(), true);
+        assertThat(compared.getCopied()).isEqualTo(2);
+        assertThat(compared.getPacked()).isEqualTo(1);
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile());
+             InputStream in = zipFile.getInputStream(zipFile.getEntry("c.txt"))) {
+            assertThat(in).hasContent("ADDED");
+        }
+    }
+
+    @Test
+    void unpackReadsNonSeekableStream() throws IOException {
+        Path sourceDir = createSourceDir(tempDir.resolve("src"));
+        Files.createDirectories(sourceDir.resolve("nested"));
+        Files.write(sourceDir.resolve("nested/c.txt"), "nested".getBytes(StandardCharsets.UTF_8));
+        ZipUtils.packDir(sourceDir.toString(), 2);
+        Path outDir = Files.createDirectories(tempDir.resolve("out"));
+
+        UnpackStats stats;
+        try (InputStream in = Files.newInputStream(tempDir.resolve("src.zip"))) {
+            stats = ZipUtils.unpack(in, outDir.toString());
+        }
+
+        assertThat(stats.getEntries()).isEqualTo(4);
+        for (String name : new String[]{"a.txt", "b.bin", "empty.txt", "nested/c.txt"}) {
+            assertThat(outDir.resolve(name)).hasSameBinaryContentAs(sourceDir.resolve(name));
+        }
+
+        List<String> names = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(tempDir.resolve("src.zip"))) {
+            //只读取部分条目，其余内容被跳过
+            ZipUtils.unpack(in, (entry, content) -> {
+                names.add(entry.getName());
+                if (entry.getName().equals("nested/c.txt")) {
+                    assertThat(content).hasContent("nested");
+                }
+            });
+        }
+        assertThat(names).containsExactly("a.txt", "b.bin", "empty.txt", "nested/c.txt");
+    }
+
+    @Test
+    void unpackRejectsEntriesOutsideTargetDir() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.putNextEntry(new ZipEntry("../evil.txt"));
+            out.write("evil".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        Path outDir = Files.createDirectories(tempDir.resolve("out"));
+
+        assertThatThrownBy(() -> ZipUtils.unpack(new ByteArrayInputStream(bytes.toByteArray()), outDir.toString()))
+                .isInstanceOf(ZipException.class);
+        assertThat(tempDir.resolve("evil.txt")).doesNotExist();
+    }
+
+    private static void assertMethods(Path zipPath) throws IOException {
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertThat(zipFile.getEntry("a.txt").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(zipFile.getEntry("b.bin").getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zipFile.getEntry("photo.jpg").getMethod()).isEqualTo(ZipEntry.STORED);
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("b.bin"))) {
+                assertThat(in).hasSameContentAs(Files.newInputStream(zipPath.resolveSibling("src/b.bin")));
+            }
+        }
+    }
+
+    static Path createSourceDir(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("line ").append(i).append(" of a compressible text file\n");
+        }
+        Files.write(dir.resolve("a.txt"), sb.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] random = new byte[3 * 1024 * 1024];
+        new Random(42).nextBytes(random);
+        Files.write(dir.resolve("b.bin"), random);
+        Files.write(dir.resolve("empty.txt"), new byte[0]);
+        return dir;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.zip.job;
+
+import com.example.zip.jdk_zip.utils.ZipMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.lingala.zip4j.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArchiveJobServiceTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void tinyJobsAreBatchedAndEncryptedJobsAreReadableByZip4j() throws Exception {
+        List<String> files = Collections.singletonList(createFile("a.txt", "hello").toString());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ZipMetrics.bind(registry);
+        ArchiveJobService service = new ArchiveJobService(2, 100, false);
+        try {
+            List<CompletableFuture<Path>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                futures.add(service.submit(ArchiveJob.pack(files, tempDir.resolve("plain" + i + ".zip").toString())));
+            }
+            CompletableFuture<Path> encrypted = service.submit(ArchiveJob.pack(files, tempDir.resolve("secret.zip").toString())
+                    .password("secret".toCharArray()));
+            assertThat(service.getQueueDepth()).isEqualTo(41);
+
+            service.start();
+            for (CompletableFuture<Path> future : futures) {
+                Path zipPath = future.get(30, TimeUnit.SECONDS);
+                try (java.util.zip.ZipFile zipFile = new java.util.zip.ZipFile(zipPath.toFile())) {
+                    ZipEntry entry = zipFile.getEntry("a.txt");
+                    assertThat(entry.getSize()).isEqualTo(5);
+                }
+            }
+            ZipFile zip4j = new ZipFile(encrypted.get(30, TimeUnit.SECONDS).toFile(), "secret".toCharArray());
+            assertThat(zip4j.isEncrypted()).isTrue();
+            zip4j.extractAll(Files.createDirectories(tempDir.resolve("out")).toString());
+            assertThat(tempDir.resolve("out/a.txt")).hasContent("hello");
+            //积压的小任务合批执行，批数少于任务数
+            assertThat(service.getBatches()).isLessThan(41);
+            assertThat(service.getQueueDepth()).isZero();
+            //加密任务由 zip4j 执行，其余任务由 jdk_zip 执行
+            assertThat(registry.get("zip.operation").tags("engine", ZipMetrics.ENGINE_ZIP4J, "operation", "pack",
+                    "outcome", "success").timer().count()).isEqualTo(1);
+            assertThat(registry.get("zip.operation").tags("engine", ZipMetrics.ENGINE_JDK, "operation", "pack",
+                    "outcome", "success").timer().count()).isEqualTo(40);
+        } finally {
+            service.close();
+            ZipMetrics.unbind();
+        }
+    }
+
+    @Test
+    void interactiveJobsRunFirstAndBulkJobsAreShedEarlier() throws Exception {
+        List<String> files = Collections.singletonList(createFile("b.txt", "bulk").toString());
+        ArchiveJobService service = new ArchiveJobService(1, 8, false);
+        try {
+            ConcurrentLinkedQueue<JobPriority> order = new ConcurrentLinkedQueue<>();
+            List<CompletableFuture<Path>> submitted = new ArrayList<>();
+            List<CompletableFuture<Void>> ran = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                CompletableFuture<Path> future = service.submit(ArchiveJob.pack(files, tempDir.resolve("bulk" + i + ".zip").toString())
+                        .priority(JobPriority.BULK));
+                submitted.add(future);
+                ran.add(future.thenRun(() -> order.add(JobPriority.BULK)));
+            }
+            for (int i = 0; i < 3; i++) {
+                CompletableFuture<Path> future = service.submit(ArchiveJob.pack(files, tempDir.resolve("ui" + i + ".zip").toString()));
+                submitted.add(future);
+                ran.add(future.thenRun(() -> order.add(JobPriority.INTERACTIVE)));
+            }
+
+            //批量任务在 3/4 容量时被拒绝，交互式任务可以使用剩余的容量
+            assertThat(service.getQueueDepth(JobPriority.BULK)).isEqualTo(6);
+            assertThat(service.getQueueDepth(JobPriority.INTERACTIVE)).isEqualTo(2);
+            assertThat(service.getRejected(JobPriority.BULK)).isEqualTo(2);
+            assertThat(service.getRejected(JobPriority.INTERACTIVE)).isEqualTo(1);
+            for (int i : new int[]{6, 7, 10}) {
+                assertThatThrownBy(submitted.get(i)::get).isInstanceOf(ExecutionException.class)
+                        .hasCauseInstanceOf(RejectedExecutionException.class);
+            }
+            submitted.get(0).cancel(false);
+            assertThat(service.getQueueDepth(JobPriority.BULK)).isEqualTo(5);
+
+            service.start();
+            for (int i : new int[]{1, 2, 3, 4, 5, 8, 9}) {
+                ran.get(i).get(30, TimeUnit.SECONDS);
+            }
+            assertThat(order).startsWith(JobPriority.INTERACTIVE, JobPriority.INTERACTIVE).hasSize(7);
+            assertThat(tempDir.resolve("bulk0.zip")).doesNotExist();
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void queueMetricsAreRegistered() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        Path file = createFile("c.txt", "metrics");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ArchiveJobService service = new ArchiveJobService(1, 1, false);
+        try {
+            service.bindTo(registry);
+            CompletableFuture<Path> ok = service.submit(ArchiveJob.pack(Collections.singletonList(file.toString()),
+                    tempDir.resolve("c.zip").toString()));
+            Path existing = createFile("e.zip", "previous archive");
+            service.submit(ArchiveJob.pack(Collections.singletonList(file.toString()), tempDir.resolve("d.zip").toString()));
+            assertThat(registry.get("zip.jobs.queue.depth").tag("priority", "interactive").gauge().value()).isEqualTo(1);
+            assertThat(registry.get("zip.jobs.rejected").tag("priority", "interactive").functionCounter().count()).isEqualTo(1);
+
+            service.start();
+            ok.get(30, TimeUnit.SECONDS);
+            CompletableFuture<Path> missing = service.submit(ArchiveJob.pack(
+                    Collections.singletonList(tempDir.resolve("missing.txt").toString()), tempDir.resolve("e.zip").toString()));
+            assertThatThrownBy(() -> missing.get(30, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+            //失败的任务不覆盖已有的压缩文件，也不留下临时文件
+            assertThat(existing).hasContent("previous archive");
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertThat(files.map(Path::toString)).noneMatch(name -> name.endsWith(".tmp"));
+            }
+
+            assertThat(registry.get("zip.jobs.wait").tag("priority", "interactive").timer().count()).isEqualTo(2);
+            assertThat(registry.get("zip.jobs.latency").tags("encrypted", "false", "outcome", "success").timer().count()).isEqualTo(1);
+            assertThat(registry.get("zip.jobs.latency").tags("encrypted", "false", "outcome", "failure").timer().count()).isEqualTo(1);
+            assertThat(registry.get("zip.jobs.batch.size").summary().count()).isEqualTo(2);
+        } finally {
+            service.close();
+        }
+        assertThatThrownBy(() -> service.submit(ArchiveJob.pack(Collections.singletonList(file.toString()),
+                tempDir.resolve("f.zip").toString())).get()).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    private Path createFile(String name, String content) throws IOException {
+        return Files.write(tempDir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.zip.zip4j.utils;
+
+import com.example.zip.jdk_zip.utils.PayloadCache;
+import net.lingala.zip4j.ZipFile;
+import net.lingala.zip4j.exception.ZipException;
+import net.lingala.zip4j.model.FileHeader;
+import net.lingala.zip4j.model.enums.CompressionLevel;
+import net.lingala.zip4j.model.enums.CompressionMethod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ZipClientTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sampledPolicyStoresIncompressibleFiles() throws IOException {
+        Path random = randomFile(tempDir.resolve("random.bin"));
+        Path text = textFile(tempDir.resolve("text.log"));
+        Path photo = Files.write(tempDir.resolve("photo.png"), new byte[16]);
+        Path tiny = Files.write(tempDir.resolve("tiny.txt"), "tiny".getBytes(StandardCharsets.UTF_8));
+
+        //默认策略不采样，选择是确定的
+        CompressionPolicy defaultPolicy = CompressionPolicy.defaultPolicy();
+        assertThat(defaultPolicy.choose(random)).isEqualTo(CompressionChoice.STORE);
+        assertThat(defaultPolicy.choose(photo)).isEqualTo(CompressionChoice.STORE);
+        assertThat(defaultPolicy.choose(text)).isEqualTo(CompressionChoice.deflate(CompressionLevel.NORMAL));
+
+        CompressionPolicy policy = CompressionPolicy.sampled(0.02);
+
+        assertThat(policy.choose(random)).isEqualTo(CompressionChoice.STORE);
+        assertThat(policy.choose(photo)).isEqualTo(CompressionChoice.STORE);
+        assertThat(policy.choose(text).getMethod()).isEqualTo(CompressionMethod.DEFLATE);
+        assertThat(policy.choose(tiny)).isEqualTo(CompressionChoice.deflate(CompressionLevel.NORMAL));
+        //不限制吞吐量、不允许任何压缩率损失时，等价于选择压缩结果最小的级别
+        assertThat(CompressionPolicy.sampled(0).choose(text).getLevel().getLevel())
+                .isGreaterThanOrEqualTo(policy.choose(text).getLevel().getLevel());
+    }
+
+    @Test
+    void packRecordsStatsPerChoice() throws IOException {
+        Path random = randomFile(tempDir.resolve("random.bin"));
+        Path text = textFile(tempDir.resolve("text.log"));
+        ZipClient client = new ZipClient("secret");
+
+        client.pack(Arrays.asList(random.toString(), text.toString()), tempDir.resolve("out").toString());
+
+        CompressionStats stats = client.getCompressionStats();
+        CompressionStats.Result stored = stats.get(CompressionChoice.STORE);
+        assertThat(stored.getFiles()).isEqualTo(1);
+        assertThat(stored.getInputBytes()).isEqualTo(Files.size(random));
+        assertThat(stored.getRatio()).isGreaterThanOrEqualTo(1.0);
+        assertThat(stats.getResults()).hasSize(2);
+        stats.getResults().forEach((choice, result) -> assertThat(result.getThroughput()).isPositive());
+        CompressionStats.Result deflated = stats.getResults().entrySet().stream()
+                .filter(e -> e.getKey().getMethod() == CompressionMethod.DEFLATE)
+                .findFirst().get().getValue();
+        assertThat(deflated.getRatio()).isLessThan(0.2);
+
+        Path outDir = Files.createDirectories(tempDir.resolve("extracted"));
+        client.unpack(tempDir.resolve("out.zip").toString(), outDir.toString());
+        assertThat(outDir.resolve("random.bin")).hasSameBinaryContentAs(random);
+        assertThat(outDir.resolve("text.log")).hasSameBinaryContentAs(text);
+    }
+
+    @Test
+    void fixedPolicyUsesOneChoice() throws IOException {
+        Path random = randomFile(tempDir.resolve("random.bin"));
+        Path text = textFile(tempDir.resolve("text.log"));
+        ZipClient client = new ZipClient(null, CompressionPolicy.ultra());
+
+        client.pack(Arrays.asList(random.toString(), text.toString()), tempDir.resolve("out").toString());
+
+        assertThat(client.getCompressionStats().getResults())
+                .containsOnlyKeys(CompressionChoice.deflate(CompressionLevel.ULTRA));
+        assertThat(client.getCompressionStats().get(CompressionChoice.deflate(CompressionLevel.ULTRA)).getFiles())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void pipelinedEncryptedPackIsReadableByZip4j() throws IOException {
+        Path random = randomFile(tempDir.resolve("random.bin"));
+        Path text = textFile(tempDir.resolve("text.log"));
+        Path empty = Files.write(tempDir.resolve("empty.txt"), new byte[0]);
+        ZipClient client = new ZipClient("secret");
+
+        client.pack(Arrays.asList(random.toString(), text.toString(), empty.toString()), tempDir.resolve("out").toString(), 3);
+
+        ZipFile zipFile = new ZipFile(tempDir.resolve("out.zip").toFile());
+        assertThat(zipFile.isEncrypted()).isTrue();
+        assertThat(zipFile.getFileHeaders()).extracting(FileHeader::getFileName)
+                .containsExactly("random.bin", "text.log", "empty.txt");
+        assertThat(zipFile.getFileHeader("random.bin").getAesExtraDataRecord().getCompressionMethod())
+                .isEqualTo(CompressionMethod.STORE);
+        assertThat(zipFile.getFileHeader("text.log").getCompressedSize()).isLessThan(Files.size(text) / 4);
+
+        Path outDir = Files.createDirectories(tempDir.resolve("extracted"));
+        client.unpack(tempDir.resolve("out.zip").toString(), outDir.toString());
+        assertThat(outDir.resolve("random.bin")).hasSameBinaryContentAs(random);
+        assertThat(outDir.resolve("text.log")).hasSameBinaryContentAs(text);
+        assertThat(outDir.resolve("empty.txt")).hasBinaryContent(new byte[0]);
+
+        Path wrongDir = Files.createDirectories(tempDir.resolve("wrong"));
+        assertThatThrownBy(() -> new ZipClient("wrong").unpack(tempDir.resolve("out.zip").toString(), wrongDir.toString()))
+                .isInstanceOf(ZipException.class);
+    }
+
+    @Test
+    void packStreamsEncryptedArchive() throws IOException {
+        Path random = randomFile(tempDir.resolve("random.bin"));
+        Path text = textFile(tempDir.resolve("text.log"));
+        ZipClient client = new ZipClient("secret");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        client.pack(Arrays.asList(random.toString(), text.toString()), out);
+
+        Path zipPath = Files.write(tempDir.resolve("streamed.zip"), out.toByteArray());
+        Path outDir = Files.createDirectories(tempDir.resolve("extracted"));
+        client.unpack(zipPath.toString(), outDir.toString());
+        assertThat(outDir.resolve("random.bin")).hasSameBinaryContentAs(random);
+        assertThat(outDir.resolve("text.log")).hasSameBinaryContentAs(text);
+
+        Path streamedDir = Files.createDirectories(tempDir.resolve("streamed"));
+        client.unpack(new ByteArrayInputStream(out.toByteArray()), streamedDir.toString());
+        assertThat(streamedDir.resolve("random.bin")).hasSameBinaryContentAs(random);
+        assertThat(streamedDir.resolve("text.log")).hasSameBinaryContentAs(text);
+        assertThat(client.getCompressionStats().get(CompressionChoice.STORE).getFiles()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentUnpacksOfOneArchiveShareTheCachedHandle() throws Exception {
+        Path text = textFile(tempDir.resolve("text.log"));
+        ZipClient client = new ZipClient("secret");
+        client.pack(Collections.singletonList(text.toString()), tempDir.resolve("shared").toString());
+        String zipPath = tempDir.resolve("shared.zip").toString();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Path>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                Path out = Files.createDirectories(tempDir.resolve("out" + i));
+                futures.add(pool.submit(() -> {
+                    client.unpack(zipPath, out.toString());
+                    return out.resolve("text.log");
+                }));
+            }
+            for (Future<Path> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS)).hasSameBinaryContentAs(text);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(client.getArchiveCache().getMisses()).isEqualTo(1);
+
+        //关闭后释放缓存的压缩文件，不能再解压缩
+        client.close();
+        assertThatThrownBy(() -> client.unpack(zipPath, tempDir.toString())).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void payloadCacheReusesCompressedEntries() throws IOException {
+        Path random = randomFile(tempDir.resolve("random.bin"));
+        Path text = textFile(tempDir.resolve("text.log"));
+        PayloadCache cache = new PayloadCache(tempDir.resolve("cache"), 1 << 20);
+        CompressionPolicy sampled = CompressionPolicy.sampled(0.02);
+        AtomicInteger choices = new AtomicInteger();
+        ZipClient client = new ZipClient(null, new CompressionPolicy() {
+            @Override
+            public CompressionChoice choose(Path file) throws IOException {
+                choices.incrementAndGet();
+                return sampled.choose(file);
+            }
+
+            @Override
+            public String id() {
+                return sampled.id();
+            }
+        }, cache);
+
+        client.pack(Arrays.asList(random.toString(), text.toString()), tempDir.resolve("first").toString());
+        client.pack(Arrays.asList(random.toString(), text.toString()), tempDir.resolve("second").toString());
+
+        //缓存键包含策略标识，命中时不再运行策略；不压缩的选择也被缓存
+        assertThat(choices).hasValue(2);
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(client.getCompressionStats().get(CompressionChoice.STORE).getFiles()).isEqualTo(2);
+        assertThat(client.getCompressionStats().getResults().values().stream().mapToInt(CompressionStats.Result::getFiles).sum())
+                .isEqualTo(4);
+        assertThat(tempDir.resolve("second.zip")).hasSameBinaryContentAs(tempDir.resolve("first.zip"));
+        Path outDir = Files.createDirectories(tempDir.resolve("extracted"));
+        client.unpack(tempDir.resolve("second.zip").toString(), outDir.toString());
+        assertThat(outDir.resolve("random.bin")).hasSameBinaryContentAs(random);
+        assertThat(outDir.resolve("text.log")).hasSameBinaryContentAs(text);
+    }
+
+    static Path randomFile(Path path) throws IOException {
+        byte[] random = new byte[512 * 1024];
+        new Random(7).nextBytes(random);
+        return Files.write(path, random);
+    }
+
+    static Path textFile(Path path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(11);
+        for (int i = 0; i < 20000; i++) {
+            sb.append("2026-01-01 12:00:").append(i % 60).append(" INFO request ").append(random.nextInt(1000))
+                    .append(" served in ").append(random.nextInt(50)).append(" ms\n");
+        }
+        return Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}